@@ -0,0 +1,133 @@
+package org.example.educonnect1.Server;
+
+import org.example.educonnect1.Server.Commands.LoginCommand;
+import org.example.educonnect1.Server.dao.UserDAO;
+import org.example.educonnect1.Server.utils.PasswordHasher;
+import org.example.educonnect1.client.models.User;
+import org.example.educonnect1.protocol.Protocol;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Một request đi hết đường dispatch của server: decode frame -> tra commandMap -> metrics -> Command -> encode response.
+ * GET_UNREAD_COUNTS khi chưa login trả về FAILED ngay nên không chạm DB, số đo là chi phí của chính đường dispatch
+ * (log "request" ở mức DEBUG nên với level mặc định chỉ là fast path no-op; chạy với
+ * -jvmArgsAppend -Deduconnect.log.level=DEBUG để đo cả chi phí đưa event vào ring buffer).
+ * PING đi đường tắt, không qua commandMap.
+ * command() đo LOGIN/SEARCH_FRIEND thật theo từng version (v1 object stream, v2 binary, v3 multiplexed);
+ * kích thước frame request/response in ra lúc setup của mỗi tổ hợp tham số.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+    private static final String PASSWORD = "matkhau123";
+    private static final String SEARCH_QUERY = "nguyen van an";
+
+    private ClientSession session;
+    private byte[] serializedRequest;
+    private byte[] binaryRequest;
+    private byte[] multiplexedRequest;
+    private byte[] pingRequest;
+
+    /**
+     * LOGIN: UserDAO trả user có sẵn (như trúng UserCache) và bcrypt được thay bằng so sánh chuỗi,
+     * nên chỉ còn decode, UserProfile/User, presence và encode (lần LOGIN đầu nạp danh sách bạn từ DB,
+     * không có DB thì log WARN một lần và coi như không có bạn). SEARCH_FRIEND: command thật trên NameIndex
+     * 10k user, query khớp 20 người.
+     */
+    @State(Scope.Benchmark)
+    public static class Exchange {
+        @Param({"1", "2", "3"})
+        public int version;
+
+        @Param({"LOGIN", "SEARCH_FRIEND"})
+        public String action;
+
+        ClientSession session;
+        byte[] request;
+
+        @Setup
+        public void setUp() throws Exception {
+            TCPServer.initializeCommands();
+            User user = new User(1, null, "student1@educonnect.vn", "$2a$12$abcdefghijklmnopqrstuv0123456789ABCDEFGHIJKLMNOPQRSTU",
+                    "Nguyễn Văn An", "STUDENT", true, "https://res.cloudinary.com/educonnect/avatar/1.png");
+            TCPServer.replaceCommand("LOGIN", new LoginCommand(new UserDAO() {
+                @Override
+                public User findByEmail(String email) {
+                    return user;
+                }
+            }, new PasswordHasher(50) {
+                @Override
+                public boolean verify(String password, String hash) {
+                    return PASSWORD.equals(password);
+                }
+
+                @Override
+                public boolean needsRehash(String hash) {
+                    return false;
+                }
+            }));
+            for (int id = 1; id <= 10_000; id++) {
+                String name = id <= 20 ? "Nguyễn Văn An " + id : "Trần Thị Sinh Viên " + id;
+                UserDAO.nameIndex().putIfAbsent(id, name, "https://res.cloudinary.com/educonnect/avatar/" + id + ".png");
+            }
+            UserDAO.nameIndex().markReady();
+
+            session = new ClientSession("bench", version, null);
+            request = "LOGIN".equals(action)
+                    ? Protocol.encodeRequest(version, 1, action, user.getEmail(), PASSWORD)
+                    : Protocol.encodeRequest(version, 1, action, SEARCH_QUERY);
+            byte[] response = dispatch();
+            // +4: length prefix của frame
+            System.out.println(action + " v" + version + ": request " + (request.length + 4)
+                    + " bytes, response " + (response.length + 4) + " bytes");
+        }
+
+        byte[] dispatch() throws Exception {
+            if (version >= Protocol.VERSION_MULTIPLEXED) session.begin(1);
+            return TCPServer.dispatchFrame(request, session, version, 0);
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        TCPServer.initializeCommands();
+        session = new ClientSession("bench", Protocol.VERSION_MULTIPLEXED, null);
+        serializedRequest = Protocol.encodeRequest(Protocol.VERSION_SERIALIZED, 0, "GET_UNREAD_COUNTS");
+        binaryRequest = Protocol.encodeRequest(Protocol.VERSION_BINARY, 0, "GET_UNREAD_COUNTS");
+        multiplexedRequest = Protocol.encodeRequest(Protocol.VERSION_MULTIPLEXED, 1, "GET_UNREAD_COUNTS");
+        pingRequest = Protocol.encodeRequest(Protocol.VERSION_MULTIPLEXED, 1, "PING");
+    }
+
+    @Benchmark
+    public byte[] serialized() throws Exception {
+        return TCPServer.dispatchFrame(serializedRequest, session, Protocol.VERSION_SERIALIZED, 0);
+    }
+
+    @Benchmark
+    public byte[] binary() throws Exception {
+        return TCPServer.dispatchFrame(binaryRequest, session, Protocol.VERSION_BINARY, 0);
+    }
+
+    @Benchmark
+    public byte[] multiplexed() throws Exception {
+        session.begin(1);
+        return TCPServer.dispatchFrame(multiplexedRequest, session, Protocol.VERSION_MULTIPLEXED, 0);
+    }
+
+    @Benchmark
+    public byte[] ping() throws Exception {
+        session.begin(1);
+        return TCPServer.dispatchFrame(pingRequest, session, Protocol.VERSION_MULTIPLEXED, 0);
+    }
+
+    @Benchmark
+    public byte[] command(Exchange exchange) throws Exception {
+        return exchange.dispatch();
+    }
+}
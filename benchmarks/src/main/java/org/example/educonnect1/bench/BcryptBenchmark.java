@@ -0,0 +1,43 @@
+package org.example.educonnect1.bench;
+
+import org.example.educonnect1.Server.utils.PasswordHasher;
+import org.mindrot.jbcrypt.BCrypt;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thời gian kiểm tra mật khẩu theo cost bcrypt (-Deduconnect.bcrypt.cost), trực tiếp và qua pool của PasswordHasher
+ * (chênh lệch là chi phí chuyển thread). Mỗi cost tăng 1 thì thời gian gấp đôi: chọn cost theo số LOGIN/giây cần chịu.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BcryptBenchmark {
+    private static final String PASSWORD = "MatKhau@2024";
+
+    @Param({"10", "11", "12", "13"})
+    public int cost;
+
+    private String hash;
+    private PasswordHasher passwordHasher;
+
+    @Setup
+    public void setUp() {
+        hash = BCrypt.hashpw(PASSWORD, BCrypt.gensalt(cost));
+        passwordHasher = new PasswordHasher(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    @Benchmark
+    public boolean checkpw() {
+        return BCrypt.checkpw(PASSWORD, hash);
+    }
+
+    @Benchmark
+    public boolean passwordHasherVerify() {
+        return passwordHasher.verify(PASSWORD, hash);
+    }
+}
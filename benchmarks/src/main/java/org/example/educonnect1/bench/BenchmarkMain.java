@@ -0,0 +1,24 @@
+package org.example.educonnect1.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Chạy JMH như org.openjdk.jmh.Main nhưng mặc định ghi kết quả JSON vào target/jmh-result.json
+ * để so sánh giữa các bản release; truyền -rf/-rff để đổi định dạng/chỗ ghi.
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.add(0, "-rf");
+            options.add(1, "json");
+        }
+        if (!options.contains("-rff")) {
+            options.add(0, "-rff");
+            options.add(1, "target/jmh-result.json");
+        }
+        org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+    }
+}
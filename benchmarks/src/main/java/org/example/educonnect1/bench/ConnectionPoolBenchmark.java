@@ -0,0 +1,64 @@
+package org.example.educonnect1.bench;
+
+import org.example.educonnect1.Server.utils.ConnectionPool;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mượn + trả connection của ConnectionPool với 8 thread, mỗi lần giữ connection một khoảng holdTokens (thay cho query).
+ * - poolSize=16: pool không bao giờ hết, số đo là chi phí mượn/trả (proxy, semaphore, deque)
+ * - poolSize=2: pool bão hòa, thời gian gồm cả chờ permit, gần với lúc DB chậm và worker xếp hàng chờ connection
+ * leakStackTraces=true đo thêm chi phí chụp stack mỗi lần mượn; chạy với -prof gc để xem byte cấp phát mỗi lần mượn.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class ConnectionPoolBenchmark {
+    @Param({"16", "2"})
+    public int poolSize;
+
+    @Param({"false", "true"})
+    public boolean leakStackTraces;
+
+    @Param({"1000"})
+    public int holdTokens;
+
+    private ConnectionPool pool;
+
+    @Setup
+    public void setUp() {
+        pool = new ConnectionPool(ConnectionPoolBenchmark::connect, poolSize, poolSize, 10_000,
+                5 * 60_000, 30_000, 30_000, leakStackTraces);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println("\npool: " + pool.stats());
+        pool.shutdown();
+    }
+
+    private static Connection connect() {
+        try {
+            return DriverManager.getConnection("jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1", "sa", "");
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Benchmark
+    public void borrow(Blackhole bh) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            bh.consume(conn);
+            Blackhole.consumeCPU(holdTokens);
+        }
+    }
+}
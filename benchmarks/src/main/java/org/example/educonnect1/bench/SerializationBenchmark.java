@@ -0,0 +1,109 @@
+package org.example.educonnect1.bench;
+
+import org.example.educonnect1.client.models.User;
+import org.example.educonnect1.protocol.BinaryCodec;
+import org.example.educonnect1.protocol.Protocol;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode/decode User và List&lt;User&gt; như response v1 (object stream, mỗi frame một ObjectOutputStream)
+ * so với BinaryCodec của v2/v3. Chạy với -prof gc để xem số byte cấp phát mỗi lần encode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    private User user;
+    private byte[] serializedUser;
+
+    /**
+     * Danh sách kết quả (vd. SEARCH_FRIEND) với số phần tử khác nhau
+     */
+    @State(Scope.Benchmark)
+    public static class Users {
+        @Param({"1", "20", "200"})
+        public int listSize;
+
+        List<User> users;
+        byte[] serialized;
+        byte[] binary;
+
+        @Setup
+        public void setUp() throws Exception {
+            users = new ArrayList<>(listSize);
+            for (int i = 0; i < listSize; i++) {
+                users.add(user(i + 1));
+            }
+            serialized = Protocol.serialize(users);
+            binary = binary(users);
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        user = user(1);
+        serializedUser = Protocol.serialize(user);
+    }
+
+    static User user(int id) {
+        return new User(id, null, "student" + id + "@educonnect.vn", "$2a$12$abcdefghijklmnopqrstuv0123456789ABCDEFGHIJKLMNOPQRSTU",
+                "Nguyễn Văn Sinh Viên " + id, "STUDENT", true, "https://res.cloudinary.com/educonnect/avatar/" + id + ".png");
+    }
+
+    static byte[] binary(Object value) throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+        BinaryCodec.writeValue(new DataOutputStream(buffer), value);
+        return buffer.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] serializeUser() throws Exception {
+        return Protocol.serialize(user);
+    }
+
+    @Benchmark
+    public byte[] serializeUserList(Users state) throws Exception {
+        return Protocol.serialize(state.users);
+    }
+
+    @Benchmark
+    public Object deserializeUser() throws Exception {
+        try (ObjectInputStream in = Protocol.openSerialized(serializedUser)) {
+            return in.readObject();
+        }
+    }
+
+    @Benchmark
+    public Object deserializeUserList(Users state) throws Exception {
+        try (ObjectInputStream in = Protocol.openSerialized(state.serialized)) {
+            return in.readObject();
+        }
+    }
+
+    @Benchmark
+    public byte[] binaryUser() throws Exception {
+        return binary(user);
+    }
+
+    @Benchmark
+    public byte[] binaryUserList(Users state) throws Exception {
+        return binary(state.users);
+    }
+
+    @Benchmark
+    public Object binaryReadUserList(Users state) throws Exception {
+        return BinaryCodec.readValue(new DataInputStream(new ByteArrayInputStream(state.binary)));
+    }
+}
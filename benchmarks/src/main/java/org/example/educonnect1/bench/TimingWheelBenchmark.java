@@ -0,0 +1,57 @@
+package org.example.educonnect1.bench;
+
+import org.example.educonnect1.Server.utils.TimingWheel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đặt + hủy một timer (như idle timeout của mỗi kết nối): TimingWheel so với ScheduledThreadPoolExecutor,
+ * khi đã có sẵn outstanding timer khác đang chờ (mỗi kết nối đang mở giữ một timer)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimingWheelBenchmark {
+    private static final Runnable NOOP = () -> {
+    };
+
+    @Param({"0", "100000"})
+    public int outstanding;
+
+    private TimingWheel wheel;
+    private ScheduledThreadPoolExecutor scheduler;
+
+    @Setup
+    public void setUp() {
+        wheel = new TimingWheel(100, 512, "bench-wheel");
+        scheduler = new ScheduledThreadPoolExecutor(1);
+        scheduler.setRemoveOnCancelPolicy(true);
+        for (int i = 0; i < outstanding; i++) {
+            wheel.schedule(NOOP, 10 + i % 600, TimeUnit.MINUTES);
+            scheduler.schedule(NOOP, 10 + i % 600, TimeUnit.MINUTES);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        wheel.stop();
+        scheduler.shutdownNow();
+    }
+
+    @Benchmark
+    public boolean timingWheel() {
+        return wheel.schedule(NOOP, 5, TimeUnit.MINUTES).cancel();
+    }
+
+    @Benchmark
+    public boolean scheduledExecutor() {
+        ScheduledFuture<?> future = scheduler.schedule(NOOP, 5, TimeUnit.MINUTES);
+        return future.cancel(false);
+    }
+}
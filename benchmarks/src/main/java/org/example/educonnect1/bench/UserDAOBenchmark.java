@@ -0,0 +1,141 @@
+package org.example.educonnect1.bench;
+
+import org.example.educonnect1.Server.dao.UserDAO;
+import org.example.educonnect1.Server.utils.DB;
+import org.example.educonnect1.client.models.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserDAO với H2 nhúng (MySQL mode) qua chính ConnectionPool của server: đo chi phí của DAO, pool
+ * và cache, không tính network tới MySQL thật. Bảng users có `users` dòng, họ phân bố như thực tế
+ * (~38% Nguyễn) để thấy cả trường hợp xấu của index tên lẫn LIKE quét cả bảng.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Deduconnect.db.url=jdbc:h2:mem:educonnect;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "-Deduconnect.db.user=sa",
+        "-Deduconnect.db.password=",
+        "-Xmx4g"})
+public class UserDAOBenchmark {
+    private static final String[] FAMILY = {"Nguyễn", "Trần", "Lê", "Phạm", "Hoàng", "Huỳnh", "Phan", "Vũ",
+            "Võ", "Đặng", "Bùi", "Đỗ", "Hồ", "Ngô", "Dương", "Lý"};
+    private static final int[] FAMILY_WEIGHT = {38, 11, 9, 7, 5, 5, 4, 4, 4, 2, 2, 2, 2, 2, 2, 1};
+    private static final String[] MIDDLE = {"Văn", "Thị", "Đức", "Minh", "Ngọc", "Thanh", "Hữu", "Quốc",
+            "Thu", "Hoài"};
+    private static final String[] GIVEN = {"An", "Anh", "Bình", "Châu", "Dũng", "Hà", "Hải", "Hạnh", "Hoa",
+            "Hùng", "Hương", "Khoa", "Lan", "Linh", "Long", "Mai", "Nam", "Phong", "Phương", "Quân", "Sơn",
+            "Tâm", "Thảo", "Trang", "Tuấn", "Vy", "Yến", "Hòa", "Trung", "Tú"};
+    // họ phổ biến, tên riêng, họ + đệm, họ tên đầy đủ
+    private static final String[] QUERIES = {"Nguyễn", "Trần", "Hoa", "Tuấn", "Nguyễn Văn", "Lê Thị",
+            "Nguyễn Thị Hoa", "Phạm Minh Tú"};
+
+    @Param({"100000", "1000000"})
+    public int users;
+
+    private UserDAO userDAO;
+
+    @Setup
+    public void setUp() throws Exception {
+        try (Connection conn = DB.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS users (id INT AUTO_INCREMENT PRIMARY KEY, email VARCHAR(255) UNIQUE,"
+                    + " password VARCHAR(255), full_name VARCHAR(255), avatar VARCHAR(512), role VARCHAR(20),"
+                    + " is_verified BOOLEAN DEFAULT FALSE, verification_code VARCHAR(10), verification_expiry TIMESTAMP NULL)");
+            st.execute("DELETE FROM users");
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO users (id, email, password, full_name, role, is_verified) VALUES (?,?,?,?,?,TRUE)")) {
+                Random random = new Random(42);
+                for (int id = 1; id <= users; id++) {
+                    ps.setInt(1, id);
+                    ps.setString(2, email(id));
+                    ps.setString(3, "$2a$12$abcdefghijklmnopqrstuv0123456789ABCDEFGHIJKLMNOPQRSTU");
+                    ps.setString(4, fullName(random));
+                    ps.setString(5, "STUDENT");
+                    ps.addBatch();
+                    if (id % 10_000 == 0) ps.executeBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+        userDAO = new UserDAO();
+        // index tên như lúc server khởi động
+        userDAO.loadNameIndex();
+    }
+
+    private static String fullName(Random random) {
+        int pick = random.nextInt(100);
+        int family = 0;
+        while ((pick -= FAMILY_WEIGHT[family]) >= 0) family++;
+        StringBuilder name = new StringBuilder(FAMILY[family]).append(' ')
+                .append(MIDDLE[random.nextInt(MIDDLE.length)]).append(' ');
+        if (random.nextInt(3) == 0) name.append(MIDDLE[random.nextInt(MIDDLE.length)]).append(' ');
+        return name.append(GIVEN[random.nextInt(GIVEN.length)]).toString();
+    }
+
+    private static String email(int id) {
+        return "student" + id + "@educonnect.vn";
+    }
+
+    private int randomId() {
+        return ThreadLocalRandom.current().nextInt(1, users + 1);
+    }
+
+    private static String randomQuery() {
+        return QUERIES[ThreadLocalRandom.current().nextInt(QUERIES.length)];
+    }
+
+    /**
+     * LOGIN lặp lại của cùng user: trúng UserCache
+     */
+    @Benchmark
+    public User findByEmailCached() {
+        return userDAO.findByEmail(email(randomId() % 100 + 1));
+    }
+
+    /**
+     * Lần đầu user login: bỏ cache rồi đọc từ DB
+     */
+    @Benchmark
+    public User findByEmailUncached() {
+        String email = email(randomId());
+        UserDAO.cache().invalidate(email);
+        return userDAO.findByEmail(email);
+    }
+
+    /**
+     * SEARCH_FRIEND khi index tên chưa nạp xong: LIKE '%...%' trên DB.
+     * Cursor "s-1" = trang đầu theo nguồn SQL
+     */
+    @Benchmark
+    public UserDAO.NamePage findByNameSql() {
+        return userDAO.findByName(randomQuery(), "s-1", 20);
+    }
+
+    @Benchmark
+    public UserDAO.NamePage findByNameIndex() {
+        return userDAO.findByName(randomQuery(), null, 20);
+    }
+
+    /**
+     * Trường hợp xấu nhất trước đây của index: họ phổ biến khớp ~38% số user
+     */
+    @Benchmark
+    public UserDAO.NamePage findByNameIndexCommonFamily() {
+        return userDAO.findByName("Nguyễn", null, 20);
+    }
+
+    @Benchmark
+    public void updatePassword() {
+        userDAO.updatePassword(email(randomId()), "$2a$12$abcdefghijklmnopqrstuv0123456789ABCDEFGHIJKLMNOPQRSTV");
+    }
+}
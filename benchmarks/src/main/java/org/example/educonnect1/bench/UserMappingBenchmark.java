@@ -0,0 +1,94 @@
+package org.example.educonnect1.bench;
+
+import org.example.educonnect1.Server.utils.DB;
+import org.example.educonnect1.client.models.User;
+import org.example.educonnect1.client.models.UserSummary;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vòng map ResultSet -> model của DAO tìm kiếm: User (như findByName trước đây) so với UserSummary.
+ * Cùng một câu SELECT trên H2 nhúng nên phần chênh lệch là của vòng map; chạy với -prof gc rồi lấy
+ * hiệu gc.alloc.rate.norm giữa rows=50 và rows=1 chia cho 49 để ra số byte cấp phát mỗi dòng.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Deduconnect.db.url=jdbc:h2:mem:educonnect;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "-Deduconnect.db.user=sa",
+        "-Deduconnect.db.password="})
+public class UserMappingBenchmark {
+    private static final String SQL = "SELECT id, full_name, avatar FROM users WHERE id BETWEEN ? AND ?";
+
+    @Param({"1", "50"})
+    public int rows;
+
+    private Connection conn;
+    private PreparedStatement ps;
+
+    @Setup
+    public void setUp() throws Exception {
+        conn = DB.getConnection();
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS users (id INT PRIMARY KEY, full_name VARCHAR(255), avatar VARCHAR(512))");
+            st.execute("DELETE FROM users");
+        }
+        try (PreparedStatement insert = conn.prepareStatement("INSERT INTO users (id, full_name, avatar) VALUES (?,?,?)")) {
+            for (int id = 1; id <= 50; id++) {
+                insert.setInt(1, id);
+                insert.setString(2, "Sinh Vien " + id);
+                insert.setString(3, "https://res.cloudinary.com/educonnect/avatar/" + id + ".png");
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        ps = conn.prepareStatement(SQL);
+        ps.setInt(1, 1);
+        ps.setInt(2, rows);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        ps.close();
+        conn.close();
+    }
+
+    @Benchmark
+    public List<User> mapUser() throws Exception {
+        List<User> list = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                User u = new User();
+                u.setId(rs.getInt("id"));
+                u.setFullName(rs.getString("full_name"));
+                u.setAvatar(rs.getString("avatar"));
+                list.add(u);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Như UserDAO.findByName: cột theo chỉ số, ArrayList cấp sẵn theo kích thước trang
+     */
+    @Benchmark
+    public List<UserSummary> mapSummary() throws Exception {
+        List<UserSummary> list = new ArrayList<>(rows);
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                list.add(new UserSummary(rs.getInt(1), rs.getString(2), rs.getString(3)));
+            }
+        }
+        return list;
+    }
+}
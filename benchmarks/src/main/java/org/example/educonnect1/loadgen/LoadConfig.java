@@ -0,0 +1,144 @@
+package org.example.educonnect1.loadgen;
+
+import org.example.educonnect1.protocol.Opcode;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Kịch bản tải. Thứ tự ưu tiên: giá trị mặc định < file .properties < -Deduconnect.loadgen.* < key=value trên dòng lệnh
+ */
+final class LoadConfig {
+    private static final String PREFIX = "educonnect.loadgen.";
+    private static final Set<Opcode> ACTIONS = EnumSet.of(
+            Opcode.LOGIN, Opcode.PING, Opcode.SEARCH_FRIEND, Opcode.ADD_FRIEND, Opcode.SEND_MESSAGE);
+
+    final String host;
+    final int port;
+    final int students;         // số kết nối, mỗi kết nối là một sinh viên
+    final int firstStudent;     // sinh viên thứ i dùng email emailPattern % (firstStudent + i)
+    final String emailPattern;
+    final String password;
+    final int connectRate;      // kết nối mới mỗi giây lúc ramp-up
+    final long durationMs;
+    final long warmupMs;        // số liệu trước thời điểm này bị bỏ
+    final long thinkMs;         // thời gian nghĩ trung bình giữa hai request (phân phối mũ)
+    final long timeoutMs;
+    final long reportIntervalMs;
+    final int reactors;
+    final String[] searchTerms; // rỗng = "Vien <số ngẫu nhiên>" khớp với tên của seed
+    final int messageLength;
+    final boolean seed;         // tạo tài khoản sinh viên trong DB trước khi chạy
+    final String reportFile;    // ghi thêm bảng kết quả dạng CSV
+
+    private final Opcode[] mix;
+    private final int[] cumulativeWeights;
+
+    private LoadConfig(Properties p) {
+        host = p.getProperty("host", "localhost");
+        port = intValue(p, "port", 2005);
+        students = intValue(p, "students", 1000);
+        firstStudent = intValue(p, "firstStudent", 1);
+        emailPattern = p.getProperty("emailPattern", "student%d@educonnect.vn");
+        password = p.getProperty("password", "123456");
+        connectRate = Math.max(1, intValue(p, "connectRate", 500));
+        durationMs = intValue(p, "durationSec", 60) * 1000L;
+        warmupMs = intValue(p, "warmupSec", 10) * 1000L;
+        thinkMs = intValue(p, "thinkMs", 1000);
+        timeoutMs = intValue(p, "timeoutMs", 30000);
+        reportIntervalMs = Math.max(1, intValue(p, "reportIntervalSec", 10)) * 1000L;
+        reactors = Math.max(1, intValue(p, "reactors", Runtime.getRuntime().availableProcessors()));
+        String terms = p.getProperty("searchTerms", "").trim();
+        searchTerms = terms.isEmpty() ? new String[0] : terms.split("\\s*,\\s*");
+        messageLength = Math.max(1, intValue(p, "messageLength", 80));
+        seed = Boolean.parseBoolean(p.getProperty("seed", "false"));
+        reportFile = p.getProperty("reportFile");
+
+        List<Opcode> actions = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        String mixValue = p.getProperty("mix", "PING:50,SEARCH_FRIEND:20,SEND_MESSAGE:25,ADD_FRIEND:3,LOGIN:2");
+        for (String entry : mixValue.split(",")) {
+            String[] parts = entry.trim().split(":");
+            Opcode op = Opcode.fromAction(parts[0].trim().toUpperCase());
+            if (op == null || !ACTIONS.contains(op)) {
+                throw new IllegalArgumentException("Unsupported action in mix: " + parts[0] + ", expected one of " + ACTIONS);
+            }
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            if (weight <= 0) continue;
+            actions.add(op);
+            weights.add(weight);
+        }
+        if (actions.isEmpty()) {
+            throw new IllegalArgumentException("Empty mix: " + mixValue);
+        }
+        mix = actions.toArray(new Opcode[0]);
+        cumulativeWeights = new int[mix.length];
+        int total = 0;
+        for (int i = 0; i < mix.length; i++) {
+            total += weights.get(i);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    static LoadConfig load(String[] args) throws IOException {
+        Properties p = new Properties();
+        for (String arg : args) {
+            if (!arg.contains("=")) {
+                try (Reader reader = Files.newBufferedReader(Path.of(arg), StandardCharsets.UTF_8)) {
+                    p.load(reader);
+                }
+            }
+        }
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(PREFIX)) {
+                p.setProperty(name.substring(PREFIX.length()), System.getProperty(name));
+            }
+        }
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                p.setProperty(arg.substring(0, eq).trim(), arg.substring(eq + 1).trim());
+            }
+        }
+        return new LoadConfig(p);
+    }
+
+    private static int intValue(Properties p, String key, int defaultValue) {
+        String value = p.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    String email(int student) {
+        return String.format(emailPattern, firstStudent + student);
+    }
+
+    Opcode nextAction(Random random) {
+        int r = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < mix.length; i++) {
+            if (r < cumulativeWeights[i]) return mix[i];
+        }
+        return mix[mix.length - 1];
+    }
+
+    Opcode[] actions() {
+        return mix.clone();
+    }
+
+    String describeMix() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < mix.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(mix[i]).append(':').append(cumulativeWeights[i] - (i == 0 ? 0 : cumulativeWeights[i - 1]));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,546 @@
+package org.example.educonnect1.loadgen;
+
+import org.example.educonnect1.Server.utils.DB;
+import org.example.educonnect1.Server.utils.PasswordHasher;
+import org.example.educonnect1.client.models.UserProfile;
+import org.example.educonnect1.protocol.Opcode;
+import org.example.educonnect1.protocol.Protocol;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Client tạo tải không giao diện. Mỗi sinh viên giả lập là một kết nối nói giao thức v3 giống SocketManager
+ * (handshake "EDUC", frame [int len][int requestId][short opcode][values]): LOGIN, rồi lặp
+ * nghĩ (phân phối mũ quanh thinkMs) -> gửi một action chọn theo mix -> chờ response.
+ * Một vài reactor (Selector) giữ toàn bộ kết nối nên chạy được hàng chục nghìn sinh viên trên một máy;
+ * think time nằm trong heap của từng reactor, không cần thread hay timer riêng cho mỗi sinh viên.
+ * Latency là thời gian từ lúc gửi tới lúc nhận response (vòng kín, mỗi kết nối một request tại một thời điểm).
+ *
+ *   java -cp benchmarks.jar org.example.educonnect1.loadgen.LoadGenerator [scenario.properties] [key=value ...]
+ */
+public class LoadGenerator {
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+    private static final long RECONNECT_DELAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long TIMEOUT_CHECK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int FRIEND_PICK_ATTEMPTS = 8;
+
+    private final LoadConfig config;
+    private final LoadStats stats;
+    private final InetSocketAddress address;
+    private final Reactor[] reactors;
+    // userId của sinh viên đã LOGIN (0 = chưa), để chọn người nhận cho SEND_MESSAGE / ADD_FRIEND
+    private final AtomicIntegerArray userIds;
+    private final String message;
+    private volatile boolean running = true;
+    private volatile String lastError;
+
+    public static void main(String[] args) throws Exception {
+        LoadConfig config = LoadConfig.load(args);
+        if (config.seed) {
+            seedStudents(config);
+        }
+        if (config.durationMs > 0) {
+            new LoadGenerator(config).run();
+        }
+    }
+
+    LoadGenerator(LoadConfig config) throws IOException {
+        this.config = config;
+        List<String> names = new ArrayList<>();
+        for (Opcode op : config.actions()) {
+            names.add(op.name());
+        }
+        if (!names.contains(Opcode.LOGIN.name())) {
+            names.add(0, Opcode.LOGIN.name()); // luôn LOGIN ngay sau khi kết nối
+        }
+        stats = new LoadStats(names);
+        address = new InetSocketAddress(config.host, config.port);
+        userIds = new AtomicIntegerArray(config.students);
+        StringBuilder text = new StringBuilder("Load test message");
+        while (text.length() < config.messageLength) {
+            text.append(" lorem ipsum");
+        }
+        message = text.substring(0, config.messageLength);
+        reactors = new Reactor[Math.min(config.reactors, config.students)];
+        for (int i = 0; i < reactors.length; i++) {
+            reactors[i] = new Reactor();
+        }
+    }
+
+    void run() throws InterruptedException {
+        System.out.println("→ " + config.students + " students -> " + config.host + ":" + config.port
+                + ", mix " + config.describeMix() + ", think " + config.thinkMs + "ms, " + config.connectRate
+                + " connects/s, " + config.durationMs / 1000 + "s (warmup " + config.warmupMs / 1000 + "s)");
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < reactors.length; i++) {
+            Thread t = new Thread(reactors[i], "loadgen-reactor-" + i);
+            t.start();
+            threads.add(t);
+        }
+
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(config.durationMs);
+        long measureStart = start;
+        boolean warmedUp = config.warmupMs == 0;
+        long lastReport = start;
+        long lastResponses = 0;
+        int opened = 0;
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(now - start);
+            int target = (int) Math.min(config.students, elapsedMs * config.connectRate / 1000 + 1);
+            while (opened < target) {
+                reactors[opened % reactors.length].open(new Student(opened));
+                opened++;
+            }
+            if (!warmedUp && elapsedMs >= config.warmupMs) {
+                stats.reset();
+                measureStart = now;
+                warmedUp = true;
+                System.out.println("⏱ Warmup done, measuring from now");
+            }
+            if (now - lastReport >= TimeUnit.MILLISECONDS.toNanos(config.reportIntervalMs)) {
+                long responses = stats.responses.sum();
+                System.out.printf("⏱ %4ds  connected %d/%d  %.0f req/s%s%n", elapsedMs / 1000, stats.connected.get(),
+                        config.students, (responses - lastResponses) / ((now - lastReport) / 1e9),
+                        lastError == null ? "" : "  last error: " + lastError);
+                lastReport = now;
+                lastResponses = responses;
+            }
+            Thread.sleep(10);
+        }
+
+        running = false;
+        for (Reactor reactor : reactors) {
+            reactor.selector.wakeup();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        double seconds = (System.nanoTime() - measureStart) / 1e9;
+        System.out.println();
+        System.out.printf("Results over %.1fs (after warmup), %d students:%n", seconds, config.students);
+        System.out.print(stats.report(seconds));
+        if (config.reportFile != null) {
+            try {
+                stats.writeCsv(Path.of(config.reportFile), seconds);
+                System.out.println("✓ Report written to " + config.reportFile);
+            } catch (IOException e) {
+                System.err.println("✗ Could not write report: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Tạo (nếu chưa có) tài khoản đã verify cho các sinh viên của kịch bản, tất cả dùng chung một password.
+     * Chạy trước khi khởi động server để SEARCH_FRIEND thấy các tên này trong name index.
+     */
+    static void seedStudents(LoadConfig config) {
+        // Hash một lần với cost hiện tại của server để LOGIN không kích hoạt rehash
+        String hash = BCrypt.hashpw(config.password, BCrypt.gensalt(PasswordHasher.COST));
+        String sql = "INSERT IGNORE INTO users (email, password, full_name, is_verified) VALUES (?,?,?,TRUE)";
+        try (Connection conn = DB.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < config.students; i++) {
+                ps.setString(1, config.email(i));
+                ps.setString(2, hash);
+                ps.setString(3, "Sinh Vien " + (config.firstStudent + i));
+                ps.addBatch();
+                if ((i + 1) % 1000 == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+            conn.commit();
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            throw new RuntimeException("Seeding students failed", e);
+        } finally {
+            DB.pool().shutdown();
+        }
+        System.out.println("✓ Seeded " + config.students + " students (" + config.email(0) + " ...)");
+    }
+
+    private class Reactor implements Runnable {
+        private final Selector selector;
+        private final Queue<Student> pendingOpens = new ConcurrentLinkedQueue<>();
+        // Sinh viên đang nghĩ hoặc chờ kết nối lại, sắp theo wakeAt
+        private final PriorityQueue<Student> timers = new PriorityQueue<>((a, b) -> Long.compare(a.wakeAt, b.wakeAt));
+        private final List<Student> students = new ArrayList<>();
+        private long nextTimeoutCheck;
+
+        Reactor() throws IOException {
+            selector = Selector.open();
+        }
+
+        void open(Student student) {
+            pendingOpens.add(student);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    long now = System.nanoTime();
+                    runTimers(now);
+                    if (now >= nextTimeoutCheck) {
+                        for (Student student : students) student.checkTimeout(now);
+                        nextTimeoutCheck = now + TIMEOUT_CHECK_NANOS;
+                    }
+                    long waitMs = timers.isEmpty() ? 1000
+                            : Math.max(1, Math.min(1000, TimeUnit.NANOSECONDS.toMillis(timers.peek().wakeAt - now) + 1));
+                    selector.select(waitMs);
+                    processOpens();
+
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        Student student = (Student) key.attachment();
+                        if (!key.isValid()) continue;
+                        if (key.isConnectable()) student.finishConnect();
+                        if (key.isValid() && key.isReadable()) student.onReadable();
+                        if (key.isValid() && key.isWritable()) student.flush();
+                    }
+                } catch (IOException e) {
+                    System.err.println("Reactor error: " + e.getMessage());
+                }
+            }
+            for (Student student : students) {
+                student.disconnect();
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+
+        private void runTimers(long now) {
+            Student student;
+            while ((student = timers.peek()) != null && student.wakeAt <= now) {
+                timers.poll();
+                student.onTimer();
+            }
+        }
+
+        private void processOpens() {
+            Student student;
+            while ((student = pendingOpens.poll()) != null) {
+                student.reactor = this;
+                students.add(student);
+                student.open();
+            }
+        }
+    }
+
+    private enum State {CONNECTING, HANDSHAKE, IN_FLIGHT, THINKING, RECONNECT, CLOSED}
+
+    private class Student {
+        private final int index;
+        private Reactor reactor;
+        private SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private ByteBuffer pendingWrite;
+        private State state = State.CLOSED;
+        private boolean connected;
+        private long connectStartedAt;
+        private int nextRequestId = 1;
+        // Request đang chờ response
+        private int requestId;
+        private String action;
+        private long sentAt;
+        private long wakeAt;
+        private int userId;
+
+        Student(int index) {
+            this.index = index;
+        }
+
+        void open() {
+            state = State.CONNECTING;
+            connectStartedAt = System.nanoTime();
+            readBuffer.clear();
+            pendingWrite = null;
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                key = channel.register(reactor.selector, SelectionKey.OP_CONNECT, this);
+                if (channel.connect(address)) {
+                    finishConnect();
+                }
+            } catch (IOException e) {
+                failed(e);
+            }
+        }
+
+        void finishConnect() {
+            try {
+                if (!channel.finishConnect()) return;
+                key.interestOps(SelectionKey.OP_READ);
+                state = State.HANDSHAKE;
+                ByteBuffer handshake = ByteBuffer.allocate(Protocol.HANDSHAKE_SIZE);
+                handshake.putInt(Protocol.MAGIC).put((byte) Protocol.VERSION_MULTIPLEXED).flip();
+                write(handshake);
+            } catch (IOException e) {
+                failed(e);
+            }
+        }
+
+        void onReadable() {
+            try {
+                if (channel.read(readBuffer) < 0) {
+                    throw new IOException("Server closed the connection");
+                }
+                readBuffer.flip();
+                if (state == State.HANDSHAKE && !readHandshake()) {
+                    readBuffer.compact();
+                    return;
+                }
+                readFrames();
+                readBuffer.compact();
+            } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                failed(e);
+            }
+        }
+
+        private boolean readHandshake() throws IOException {
+            if (readBuffer.remaining() < Protocol.HANDSHAKE_SIZE) return false;
+            int magic = readBuffer.getInt();
+            int version = readBuffer.get() & 0xFF;
+            if (magic != Protocol.MAGIC) {
+                throw new IOException("Bad handshake from server");
+            }
+            if (version != Protocol.VERSION_MULTIPLEXED) {
+                throw new IOException("Server negotiated protocol v" + version + ", load generator needs v"
+                        + Protocol.VERSION_MULTIPLEXED);
+            }
+            stats.action(LoadStats.CONNECT).record("SUCCESS", System.nanoTime() - connectStartedAt);
+            stats.connected.incrementAndGet();
+            connected = true;
+            send(Opcode.LOGIN.name(), config.email(index), config.password);
+            return true;
+        }
+
+        private void readFrames() throws IOException, ClassNotFoundException {
+            while (readBuffer.remaining() >= 4) {
+                int length = readBuffer.getInt(readBuffer.position());
+                Protocol.checkFrameLength(length);
+                if (readBuffer.remaining() < 4 + length) {
+                    if (readBuffer.capacity() < 4 + length) {
+                        ByteBuffer bigger = ByteBuffer.allocate(4 + length);
+                        bigger.put(readBuffer);
+                        bigger.flip();
+                        readBuffer = bigger;
+                    }
+                    return;
+                }
+                readBuffer.getInt();
+                byte[] payload = new byte[length];
+                readBuffer.get(payload);
+                onFrame(payload);
+            }
+        }
+
+        private void onFrame(byte[] payload) throws IOException, ClassNotFoundException {
+            int id = Protocol.responseId(payload);
+            if (id == Protocol.PUSH_REQUEST_ID) {
+                stats.pushes.increment();
+                return;
+            }
+            // Response tới sau khi request đã bị tính TIMEOUT
+            if (state != State.IN_FLIGHT || id != requestId) return;
+
+            long latency = System.nanoTime() - sentAt;
+            List<Object> values = Protocol.decodeResponse(Protocol.VERSION_MULTIPLEXED, payload);
+            Object first = values.isEmpty() ? null : values.get(0);
+            String status = first instanceof String ? (String) first : first == null ? "EMPTY" : "OK";
+            stats.action(action).record(status, latency);
+            stats.responses.increment();
+            if (Opcode.LOGIN.name().equals(action) && "SUCCESS".equals(status) && values.size() > 1) {
+                userId = ((UserProfile) values.get(1)).getId();
+                userIds.set(index, userId);
+            }
+            think();
+        }
+
+        private void think() {
+            if (!running) return;
+            state = State.THINKING;
+            wakeAt = System.nanoTime() + thinkNanos();
+            reactor.timers.add(this);
+        }
+
+        private long thinkNanos() {
+            long mean = TimeUnit.MILLISECONDS.toNanos(config.thinkMs);
+            if (mean == 0) return 0;
+            // Phân phối mũ: sinh viên không gửi đều đặn, cắt ở 10 lần trung bình
+            double u = ThreadLocalRandom.current().nextDouble();
+            return Math.min(10 * mean, (long) (-Math.log(1 - u) * mean));
+        }
+
+        void onTimer() {
+            if (!running) return;
+            if (state == State.RECONNECT) {
+                stats.reconnects.increment();
+                open();
+            } else if (state == State.THINKING) {
+                sendNext();
+            }
+        }
+
+        private void sendNext() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            // LOGIN bị BUSY/FAILED: thử lại như người dùng thật, chưa có session thì chưa làm gì khác được
+            Opcode op = userId == 0 ? Opcode.LOGIN : config.nextAction(random);
+            switch (op) {
+                case LOGIN:
+                    send(op.name(), config.email(index), config.password);
+                    break;
+                case SEARCH_FRIEND:
+                    send(op.name(), config.searchTerms.length > 0
+                            ? config.searchTerms[random.nextInt(config.searchTerms.length)]
+                            : "Vien " + (config.firstStudent + random.nextInt(config.students)));
+                    break;
+                case ADD_FRIEND:
+                case SEND_MESSAGE:
+                    int friendId = pickFriend(random);
+                    if (friendId == 0) {
+                        think(); // chưa có ai khác login xong
+                    } else if (op == Opcode.ADD_FRIEND) {
+                        send(op.name(), userId, friendId);
+                    } else {
+                        send(op.name(), userId, friendId, message);
+                    }
+                    break;
+                default:
+                    send(op.name());
+            }
+        }
+
+        private int pickFriend(ThreadLocalRandom random) {
+            for (int i = 0; i < FRIEND_PICK_ATTEMPTS; i++) {
+                int friendId = userIds.get(random.nextInt(config.students));
+                if (friendId != 0 && friendId != userId) return friendId;
+            }
+            return 0;
+        }
+
+        private void send(String action, Object... params) {
+            try {
+                requestId = nextRequestId++;
+                if (nextRequestId == Integer.MAX_VALUE) nextRequestId = 1;
+                byte[] payload = Protocol.encodeRequest(Protocol.VERSION_MULTIPLEXED, requestId, action, params);
+                ByteBuffer frame = ByteBuffer.allocate(4 + payload.length);
+                frame.putInt(payload.length).put(payload).flip();
+                state = State.IN_FLIGHT;
+                this.action = action;
+                sentAt = System.nanoTime();
+                write(frame);
+            } catch (IOException e) {
+                failed(e);
+            }
+        }
+
+        private void write(ByteBuffer buffer) {
+            pendingWrite = buffer;
+            flush();
+        }
+
+        void flush() {
+            if (pendingWrite == null) return;
+            try {
+                channel.write(pendingWrite);
+                if (pendingWrite.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                } else {
+                    pendingWrite = null;
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            } catch (IOException e) {
+                failed(e);
+            }
+        }
+
+        void checkTimeout(long now) {
+            if (state == State.IN_FLIGHT && now - sentAt > TimeUnit.MILLISECONDS.toNanos(config.timeoutMs)) {
+                stats.action(action).count("TIMEOUT");
+                think();
+            }
+        }
+
+        /**
+         * Lỗi kết nối: request đang chờ tính là CLOSED, thử kết nối lại sau một giây
+         */
+        private void failed(Exception cause) {
+            lastError = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+            if (state == State.IN_FLIGHT) {
+                stats.action(action).count("CLOSED");
+            } else if (state == State.CONNECTING || state == State.HANDSHAKE) {
+                stats.action(LoadStats.CONNECT).count("FAILED");
+            } else if (state == State.THINKING) {
+                reactor.timers.remove(this);
+            }
+            close();
+            if (running) {
+                state = State.RECONNECT;
+                wakeAt = System.nanoTime() + RECONNECT_DELAY_NANOS;
+                reactor.timers.add(this);
+            }
+        }
+
+        void disconnect() {
+            if (connected && pendingWrite == null) {
+                try {
+                    byte[] payload = Protocol.encodeRequest(Protocol.VERSION_MULTIPLEXED, 0, Opcode.DISCONNECT.name());
+                    ByteBuffer frame = ByteBuffer.allocate(4 + payload.length);
+                    frame.putInt(payload.length).put(payload).flip();
+                    channel.write(frame);
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
+            close();
+        }
+
+        private void close() {
+            state = State.CLOSED;
+            if (connected) {
+                stats.connected.decrementAndGet();
+                connected = false;
+            }
+            if (key != null) key.cancel();
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.example.educonnect1.loadgen;
+
+import org.example.educonnect1.Server.utils.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Số liệu của một lần chạy: latency và status của từng action, ghi từ các reactor không khóa
+ */
+final class LoadStats {
+    static final String CONNECT = "CONNECT"; // connect + handshake, giữ cả giai đoạn ramp-up (không bị reset)
+    // Status coi là thành công; còn lại (FAILED, BUSY, UNKNOWN_ACTION, TIMEOUT, CLOSED, ...) tính là lỗi
+    private static final Set<String> OK_STATUSES = Set.of("SUCCESS", "PONG", "OK");
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    final AtomicInteger connected = new AtomicInteger();
+    final LongAdder responses = new LongAdder();
+    final LongAdder pushes = new LongAdder();
+    final LongAdder reconnects = new LongAdder();
+    private final Map<String, Action> actions;
+
+    LoadStats(Iterable<String> names) {
+        Map<String, Action> map = new LinkedHashMap<>();
+        map.put(CONNECT, new Action());
+        for (String name : names) {
+            map.put(name, new Action());
+        }
+        actions = Collections.unmodifiableMap(map);
+    }
+
+    Action action(String name) {
+        return actions.get(name);
+    }
+
+    /**
+     * Bỏ số liệu của giai đoạn warmup
+     */
+    void reset() {
+        actions.forEach((name, action) -> {
+            if (!CONNECT.equals(name)) action.reset();
+        });
+        pushes.reset();
+        reconnects.reset();
+    }
+
+    static final class Action {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final Map<String, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        void record(String status, long nanos) {
+            latency.record(nanos);
+            count(status);
+        }
+
+        /**
+         * Request không có response (TIMEOUT, CLOSED): chỉ đếm, không tính vào latency
+         */
+        void count(String status) {
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        }
+
+        private void reset() {
+            latency.reset();
+            statuses.values().forEach(LongAdder::reset);
+        }
+
+        private long total() {
+            return statuses.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+
+        private long errors() {
+            long errors = 0;
+            for (Map.Entry<String, LongAdder> entry : statuses.entrySet()) {
+                if (!OK_STATUSES.contains(entry.getKey())) errors += entry.getValue().sum();
+            }
+            return errors;
+        }
+
+        private Map<String, Long> statusCounts() {
+            Map<String, Long> counts = new TreeMap<>();
+            statuses.forEach((status, count) -> {
+                if (count.sum() > 0) counts.put(status, count.sum());
+            });
+            return counts;
+        }
+    }
+
+    String report(double seconds) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-14s %9s %9s %8s %9s %9s %9s %9s %9s%n",
+                "action", "count", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        actions.forEach((name, action) -> {
+            LatencyHistogram.Snapshot s = action.latency.snapshot();
+            sb.append(String.format("%-14s %9d %9s %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    name, action.total(), rate(name, action, seconds), action.errors(),
+                    s.percentileMillis(50), s.percentileMillis(90), s.percentileMillis(99), s.percentileMillis(99.9),
+                    s.maxMicros() / 1000.0));
+        });
+        sb.append("statuses:\n");
+        actions.forEach((name, action) -> {
+            Map<String, Long> counts = action.statusCounts();
+            if (!counts.isEmpty()) sb.append("  ").append(name).append(' ').append(counts).append('\n');
+        });
+        sb.append(String.format("pushes received: %d (%.1f/s), reconnects: %d%n",
+                pushes.sum(), pushes.sum() / seconds, reconnects.sum()));
+        return sb.toString();
+    }
+
+    private static String rate(String name, Action action, double seconds) {
+        return CONNECT.equals(name) ? "-" : String.format(Locale.ROOT, "%.1f", action.total() / seconds);
+    }
+
+    void writeCsv(Path file, double seconds) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.println("action,count,req_per_sec,errors,mean_us,p50_us,p90_us,p99_us,p999_us,max_us");
+            actions.forEach((name, action) -> {
+                LatencyHistogram.Snapshot s = action.latency.snapshot();
+                StringBuilder line = new StringBuilder(name).append(',').append(action.total())
+                        .append(',').append(CONNECT.equals(name) ? "" : rate(name, action, seconds))
+                        .append(',').append(action.errors()).append(',').append(s.meanMicros());
+                for (double p : PERCENTILES) {
+                    line.append(',').append(s.percentileMicros(p));
+                }
+                out.println(line.append(',').append(s.maxMicros()));
+            });
+        }
+    }
+}
@@ -2,6 +2,7 @@ module org.example.educonnect1 {
     requires javafx.controls;
     requires javafx.fxml;
     requires java.sql;
+    requires java.management;
     requires jbcrypt;
     requires javax.mail.api;
     requires cloudinary.core;
@@ -9,5 +10,7 @@ module org.example.educonnect1 {
     opens org.example.educonnect1.client.controllers to javafx.fxml;
     opens org.example.educonnect1 to javafx.fxml;
     exports org.example.educonnect1;
+    // MXBean của server (ServerStatsMXBean, CommandMetrics.ActionMXBean) cho JMX
+    exports org.example.educonnect1.Server to java.management;
 }
 
@@ -0,0 +1,105 @@
+package org.example.educonnect1.Server;
+
+import org.example.educonnect1.protocol.Protocol;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Trạng thái của một kết nối: client nào, đã login user nào, và cách đẩy event xuống client
+ */
+public class ClientSession {
+    // Phiên bản giao thức của kết nối, OBJECT_STREAM cho client gửi thẳng ObjectOutputStream
+    public static final int OBJECT_STREAM = 0;
+
+    private final String clientId;
+    private final int version;
+    private final Predicate<PushFrame> pushSink;
+    private volatile int userId = -1;
+    private volatile boolean admin;
+
+    // v3: request đã nhận nhưng chưa trả lời, và những request trong đó client đã CANCEL
+    private final Set<Integer> inFlight = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> cancelled = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param pushSink xếp một frame push vào hàng đợi ghi của kết nối (false nếu bị bỏ),
+     *                 null nếu client không hỗ trợ push (version < 3)
+     */
+    ClientSession(String clientId, int version, Predicate<PushFrame> pushSink) {
+        this.clientId = clientId;
+        this.version = version;
+        this.pushSink = pushSink;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Client object stream và v1 chỉ biết class User (không có UserProfile/UserSummary):
+     * command trả về User đã bỏ các field bí mật cho những client này
+     */
+    public boolean legacyModels() {
+        return version < Protocol.VERSION_BINARY;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    /**
+     * User đang login có role ADMIN (được gọi các action quản trị như STATS)
+     */
+    public boolean isAdmin() {
+        return admin;
+    }
+
+    public void setAdmin(boolean admin) {
+        this.admin = admin;
+    }
+
+    public boolean canPush() {
+        return pushSink != null;
+    }
+
+    /**
+     * Không chặn: chỉ xếp vào hàng đợi ghi của kết nối
+     */
+    boolean push(PushFrame frame) {
+        return pushSink != null && pushSink.test(frame);
+    }
+
+    void begin(int requestId) {
+        inFlight.add(requestId);
+    }
+
+    /**
+     * Request đã trả lời (hoặc bị bỏ) thì CANCEL đến sau không còn tác dụng
+     */
+    void end(int requestId) {
+        inFlight.remove(requestId);
+        cancelled.remove(requestId);
+    }
+
+    void cancel(int requestId) {
+        if (inFlight.contains(requestId)) {
+            cancelled.add(requestId);
+            // end() có thể đã chạy giữa hai dòng trên
+            if (!inFlight.contains(requestId)) cancelled.remove(requestId);
+        }
+    }
+
+    boolean isCancelled(int requestId) {
+        return cancelled.contains(requestId);
+    }
+}
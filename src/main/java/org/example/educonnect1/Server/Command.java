@@ -1,8 +1,5 @@
 package org.example.educonnect1.Server;
 
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-
 public interface Command {
-    void execute(ObjectInputStream in, ObjectOutputStream out) throws Exception;
-}
\ No newline at end of file
+    void execute(Request in, Response out) throws Exception;
+}
@@ -0,0 +1,203 @@
+package org.example.educonnect1.Server;
+
+import org.example.educonnect1.Server.utils.LatencyHistogram;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics dispatch Command theo từng action: latency thực thi, thời gian chờ worker (v3 và NIO),
+ * số lỗi (exception thoát ra khỏi Command) và số request đang chạy.
+ * Mỗi action có sẵn metrics từ lúc đăng ký nên ghi nhận trên hot path không cấp phát;
+ * action lạ dồn chung vào UNKNOWN để client gửi rác không làm phình map.
+ */
+public final class CommandMetrics {
+    static final String UNKNOWN = "UNKNOWN";
+
+    private final Map<String, Action> actions = new ConcurrentHashMap<>();
+    private final Action unknown = new Action(UNKNOWN);
+
+    CommandMetrics() {
+        actions.put(UNKNOWN, unknown);
+    }
+
+    void register(String action) {
+        actions.computeIfAbsent(action, Action::new);
+    }
+
+    Action action(String action) {
+        Action metrics = actions.get(action);
+        return metrics != null ? metrics : unknown;
+    }
+
+    int inFlight() {
+        int total = 0;
+        for (Action action : actions.values()) {
+            total += action.inFlight.get();
+        }
+        return total;
+    }
+
+    void reset() {
+        for (Action action : actions.values()) {
+            action.reset();
+        }
+    }
+
+    /**
+     * Bảng metrics (ms), bỏ qua action chưa có request nào
+     */
+    String report() {
+        StringBuilder sb = new StringBuilder(String.format("%-20s %8s %6s %6s %8s %8s %8s %8s %8s %9s%n",
+                "action", "count", "errors", "active", "p50", "p90", "p99", "p99.9", "max", "queue p99"));
+        for (Action action : new TreeMap<>(actions).values()) {
+            LatencyHistogram.Snapshot latency = action.latency.snapshot();
+            if (latency.count() == 0 && action.inFlight.get() == 0) continue;
+            sb.append(String.format("%-20s %8d %6d %6d %8.1f %8.1f %8.1f %8.1f %8.1f %9.1f%n",
+                    action.name, latency.count(), action.errors.get(), action.inFlight.get(),
+                    latency.percentileMillis(50), latency.percentileMillis(90), latency.percentileMillis(99),
+                    latency.percentileMillis(99.9), latency.maxMicros() / 1000.0,
+                    action.queueWait.snapshot().percentileMillis(99)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Mỗi action một MBean org.example.educonnect1:type=Command,name=ACTION
+     */
+    void registerMBeans(MBeanServer server) throws JMException {
+        for (Action action : actions.values()) {
+            ObjectName name = new ObjectName("org.example.educonnect1:type=Command,name=" + action.name);
+            if (!server.isRegistered(name)) server.registerMBean(action, name);
+        }
+    }
+
+    void registerMBeans() throws JMException {
+        registerMBeans(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    /**
+     * Thuộc tính JMX của một action (thời gian tính bằng ms)
+     */
+    public interface ActionMXBean {
+        long getCount();
+
+        long getErrors();
+
+        int getInFlight();
+
+        double getMeanMillis();
+
+        double getP50Millis();
+
+        double getP90Millis();
+
+        double getP99Millis();
+
+        double getP999Millis();
+
+        double getMaxMillis();
+
+        double getQueueP99Millis();
+
+        void reset();
+    }
+
+    public static final class Action implements ActionMXBean {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram queueWait = new LatencyHistogram();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private Action(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @param queuedAt lúc request được xếp vào hàng đợi worker (System.nanoTime()), 0 nếu không qua hàng đợi
+         * @return thời điểm bắt đầu, truyền lại cho end()
+         */
+        long begin(long queuedAt) {
+            long start = System.nanoTime();
+            if (queuedAt != 0) queueWait.record(start - queuedAt);
+            inFlight.incrementAndGet();
+            return start;
+        }
+
+        /**
+         * @return thời gian xử lý (ns), dùng lại cho log của request
+         */
+        long end(long start, boolean ok) {
+            long elapsed = System.nanoTime() - start;
+            latency.record(elapsed);
+            inFlight.decrementAndGet();
+            if (!ok) errors.incrementAndGet();
+            return elapsed;
+        }
+
+        @Override
+        public long getCount() {
+            return latency.snapshot().count();
+        }
+
+        @Override
+        public long getErrors() {
+            return errors.get();
+        }
+
+        @Override
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        @Override
+        public double getMeanMillis() {
+            return latency.snapshot().meanMicros() / 1000.0;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return latency.snapshot().percentileMillis(50);
+        }
+
+        @Override
+        public double getP90Millis() {
+            return latency.snapshot().percentileMillis(90);
+        }
+
+        @Override
+        public double getP99Millis() {
+            return latency.snapshot().percentileMillis(99);
+        }
+
+        @Override
+        public double getP999Millis() {
+            return latency.snapshot().percentileMillis(99.9);
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return latency.snapshot().maxMicros() / 1000.0;
+        }
+
+        @Override
+        public double getQueueP99Millis() {
+            return queueWait.snapshot().percentileMillis(99);
+        }
+
+        @Override
+        public void reset() {
+            latency.reset();
+            queueWait.reset();
+            errors.set(0);
+        }
+    }
+}
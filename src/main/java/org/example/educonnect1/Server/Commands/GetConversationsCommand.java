@@ -0,0 +1,75 @@
+package org.example.educonnect1.Server.Commands;
+
+import org.example.educonnect1.Server.Command;
+import org.example.educonnect1.Server.Request;
+import org.example.educonnect1.Server.Response;
+import org.example.educonnect1.Server.dao.ConversationDAO.InboxEntry;
+import org.example.educonnect1.Server.dao.UserDAO;
+import org.example.educonnect1.Server.utils.InboxCache;
+import org.example.educonnect1.Server.utils.UnreadCounters;
+import org.example.educonnect1.client.models.ConversationSummary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GET_CONVERSATIONS (cursor, pageSize) -> "SUCCESS", List&lt;ConversationSummary&gt;, nextCursor (null = hết) | "FAILED"
+ * Mới cập nhật trước; cursor = "updatedAt:conversationId" của dòng cuối trang trước.
+ */
+public class GetConversationsCommand implements Command {
+    static final int DEFAULT_PAGE_SIZE = 30;
+    static final int MAX_PAGE_SIZE = 100;
+
+    private UserDAO userDAO;
+    private InboxCache inboxCache;
+    private UnreadCounters unreadCounters;
+    public GetConversationsCommand(UserDAO userDAO, InboxCache inboxCache, UnreadCounters unreadCounters) {
+        this.userDAO = userDAO;
+        this.inboxCache = inboxCache;
+        this.unreadCounters = unreadCounters;
+    }
+    @Override
+    public void execute(Request in, Response out) throws Exception {
+        String cursor = (String) in.readObject();
+        Integer pageSize = (Integer) in.readObject();
+        int userId = in.session().getUserId();
+        if (userId <= 0) {
+            out.writeObject("FAILED");
+            return;
+        }
+        int size = pageSize == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+        Long afterUpdatedAt = null;
+        int afterConversationId = 0;
+        if (cursor != null) {
+            int colon = cursor.indexOf(':');
+            try {
+                afterUpdatedAt = Long.parseLong(cursor.substring(0, colon));
+                afterConversationId = Integer.parseInt(cursor.substring(colon + 1));
+            } catch (RuntimeException e) {
+                out.writeObject("FAILED");
+                return;
+            }
+        }
+
+        // Lấy dư một dòng để biết còn trang sau không
+        List<InboxEntry> entries = inboxCache.page(userId, afterUpdatedAt, afterConversationId, size + 1);
+        String nextCursor = null;
+        if (entries.size() > size) {
+            entries = entries.subList(0, size);
+            InboxEntry last = entries.get(size - 1);
+            nextCursor = last.updatedAt + ":" + last.conversationId;
+        }
+        Map<Integer, Integer> unread = unreadCounters.forUser(userId);
+        List<ConversationSummary> summaries = new ArrayList<>(entries.size());
+        for (InboxEntry entry : entries) {
+            summaries.add(new ConversationSummary(entry.conversationId,
+                    entry.peerId > 0 ? userDAO.findSummary(entry.peerId) : null,
+                    entry.lastMessageId, entry.lastSenderId, entry.lastPreview, entry.updatedAt,
+                    unread.getOrDefault(entry.conversationId, 0)));
+        }
+        out.writeObject("SUCCESS");
+        out.writeObject(summaries);
+        out.writeObject(nextCursor);
+    }
+}
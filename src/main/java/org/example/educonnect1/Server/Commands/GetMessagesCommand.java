@@ -0,0 +1,43 @@
+package org.example.educonnect1.Server.Commands;
+
+import org.example.educonnect1.Server.Command;
+import org.example.educonnect1.Server.Request;
+import org.example.educonnect1.Server.Response;
+import org.example.educonnect1.Server.dao.MessageDAO;
+import org.example.educonnect1.Server.utils.MessageWriter;
+
+/**
+ * GET_MESSAGES (conversationId, beforeId, pageSize) -> "SUCCESS", List&lt;Message&gt; (mới nhất trước), nextBefore
+ * beforeId = null lấy trang mới nhất; nextBefore = null khi đã tới tin nhắn đầu tiên.
+ */
+public class GetMessagesCommand implements Command {
+    static final int DEFAULT_PAGE_SIZE = 30;
+    static final int MAX_PAGE_SIZE = 100;
+
+    private MessageDAO messageDAO;
+    private MessageWriter messageWriter;
+    public GetMessagesCommand(MessageDAO messageDAO, MessageWriter messageWriter) {
+        this.messageDAO = messageDAO;
+        this.messageWriter = messageWriter;
+    }
+    @Override
+    public void execute(Request in, Response out) throws Exception {
+        Integer conversationId = (Integer) in.readObject();
+        Integer beforeId = (Integer) in.readObject();
+        Integer pageSize = (Integer) in.readObject();
+        int userId = in.session().getUserId();
+        if (conversationId == null || userId <= 0 || !messageDAO.isParticipant(conversationId, userId)) {
+            out.writeObject("FAILED");
+            return;
+        }
+
+        MessageDAO.HistoryPage page = messageWriter.history(conversationId, beforeId, pageSize(pageSize));
+        out.writeObject("SUCCESS");
+        out.writeObject(page.messages);
+        out.writeObject(page.nextBefore);
+    }
+
+    static int pageSize(Integer requested) {
+        return requested == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(requested, MAX_PAGE_SIZE));
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.educonnect1.Server.Commands;
+
+import org.example.educonnect1.Server.Command;
+import org.example.educonnect1.Server.PresenceRegistry;
+import org.example.educonnect1.Server.Request;
+import org.example.educonnect1.Server.Response;
+import org.example.educonnect1.Server.dao.UserDAO;
+import org.example.educonnect1.client.models.UserSummary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * GET_ONLINE_FRIENDS () -> "SUCCESS", List&lt;UserSummary&gt; | "FAILED"
+ * Đọc từ PresenceRegistry, không query DB cho từng người bạn.
+ */
+public class GetOnlineFriendsCommand implements Command {
+    private UserDAO userDAO;
+    private PresenceRegistry presence;
+    public GetOnlineFriendsCommand(UserDAO userDAO, PresenceRegistry presence) { this.userDAO = userDAO; this.presence = presence; }
+    @Override
+    public void execute(Request in, Response out) throws Exception {
+        int userId = in.session().getUserId();
+        if (userId <= 0) {
+            out.writeObject("FAILED");
+            return;
+        }
+        List<UserSummary> friends = new ArrayList<>();
+        for (int friendId : presence.onlineFriends(userId)) {
+            UserSummary summary = userDAO.findSummary(friendId);
+            if (summary != null) friends.add(summary);
+        }
+        out.writeObject("SUCCESS");
+        out.writeObject(friends);
+    }
+}
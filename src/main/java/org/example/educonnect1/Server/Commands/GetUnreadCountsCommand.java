@@ -0,0 +1,37 @@
+package org.example.educonnect1.Server.Commands;
+
+import org.example.educonnect1.Server.Command;
+import org.example.educonnect1.Server.Request;
+import org.example.educonnect1.Server.Response;
+import org.example.educonnect1.Server.utils.UnreadCounters;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GET_UNREAD_COUNTS () -> "SUCCESS", List&lt;Integer&gt; conversationIds, List&lt;Integer&gt; counts | "FAILED"
+ * Hai list song song, chỉ gồm conversation có tin chưa đọc.
+ */
+public class GetUnreadCountsCommand implements Command {
+    private UnreadCounters unreadCounters;
+    public GetUnreadCountsCommand(UnreadCounters unreadCounters) { this.unreadCounters = unreadCounters; }
+    @Override
+    public void execute(Request in, Response out) throws Exception {
+        int userId = in.session().getUserId();
+        if (userId <= 0) {
+            out.writeObject("FAILED");
+            return;
+        }
+        Map<Integer, Integer> counts = unreadCounters.forUser(userId);
+        List<Integer> conversationIds = new ArrayList<>(counts.size());
+        List<Integer> unread = new ArrayList<>(counts.size());
+        for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+            conversationIds.add(entry.getKey());
+            unread.add(entry.getValue());
+        }
+        out.writeObject("SUCCESS");
+        out.writeObject(conversationIds);
+        out.writeObject(unread);
+    }
+}
@@ -2,28 +2,46 @@ package org.example.educonnect1.Server.Commands;
 
 
 import org.example.educonnect1.Server.Command;
+import org.example.educonnect1.Server.PushService;
+import org.example.educonnect1.Server.Request;
+import org.example.educonnect1.Server.Response;
 import org.example.educonnect1.Server.dao.UserDAO;
+import org.example.educonnect1.Server.utils.PasswordHasher;
 import org.example.educonnect1.client.models.User;
-import org.mindrot.jbcrypt.BCrypt;
-
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import org.example.educonnect1.client.models.UserProfile;
 
 public class LoginCommand implements Command {
     private UserDAO userDAO;
-    public LoginCommand(UserDAO userDAO) { this.userDAO = userDAO; }
+    private PasswordHasher passwordHasher;
+    public LoginCommand(UserDAO userDAO, PasswordHasher passwordHasher) {
+        this.userDAO = userDAO;
+        this.passwordHasher = passwordHasher;
+    }
     @Override
-    public void execute(ObjectInputStream in, ObjectOutputStream out) throws Exception {
+    public void execute(Request in, Response out) throws Exception {
         String email = (String) in.readObject();
         String password = (String) in.readObject();
         User user = userDAO.findByEmail(email);
-        if(user != null && BCrypt.checkpw(password, user.getPassWord()) && user.isVerified()) {
+        boolean passwordOk;
+        try {
+            passwordOk = user != null && passwordHasher.verify(password, user.getPassWord());
+        } catch (PasswordHasher.BusyException e) {
+            out.writeObject("BUSY");
+            return;
+        }
+        if(user != null && passwordOk && user.isVerified()) {
+            if (passwordHasher.needsRehash(user.getPassWord())) {
+                passwordHasher.rehashAsync(password, hash -> userDAO.updatePassword(email, hash));
+            }
+            PushService.bind(in.session(), user.getId());
+            in.session().setAdmin("ADMIN".equalsIgnoreCase(user.getRole()));
             out.writeObject("SUCCESS");
-            out.writeObject(user);
+            UserProfile profile = UserProfile.of(user);
+            out.writeObject(in.session().legacyModels() ? profile.toUser() : profile);
         } else if(user != null && !user.isVerified()) {
             out.writeObject("NOT_VERIFIED");
         } else {
             out.writeObject("FAILED");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+package org.example.educonnect1.Server.Commands;
+
+import org.example.educonnect1.Server.Command;
+import org.example.educonnect1.Server.Request;
+import org.example.educonnect1.Server.Response;
+import org.example.educonnect1.Server.dao.MessageDAO;
+import org.example.educonnect1.Server.utils.MessageWriter;
+import org.example.educonnect1.Server.utils.UnreadCounters;
+
+/**
+ * MARK_MESSAGES_READ (conversationId, lastMessageId) -> "SUCCESS" | "FAILED"
+ * lastMessageId: id tin mới nhất client đã hiển thị; bộ đếm unread của user về 0.
+ * lastMessageId do client gửi nên bị chặn ở id tin mới nhất thật của conversation: mốc vượt quá
+ * (vd. Integer.MAX_VALUE) sẽ làm mọi tin sau này không bao giờ được tính là chưa đọc.
+ */
+public class MarkMessagesReadCommand implements Command {
+    private MessageDAO messageDAO;
+    private MessageWriter messageWriter;
+    private UnreadCounters unreadCounters;
+    public MarkMessagesReadCommand(MessageDAO messageDAO, MessageWriter messageWriter, UnreadCounters unreadCounters) {
+        this.messageDAO = messageDAO;
+        this.messageWriter = messageWriter;
+        this.unreadCounters = unreadCounters;
+    }
+    @Override
+    public void execute(Request in, Response out) throws Exception {
+        Integer conversationId = (Integer) in.readObject();
+        Integer lastMessageId = (Integer) in.readObject();
+        int userId = in.session().getUserId();
+        if (conversationId == null || lastMessageId == null || userId <= 0 || !messageDAO.isParticipant(conversationId, userId)) {
+            out.writeObject("FAILED");
+            return;
+        }
+        int latest = messageWriter.latestMessageId(conversationId);
+        unreadCounters.markRead(userId, conversationId, Math.min(lastMessageId, latest));
+        out.writeObject("SUCCESS");
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.educonnect1.Server.Commands;
+
+import org.example.educonnect1.Server.Command;
+import org.example.educonnect1.Server.Request;
+import org.example.educonnect1.Server.Response;
+import org.example.educonnect1.Server.dao.MessageDAO;
+import org.example.educonnect1.Server.utils.MessageWriter;
+
+import java.util.ArrayList;
+
+/**
+ * OPEN_CONVERSATION (friendId, pageSize) -> "SUCCESS", conversationId, List&lt;Message&gt;, nextBefore
+ * Mở chat với một người bạn trong một lượt: conversation 1-1 kèm trang mới nhất.
+ * Chưa từng nhắn tin thì conversationId = null (conversation được tạo ở tin nhắn đầu tiên).
+ */
+public class OpenConversationCommand implements Command {
+    private MessageDAO messageDAO;
+    private MessageWriter messageWriter;
+    public OpenConversationCommand(MessageDAO messageDAO, MessageWriter messageWriter) {
+        this.messageDAO = messageDAO;
+        this.messageWriter = messageWriter;
+    }
+    @Override
+    public void execute(Request in, Response out) throws Exception {
+        Integer friendId = (Integer) in.readObject();
+        Integer pageSize = (Integer) in.readObject();
+        int userId = in.session().getUserId();
+        if (friendId == null || userId <= 0 || friendId == userId) {
+            out.writeObject("FAILED");
+            return;
+        }
+
+        Integer conversationId = messageDAO.findDirectConversation(userId, friendId);
+        out.writeObject("SUCCESS");
+        out.writeObject(conversationId);
+        if (conversationId == null) {
+            out.writeObject(new ArrayList<>());
+            out.writeObject(null);
+            return;
+        }
+        MessageDAO.HistoryPage page = messageWriter.history(conversationId, null, GetMessagesCommand.pageSize(pageSize));
+        out.writeObject(page.messages);
+        out.writeObject(page.nextBefore);
+    }
+}
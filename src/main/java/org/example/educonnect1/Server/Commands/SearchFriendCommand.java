@@ -1,20 +1,34 @@
 package org.example.educonnect1.Server.Commands;
 
 import org.example.educonnect1.Server.Command;
+import org.example.educonnect1.Server.Request;
+import org.example.educonnect1.Server.Response;
 import org.example.educonnect1.Server.dao.UserDAO;
 import org.example.educonnect1.client.models.User;
+import org.example.educonnect1.client.models.UserSummary;
 
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.List;
 
 public class SearchFriendCommand implements Command {
+    // Client cũ nhận cả danh sách trong một response nên giới hạn số dòng ở server
+    static final int MAX_RESULTS = 200;
+
     private UserDAO userDAO;
     public SearchFriendCommand(UserDAO userDAO) { this.userDAO = userDAO; }
     @Override
-    public void execute(ObjectInputStream in, ObjectOutputStream out) throws Exception {
+    public void execute(Request in, Response out) throws Exception {
         String name=(String) in.readObject();
-        List<User> user=userDAO.findByName(name);
+        List<UserSummary> user=userDAO.findByName(name, null, MAX_RESULTS).users;
+        if (in.session().legacyModels()) {
+            // Client object stream / v1 đọc List<User>
+            List<User> users = new ArrayList<>(user.size());
+            for (UserSummary summary : user) {
+                users.add(summary.toUser());
+            }
+            out.writeObject(users);
+            return;
+        }
         out.writeObject(user);
         // Implementation for searching friends goes here
     }
@@ -0,0 +1,27 @@
+package org.example.educonnect1.Server.Commands;
+
+import org.example.educonnect1.Server.Command;
+import org.example.educonnect1.Server.Request;
+import org.example.educonnect1.Server.Response;
+import org.example.educonnect1.Server.dao.UserDAO;
+
+/**
+ * SEARCH_FRIEND_PAGE (query, cursor, pageSize) -> List&lt;UserSummary&gt;, nextCursor (null = hết)
+ */
+public class SearchFriendPageCommand implements Command {
+    static final int MAX_PAGE_SIZE = 50;
+
+    private UserDAO userDAO;
+    public SearchFriendPageCommand(UserDAO userDAO) { this.userDAO = userDAO; }
+    @Override
+    public void execute(Request in, Response out) throws Exception {
+        String name = (String) in.readObject();
+        String cursor = (String) in.readObject();
+        Integer pageSize = (Integer) in.readObject();
+        int size = pageSize == null ? MAX_PAGE_SIZE : Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+
+        UserDAO.NamePage page = userDAO.findByName(name, cursor, size);
+        out.writeObject(page.users);
+        out.writeObject(page.nextCursor);
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.educonnect1.Server.Commands;
+
+import org.example.educonnect1.Server.Command;
+import org.example.educonnect1.Server.Request;
+import org.example.educonnect1.Server.Response;
+import org.example.educonnect1.Server.dao.MessageDAO;
+import org.example.educonnect1.Server.utils.MessageWriter;
+
+/**
+ * SEND_GROUP_MESSAGE (conversationId, content) -> như SEND_MESSAGE
+ * Gửi vào một conversation có sẵn (nhóm chat), người gửi phải là participant.
+ * Tin nhắn đi cùng pipeline với chat 1-1: journal, flush theo lô, fan-out tới mọi participant còn lại.
+ */
+public class SendGroupMessageCommand implements Command {
+    private MessageDAO messageDAO;
+    private MessageWriter messageWriter;
+    public SendGroupMessageCommand(MessageDAO messageDAO, MessageWriter messageWriter) {
+        this.messageDAO = messageDAO;
+        this.messageWriter = messageWriter;
+    }
+    @Override
+    public void execute(Request in, Response out) throws Exception {
+        Integer conversationId = (Integer) in.readObject();
+        String content = (String) in.readObject();
+        int userId = in.session().getUserId();
+        if (conversationId == null || userId <= 0 || !SendMessageCommand.validContent(content)
+                || !messageDAO.isParticipant(conversationId, userId)) {
+            out.writeObject("FAILED");
+            return;
+        }
+        SendMessageCommand.send(messageDAO, messageWriter, out, conversationId, userId, content);
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.educonnect1.Server.Commands;
+
+import org.example.educonnect1.Server.Command;
+import org.example.educonnect1.Server.PushService;
+import org.example.educonnect1.Server.Request;
+import org.example.educonnect1.Server.Response;
+import org.example.educonnect1.Server.dao.MessageDAO;
+import org.example.educonnect1.Server.utils.MessageWriter;
+import org.example.educonnect1.protocol.Opcode;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * SEND_MESSAGE (userId, friendId, content) -> "SUCCESS", messageId, conversationId | "PENDING", conversationId
+ * | "BUSY" | "FAILED"
+ * Trả lời ngay khi tin nhắn đã nằm trong journal, MessageWriter ghi vào DB theo lô ở nền.
+ * BUSY/FAILED: tin nhắn chắc chắn không được lưu, client có thể gửi lại.
+ * PENDING: journal chậm, tin nhắn đã nhận và có thể vẫn được lưu; client KHÔNG gửi lại (sẽ thành hai tin),
+ * khi ghi xong server đẩy EVENT_NEW_MESSAGE cho mọi participant, kể cả người gửi.
+ */
+public class SendMessageCommand implements Command {
+    static final int MAX_CONTENT_LENGTH = 4000;
+    private static final long JOURNAL_TIMEOUT_SECONDS = 5;
+    private static final int NO_USER = -1;
+
+    private MessageDAO messageDAO;
+    private MessageWriter messageWriter;
+    public SendMessageCommand(MessageDAO messageDAO, MessageWriter messageWriter) {
+        this.messageDAO = messageDAO;
+        this.messageWriter = messageWriter;
+    }
+    @Override
+    public void execute(Request in, Response out) throws Exception {
+        Integer userId = (Integer) in.readObject();
+        Integer friendId = (Integer) in.readObject();
+        String content = (String) in.readObject();
+        // Chỉ gửi được với tư cách user đã LOGIN trên kết nối này
+        if (userId == null || friendId == null || userId != in.session().getUserId() || friendId.equals(userId)
+                || !validContent(content)) {
+            out.writeObject("FAILED");
+            return;
+        }
+
+        int conversationId = messageDAO.getOrCreateConversation(userId, friendId);
+        send(messageDAO, messageWriter, out, conversationId, userId, content);
+    }
+
+    /**
+     * Ghi tin nhắn vào journal, trả lời người gửi và đẩy EVENT_NEW_MESSAGE cho các participant khác
+     * (dùng chung với SEND_GROUP_MESSAGE)
+     */
+    static void send(MessageDAO messageDAO, MessageWriter messageWriter, Response out,
+                     int conversationId, int userId, String content) throws Exception {
+        CompletableFuture<MessageDAO.NewMessage> journaled;
+        try {
+            journaled = messageWriter.submit(conversationId, userId, content);
+        } catch (MessageWriter.BusyException e) {
+            out.writeObject("BUSY");
+            return;
+        }
+        MessageDAO.NewMessage message;
+        try {
+            message = journaled.get(JOURNAL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            // Journal chậm: tin nhắn vẫn có thể được ghi sau đó nên không trả BUSY (client sẽ gửi lại thành tin trùng).
+            // Ghi xong thì người gửi nhận tin của mình qua push như các participant khác
+            out.writeObject("PENDING");
+            out.writeObject(conversationId);
+            journaled.thenAccept(m -> PushService.publishAll(messageDAO.getParticipants(conversationId), NO_USER,
+                    Opcode.EVENT_NEW_MESSAGE, conversationId, userId, m.id, content));
+            return;
+        } catch (ExecutionException e) {
+            // Ghi journal lỗi (IOException), tin nhắn không được lưu
+            out.writeObject("FAILED");
+            return;
+        }
+        out.writeObject("SUCCESS");
+        out.writeObject(message.id);
+        out.writeObject(conversationId);
+        PushService.publishAll(messageDAO.getParticipants(conversationId), userId,
+                Opcode.EVENT_NEW_MESSAGE, conversationId, userId, message.id, content);
+    }
+
+    static boolean validContent(String content) {
+        return content != null && !content.isBlank() && content.length() <= MAX_CONTENT_LENGTH;
+    }
+}
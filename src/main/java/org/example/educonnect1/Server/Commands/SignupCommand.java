@@ -1,22 +1,32 @@
 package org.example.educonnect1.Server.Commands;
 
 import org.example.educonnect1.Server.Command;
+import org.example.educonnect1.Server.Request;
+import org.example.educonnect1.Server.Response;
 import org.example.educonnect1.Server.dao.UserDAO;
-import org.example.educonnect1.Server.utils.EmailUtil;
+import org.example.educonnect1.Server.utils.EmailOutbox;
+import org.example.educonnect1.Server.utils.PasswordHasher;
+import org.example.educonnect1.Server.utils.VerificationExpiry;
 import org.example.educonnect1.client.models.User;
-import org.mindrot.jbcrypt.BCrypt;
 
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.time.LocalDateTime;
 import java.util.Random;
 
 public class SignupCommand implements Command {
     private UserDAO userDAO;
-    public SignupCommand(UserDAO userDAO) { this.userDAO = userDAO; }
+    private EmailOutbox emailOutbox;
+    private PasswordHasher passwordHasher;
+    private VerificationExpiry verificationExpiry;
+    public SignupCommand(UserDAO userDAO, EmailOutbox emailOutbox, PasswordHasher passwordHasher,
+                         VerificationExpiry verificationExpiry) {
+        this.userDAO = userDAO;
+        this.emailOutbox = emailOutbox;
+        this.passwordHasher = passwordHasher;
+        this.verificationExpiry = verificationExpiry;
+    }
 
     @Override
-    public void execute(ObjectInputStream in, ObjectOutputStream out) throws Exception {
+    public void execute(Request in, Response out) throws Exception {
         String name = (String) in.readObject();
         String email = (String) in.readObject();
         String password = (String) in.readObject();
@@ -35,7 +45,12 @@ public class SignupCommand implements Command {
             User user = new User();
             user.setFullName(name);
             user.setEmail(email);
-            user.setPassword(BCrypt.hashpw(password, BCrypt.gensalt(12)));
+            try {
+                user.setPassword(passwordHasher.hash(password));
+            } catch (PasswordHasher.BusyException e) {
+                out.writeObject("BUSY");
+                return;
+            }
             user.setVerified(false);
             user.setVerificationCode(code);
             user.setVerificationExpiry(expiry);
@@ -48,7 +63,8 @@ public class SignupCommand implements Command {
             }
         }
 
-        EmailUtil.sendEmail(email, "EduConnect - Verify your account",
+        verificationExpiry.track(email, expiry);
+        emailOutbox.enqueue(email, "EduConnect - Verify your account",
                 "Your verification code is: " + code);
     }
 
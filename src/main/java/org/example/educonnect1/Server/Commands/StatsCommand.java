@@ -0,0 +1,23 @@
+package org.example.educonnect1.Server.Commands;
+
+import org.example.educonnect1.Server.Command;
+import org.example.educonnect1.Server.Request;
+import org.example.educonnect1.Server.Response;
+import org.example.educonnect1.Server.ServerStats;
+
+/**
+ * STATS () -> "SUCCESS", String báo cáo | "FORBIDDEN" (chưa login bằng tài khoản role ADMIN)
+ */
+public class StatsCommand implements Command {
+    private ServerStats serverStats;
+    public StatsCommand(ServerStats serverStats) { this.serverStats = serverStats; }
+    @Override
+    public void execute(Request in, Response out) throws Exception {
+        if (!in.session().isAdmin()) {
+            out.writeObject("FORBIDDEN");
+            return;
+        }
+        out.writeObject("SUCCESS");
+        out.writeObject(serverStats.report());
+    }
+}
@@ -1,18 +1,21 @@
 package org.example.educonnect1.Server.Commands;
 
 import org.example.educonnect1.Server.Command;
+import org.example.educonnect1.Server.Request;
+import org.example.educonnect1.Server.Response;
 import org.example.educonnect1.Server.dao.UserDAO;
+import org.example.educonnect1.Server.utils.VerificationExpiry;
 import org.example.educonnect1.client.models.User;
 
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.time.LocalDateTime;
 
 public class VerifyCommand implements Command {
     private UserDAO userDAO;
-    public VerifyCommand(UserDAO userDAO) { this.userDAO = userDAO; }
+    private VerificationExpiry verificationExpiry;
+    public VerifyCommand(UserDAO userDAO, VerificationExpiry verificationExpiry) { this.userDAO = userDAO; this.verificationExpiry = verificationExpiry; }
 
     @Override
-    public void execute(ObjectInputStream in, ObjectOutputStream out) throws Exception {
+    public void execute(Request in, Response out) throws Exception {
         String email = (String) in.readObject();
         String code = (String) in.readObject();
         User user = userDAO.findByEmail(email);
@@ -22,8 +25,20 @@ public class VerifyCommand implements Command {
             return;
         }
 
+        // Đã xác thực thì mã cũ hết hạn cũng không sao, kiểm tra trước khi xét hạn
+        if(user.isVerified()) {
+            out.writeObject("ALREADY_VERIFIED");
+            return;
+        }
+
+        if(user.getVerificationExpiry() != null && user.getVerificationExpiry().isBefore(LocalDateTime.now())) {
+            out.writeObject("CODE_EXPIRED");
+            return;
+        }
+
         if(code.equals(user.getVerificationCode())) {
             userDAO.markVerified(email);
+            verificationExpiry.verified(email);
             out.writeObject("SUCCESS");
         } else {
             out.writeObject("INVALID_CODE");
@@ -0,0 +1,50 @@
+package org.example.educonnect1.Server;
+
+import org.example.educonnect1.Server.utils.TimingWheel;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hạn heartbeat của một kết nối: không nhận được frame/request nào trong IDLE_TIMEOUT_MS thì gọi onIdle.
+ * Mỗi frame chỉ ghi lại thời điểm (touch), không hủy/đặt lại timer; timer tới hạn mà kết nối vẫn còn
+ * hoạt động thì tự đặt lại cho phần thời gian còn thiếu.
+ */
+final class IdleTimeout implements Runnable {
+    static final long IDLE_TIMEOUT_MS = Long.getLong("educonnect.idleTimeoutMs", 5 * 60_000);
+    private static final long IDLE_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(IDLE_TIMEOUT_MS);
+
+    private final Runnable onIdle;
+    private volatile long lastActivity = System.nanoTime();
+    private volatile TimingWheel.Timeout timeout;
+    private volatile boolean stopped;
+
+    IdleTimeout(Runnable onIdle) {
+        this.onIdle = onIdle;
+        timeout = TimingWheel.shared().schedule(this, IDLE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    void touch() {
+        lastActivity = System.nanoTime();
+    }
+
+    /**
+     * Kết nối đã đóng
+     */
+    void stop() {
+        stopped = true;
+        timeout.cancel();
+    }
+
+    @Override
+    public void run() {
+        if (stopped) return;
+        long idle = System.nanoTime() - lastActivity;
+        if (idle >= IDLE_TIMEOUT_NANOS) {
+            onIdle.run();
+            return;
+        }
+        timeout = TimingWheel.shared().schedule(this, IDLE_TIMEOUT_NANOS - idle, TimeUnit.NANOSECONDS);
+        // stop() có thể đã chạy trên timer cũ
+        if (stopped) timeout.cancel();
+    }
+}
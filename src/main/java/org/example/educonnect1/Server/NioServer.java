@@ -0,0 +1,498 @@
+package org.example.educonnect1.Server;
+
+import org.example.educonnect1.logging.Log;
+import org.example.educonnect1.protocol.Protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Engine non-blocking: vài I/O thread (mỗi thread một Selector) giữ hàng nghìn kết nối,
+ * frame hoàn chỉnh mới được đẩy sang worker pool để chạy Command.
+ * Client cũ dùng object stream được chuyển sang ClientHandler blocking.
+ */
+class NioServer {
+    private static final Log LOG = Log.get("server");
+    private static final int IO_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+    // Gom các frame đang chờ thành một lần gathering write tối đa cỡ này
+    private static final int MAX_WRITE_BATCH = 64 * 1024;
+    private static final int MAX_WRITE_BUFFERS = 256;
+
+    private final int port;
+    private final ExecutorService workers;
+    private final ExecutorService legacyPool = Executors.newCachedThreadPool();
+    private final Reactor[] reactors = new Reactor[IO_THREADS];
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running = true;
+
+    NioServer(int port, ExecutorService workers) {
+        this.port = port;
+        this.workers = workers;
+    }
+
+    /**
+     * Bind và chạy vòng accept trên thread hiện tại
+     */
+    void run() throws IOException {
+        for (int i = 0; i < reactors.length; i++) {
+            reactors[i] = new Reactor();
+            Thread t = new Thread(reactors[i], "nio-reactor-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        LOG.info("NIO engine started").with("ioThreads", IO_THREADS).with("port", port).log();
+
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                String clientId = channel.socket().getInetAddress().getHostAddress() + ":" + channel.socket().getPort();
+                reactors[next].register(new NioConnection(channel, clientId, reactors[next]));
+                next = (next + 1) % reactors.length;
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (IOException e) {
+                if (running) {
+                    LOG.warn("Error accepting client").error(e).log();
+                }
+            }
+        }
+    }
+
+    void stop() {
+        running = false;
+        try {
+            if (serverChannel != null) serverChannel.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+        for (Reactor reactor : reactors) {
+            if (reactor != null) reactor.selector.wakeup();
+        }
+        legacyPool.shutdownNow();
+    }
+
+    /**
+     * Một I/O thread: chỉ thread này được đụng tới SelectionKey của các kết nối nó quản lý
+     */
+    private class Reactor implements Runnable {
+        private final Selector selector;
+        private final Queue<NioConnection> pendingRegistrations = new ConcurrentLinkedQueue<>();
+        private final Queue<NioConnection> pendingWrites = new ConcurrentLinkedQueue<>();
+        private final Queue<NioConnection> pendingResumes = new ConcurrentLinkedQueue<>();
+        private final List<NioConnection> pendingHandoffs = new ArrayList<>();
+
+        Reactor() throws IOException {
+            selector = Selector.open();
+        }
+
+        void register(NioConnection connection) {
+            pendingRegistrations.add(connection);
+            selector.wakeup();
+        }
+
+        void requestWrite(NioConnection connection) {
+            pendingWrites.add(connection);
+            selector.wakeup();
+        }
+
+        void requestResume(NioConnection connection) {
+            pendingResumes.add(connection);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select();
+                    processRegistrations();
+                    processWrites();
+                    processResumes();
+
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        NioConnection connection = (NioConnection) key.attachment();
+                        if (!key.isValid()) {
+                            connection.close();
+                            continue;
+                        }
+                        if (key.isReadable()) connection.onReadable();
+                        if (key.isValid() && key.isWritable()) connection.flush();
+                    }
+
+                    processHandoffs();
+                } catch (IOException e) {
+                    LOG.warn("Reactor error").error(e).log();
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+
+        private void processRegistrations() {
+            NioConnection connection;
+            while ((connection = pendingRegistrations.poll()) != null) {
+                try {
+                    connection.key = connection.channel.register(selector, SelectionKey.OP_READ, connection);
+                    TCPServer.registerClient(connection.clientId, connection);
+                } catch (ClosedChannelException e) {
+                    connection.close();
+                }
+            }
+        }
+
+        private void processWrites() {
+            NioConnection connection;
+            while ((connection = pendingWrites.poll()) != null) {
+                if (connection.key != null && connection.key.isValid()) {
+                    connection.flush();
+                }
+            }
+        }
+
+        private void processResumes() {
+            NioConnection connection;
+            while ((connection = pendingResumes.poll()) != null) {
+                if (connection.key != null && connection.key.isValid()) {
+                    connection.resumeReading();
+                }
+            }
+        }
+
+        /**
+         * Key phải được deregister khỏi selector trước khi chuyển channel về blocking
+         */
+        private void processHandoffs() throws IOException {
+            if (pendingHandoffs.isEmpty()) return;
+            selector.selectNow();
+            for (NioConnection connection : pendingHandoffs) {
+                try {
+                    connection.channel.configureBlocking(true);
+                    InputStream in = new SequenceInputStream(
+                            new ByteArrayInputStream(connection.handoffPrefix),
+                            connection.channel.socket().getInputStream());
+                    TCPServer.ClientHandler handler = new TCPServer.ClientHandler(
+                            connection.channel.socket(), connection.clientId, in);
+                    TCPServer.registerClient(connection.clientId, handler);
+                    legacyPool.submit(handler);
+                } catch (IOException e) {
+                    connection.close();
+                }
+            }
+            pendingHandoffs.clear();
+        }
+    }
+
+    /**
+     * Trạng thái của một kết nối non-blocking
+     */
+    private class NioConnection implements Closeable {
+        private final SocketChannel channel;
+        private final String clientId;
+        private final Reactor reactor;
+        private final IdleTimeout idleTimeout;
+        private SelectionKey key;
+
+        private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private boolean handshakeDone = false;
+        private volatile int version;
+        private volatile ClientSession session;
+        private byte[] handoffPrefix;
+        // Chỉ reactor thread: đủ MAX_PENDING_RESPONSES request chưa có response, bỏ OP_READ tới khi outbound vơi
+        private boolean readPaused;
+
+        private final OutboundQueue outbound;
+        // Batch đang ghi dở, chỉ reactor thread: push là view của PushFrame dùng chung, response là header + payload
+        private final List<OutboundQueue.Frame> writingFrames = new ArrayList<>();
+        private ByteBuffer[] writing = new ByteBuffer[16];
+        private int writingOffset;
+        private int writingCount;
+        private volatile boolean closeAfterFlush = false;
+
+        // v1/v2: request của cùng một kết nối được xử lý tuần tự vì client đọc response theo thứ tự.
+        // v3 có requestId nên mỗi request chạy độc lập trên worker.
+        private final ArrayDeque<byte[]> inbox = new ArrayDeque<>();
+        private boolean processing = false;
+        private long queuedAt; // lúc processNext được xếp vào worker pool, giữ lock inbox
+
+        NioConnection(SocketChannel channel, String clientId, Reactor reactor) {
+            this.channel = channel;
+            this.clientId = clientId;
+            this.reactor = reactor;
+            this.idleTimeout = new IdleTimeout(this::closeIdle);
+            this.outbound = new OutboundQueue(clientId, () -> reactor.requestWrite(this), this::close,
+                    () -> reactor.requestResume(this));
+        }
+
+        void onReadable() {
+            try {
+                if (channel.read(readBuffer) < 0) {
+                    close();
+                    return;
+                }
+                idleTimeout.touch();
+                readBuffer.flip();
+                if (!handshakeDone && !readHandshake()) {
+                    readBuffer.compact();
+                    return;
+                }
+                if (handoffPrefix != null) return;
+                readFrames();
+                readBuffer.compact();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        /**
+         * @return true nếu handshake xong (hoặc đã chuyển sang legacy), false nếu cần thêm dữ liệu
+         */
+        private boolean readHandshake() throws IOException {
+            if (readBuffer.remaining() >= 2
+                    && Protocol.isObjectStreamHeader(readBuffer.get(0) & 0xFF, readBuffer.get(1) & 0xFF)) {
+                handoffPrefix = new byte[readBuffer.remaining()];
+                readBuffer.get(handoffPrefix);
+                key.cancel();
+                idleTimeout.stop(); // ClientHandler tự theo dõi idle
+                TCPServer.unregisterClient(clientId);
+                reactor.pendingHandoffs.add(this);
+                return true;
+            }
+            if (readBuffer.remaining() < Protocol.HANDSHAKE_SIZE) return false;
+
+            int magic = readBuffer.getInt();
+            int clientVersion = readBuffer.get() & 0xFF;
+            if (magic != Protocol.MAGIC) {
+                throw new IOException("Bad handshake from " + clientId);
+            }
+            version = Protocol.negotiate(clientVersion);
+            session = new ClientSession(clientId, version, version >= Protocol.VERSION_MULTIPLEXED ? outbound::offerPush : null);
+            ByteBuffer reply = ByteBuffer.allocate(Protocol.HANDSHAKE_SIZE);
+            reply.putInt(Protocol.MAGIC).put((byte) version).flip();
+            addWriting(reply);
+            flush();
+            handshakeDone = true;
+            LOG.info("→ NIO client connected").with("client", clientId).with("version", version).log();
+            return true;
+        }
+
+        /**
+         * Chỉ reactor thread: outbound đã vơi, xử lý các frame còn trong buffer rồi đọc socket tiếp
+         */
+        void resumeReading() {
+            readPaused = false;
+            try {
+                readBuffer.flip();
+                readFrames();
+                readBuffer.compact();
+                if (!readPaused) key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+            } catch (IOException | CancelledKeyException e) {
+                close();
+            }
+        }
+
+        private void readFrames() throws IOException {
+            while (!readPaused && readBuffer.remaining() >= 4) {
+                int length = readBuffer.getInt(readBuffer.position());
+                Protocol.checkFrameLength(length);
+                if (readBuffer.remaining() < 4 + length) {
+                    if (readBuffer.capacity() < 4 + length) {
+                        ByteBuffer bigger = ByteBuffer.allocate(4 + length);
+                        bigger.put(readBuffer);
+                        bigger.flip();
+                        readBuffer = bigger;
+                    }
+                    return;
+                }
+                readBuffer.getInt();
+                byte[] payload = new byte[length];
+                readBuffer.get(payload);
+                if (!enqueue(payload)) {
+                    // Frame còn lại nằm trong buffer, resumeReading() xử lý tiếp
+                    readPaused = true;
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                }
+            }
+        }
+
+        /**
+         * @return false nếu phải ngừng đọc cho tới khi outbound vơi bớt
+         */
+        private boolean enqueue(byte[] payload) throws IOException {
+            if (version >= Protocol.VERSION_MULTIPLEXED) {
+                if (!TCPServer.acceptFrame(payload, session)) return true;
+                boolean readable = outbound.requestAccepted();
+                long queued = System.nanoTime();
+                workers.execute(() -> process(payload, queued));
+                return readable;
+            }
+            boolean readable = outbound.requestAccepted();
+            synchronized (inbox) {
+                inbox.add(payload);
+                if (processing) return readable;
+                processing = true;
+                queuedAt = System.nanoTime();
+            }
+            workers.execute(this::processNext);
+            return readable;
+        }
+
+        /**
+         * Chạy trên worker: xử lý một request rồi nhường worker cho kết nối khác
+         */
+        private void processNext() {
+            byte[] payload;
+            long queued;
+            synchronized (inbox) {
+                payload = inbox.poll();
+                queued = queuedAt;
+            }
+            process(payload, queued);
+
+            synchronized (inbox) {
+                if (inbox.isEmpty()) {
+                    processing = false;
+                    return;
+                }
+                queuedAt = System.nanoTime();
+            }
+            workers.execute(this::processNext);
+        }
+
+        private void process(byte[] payload, long queuedAt) {
+            try {
+                byte[] response = TCPServer.dispatchFrame(payload, session, version, queuedAt);
+                if (response == null) {
+                    LOG.info("← Client requested disconnect").with("client", clientId).log();
+                    outbound.noResponse();
+                    closeAfterFlush = true;
+                    reactor.requestWrite(this);
+                } else if (response != TCPServer.NO_RESPONSE) {
+                    outbound.offerResponse(response);
+                } else {
+                    outbound.noResponse();
+                }
+            } catch (Exception e) {
+                LOG.warn("Error handling request").with("client", clientId).with("user", session.getUserId())
+                        .error(e).log();
+                outbound.noResponse();
+                closeAfterFlush = true;
+                reactor.requestWrite(this);
+            }
+        }
+
+        /**
+         * Chỉ gọi trên reactor thread: ghi hết các frame đang chờ, socket đầy thì chờ OP_WRITE
+         */
+        void flush() {
+            try {
+                while (true) {
+                    if (writingCount == 0 && !nextBatch()) {
+                        if (outbound.drained()) continue;
+                        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                        if (closeAfterFlush) close();
+                        return;
+                    }
+                    channel.write(writing, writingOffset, writingCount - writingOffset);
+                    while (writingOffset < writingCount && !writing[writingOffset].hasRemaining()) {
+                        writing[writingOffset++] = null;
+                    }
+                    if (writingOffset < writingCount) {
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    writingOffset = 0;
+                    writingCount = 0;
+                    for (OutboundQueue.Frame frame : writingFrames) {
+                        outbound.written(frame);
+                    }
+                    writingFrames.clear();
+                }
+            } catch (IOException | CancelledKeyException e) {
+                close();
+            }
+        }
+
+        /**
+         * Gom các frame đang chờ thành một gathering write, không copy payload:
+         * push ghi view của frame đã encode sẵn, response ghi length prefix rồi tới payload
+         */
+        private boolean nextBatch() {
+            OutboundQueue.Frame frame = outbound.poll();
+            if (frame == null) return false;
+            int size = 0;
+            do {
+                writingFrames.add(frame);
+                if (frame.push != null) {
+                    addWriting(frame.push.buffer());
+                    size += frame.push.size();
+                } else {
+                    addWriting(ByteBuffer.allocate(4).putInt(0, frame.payload.length));
+                    addWriting(ByteBuffer.wrap(frame.payload));
+                    size += 4 + frame.payload.length;
+                }
+            } while (size < MAX_WRITE_BATCH && writingCount < MAX_WRITE_BUFFERS - 1
+                    && (frame = outbound.poll()) != null);
+            return true;
+        }
+
+        private void addWriting(ByteBuffer buffer) {
+            if (writingCount == writing.length) {
+                writing = Arrays.copyOf(writing, writing.length * 2);
+            }
+            writing[writingCount++] = buffer;
+        }
+
+        /**
+         * Quá hạn heartbeat: đóng ngay, không chờ flush (client có thể đã ngừng đọc)
+         */
+        private void closeIdle() {
+            LOG.info("⏱ Idle timeout").with("client", clientId).log();
+            close();
+        }
+
+        @Override
+        public void close() {
+            idleTimeout.stop();
+            outbound.close();
+            if (key != null) key.cancel();
+            if (session != null) TCPServer.sessionClosed(session);
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+            if (TCPServer.unregisterClient(clientId)) {
+                LOG.info("✗ Client disconnected").with("client", clientId).with("total", TCPServer.getActiveClientCount()).log();
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package org.example.educonnect1.Server;
+
+import org.example.educonnect1.Server.utils.LatencyHistogram;
+import org.example.educonnect1.logging.Log;
+import org.example.educonnect1.protocol.Opcode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hàng đợi ghi ra của một kết nối v3: response và push xếp vào đây, writer của engine (reactor NIO,
+ * thread ghi của ClientHandler) gom các frame đang chờ vào một lần ghi + flush.
+ * - Push giới hạn MAX_QUEUED frame mỗi kết nối nên người gửi không bao giờ bị chặn vì một client chậm
+ * - Vượt giới hạn: bỏ push rồi gửi EVENT_RESYNC_REQUIRED khi hàng đợi đã vơi (resync, mặc định),
+ *   hoặc đóng kết nối (disconnect), theo -Deduconnect.push.slowConsumer
+ * - Response không được bỏ (client đang chờ) nên giới hạn ở phía đọc: request đã nhận mà response chưa được
+ *   writer lấy ra đạt MAX_PENDING_RESPONSES thì reader ngừng đọc socket, đọc lại khi còn một nửa
+ */
+final class OutboundQueue {
+    private static final Log LOG = Log.get("push");
+    static final int MAX_QUEUED = Integer.getInteger("educonnect.push.maxQueued", 1024);
+    static final int MAX_PENDING_RESPONSES = Math.max(2, Integer.getInteger("educonnect.maxPendingResponses", 256));
+    private static final boolean DISCONNECT_SLOW =
+            "disconnect".equalsIgnoreCase(System.getProperty("educonnect.push.slowConsumer", "resync"));
+    private static final PushFrame RESYNC_REQUIRED = encodeResync();
+
+    // Metrics toàn server
+    private static final AtomicLong queued = new AtomicLong();
+    private static final AtomicLong delivered = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static final AtomicLong resyncs = new AtomicLong();
+    private static final AtomicLong slowDisconnects = new AtomicLong();
+    private static final AtomicLong depth = new AtomicLong();
+    private static final AtomicInteger maxDepth = new AtomicInteger();
+    private static final AtomicLong readPauses = new AtomicLong();
+    // Từ lúc push vào hàng đợi tới lúc đã ghi ra socket, theo từng người nhận
+    private static final LatencyHistogram deliveryLatency = new LatencyHistogram();
+
+    /**
+     * Một frame chờ ghi: response riêng của kết nối (payload chưa có length prefix)
+     * hoặc push dùng chung với các người nhận khác
+     */
+    static final class Frame {
+        final byte[] payload;
+        final PushFrame push;
+        final boolean limited; // tính vào giới hạn MAX_QUEUED
+        final long enqueuedAt;
+
+        private Frame(byte[] payload, PushFrame push, boolean limited, long enqueuedAt) {
+            this.payload = payload;
+            this.push = push;
+            this.limited = limited;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private final String clientId;
+    private final Runnable wake;
+    private final Runnable disconnect;
+    private final Runnable resumeReading;
+    private final boolean disconnectSlow;
+    private final ConcurrentLinkedQueue<Frame> frames = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedPushes = new AtomicInteger();
+    // Request đã nhận mà response chưa được writer lấy ra (chờ worker, đang chạy hoặc nằm trong hàng đợi)
+    private final AtomicInteger pendingResponses = new AtomicInteger();
+    private final AtomicBoolean readingPaused = new AtomicBoolean();
+    // true: writer đã được gọi và chưa báo drained(), offer không cần đánh thức lại
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean resyncPending;
+    private volatile boolean closed;
+
+    /**
+     * @param wake          cho writer chạy (writer gọi poll/written cho tới khi drained() trả về false)
+     * @param disconnect    đóng kết nối (policy disconnect)
+     * @param resumeReading reader đã ngừng đọc được đọc tiếp (gọi từ bất kỳ thread nào), null nếu reader chờ
+     *                      bằng awaitReading()
+     */
+    OutboundQueue(String clientId, Runnable wake, Runnable disconnect, Runnable resumeReading) {
+        this(clientId, wake, disconnect, resumeReading, DISCONNECT_SLOW);
+    }
+
+    /**
+     * @param disconnectSlow policy khi vượt MAX_QUEUED: true đóng kết nối, false bỏ push rồi gửi resync
+     */
+    OutboundQueue(String clientId, Runnable wake, Runnable disconnect, Runnable resumeReading, boolean disconnectSlow) {
+        this.clientId = clientId;
+        this.wake = wake;
+        this.disconnect = disconnect;
+        this.resumeReading = resumeReading;
+        this.disconnectSlow = disconnectSlow;
+    }
+
+    private static PushFrame encodeResync() {
+        try {
+            return PushFrame.encode(Opcode.EVENT_RESYNC_REQUIRED);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reader: trước khi giao một request cho worker (mỗi request sau đó kết thúc bằng offerResponse hoặc noResponse)
+     *
+     * @return false nếu đã đủ MAX_PENDING_RESPONSES: reader ngừng đọc cho tới khi được đọc tiếp
+     */
+    boolean requestAccepted() {
+        if (pendingResponses.incrementAndGet() < MAX_PENDING_RESPONSES) return true;
+        readingPaused.set(true);
+        // Writer có thể đã lấy bớt response trước khi thấy cờ
+        if (pendingResponses.get() <= MAX_PENDING_RESPONSES / 2 && readingPaused.compareAndSet(true, false)) {
+            return true;
+        }
+        readPauses.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Reader không dùng callback: chặn tới khi được đọc tiếp hoặc kết nối đóng
+     */
+    synchronized void awaitReading() throws InterruptedException {
+        while (readingPaused.get() && !closed) {
+            wait();
+        }
+    }
+
+    void offerResponse(byte[] payload) {
+        if (closed) return;
+        frames.add(new Frame(payload, null, false, 0));
+        signal();
+    }
+
+    /**
+     * Request đã nhận nhưng không có response (bị hủy, DISCONNECT, lỗi)
+     */
+    void noResponse() {
+        responseDone();
+    }
+
+    private void responseDone() {
+        if (pendingResponses.decrementAndGet() <= MAX_PENDING_RESPONSES / 2 && readingPaused.compareAndSet(true, false)) {
+            if (resumeReading != null) resumeReading.run();
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Không bao giờ chặn
+     *
+     * @return false nếu push bị bỏ (kết nối đã đóng hoặc client không đọc kịp)
+     */
+    boolean offerPush(PushFrame push) {
+        if (closed) return false;
+        int pending = queuedPushes.incrementAndGet();
+        if (pending > MAX_QUEUED) {
+            queuedPushes.decrementAndGet();
+            overflow();
+            return false;
+        }
+        if (pending > maxDepth.get()) maxDepth.accumulateAndGet(pending, Math::max);
+        queued.incrementAndGet();
+        depth.incrementAndGet();
+        frames.add(new Frame(null, push, true, System.nanoTime()));
+        // close() có thể đã rút hàng đợi trước khi frame được thêm
+        if (closed) {
+            close();
+            return false;
+        }
+        signal();
+        return true;
+    }
+
+    private void overflow() {
+        dropped.incrementAndGet();
+        if (!disconnectSlow) {
+            resyncPending = true;
+            return;
+        }
+        if (!closed) {
+            slowDisconnects.incrementAndGet();
+            LOG.warn("⚠ Slow consumer, disconnecting").with("client", clientId)
+                    .with("queued", queuedPushes.get()).with("max", MAX_QUEUED).log();
+            close();
+            disconnect.run();
+        }
+    }
+
+    private void signal() {
+        if (scheduled.compareAndSet(false, true)) wake.run();
+    }
+
+    /**
+     * Writer: frame kế tiếp, null nếu hàng đợi trống. Frame đã lấy ra không còn tính vào giới hạn.
+     */
+    Frame poll() {
+        Frame frame = frames.poll();
+        if (frame == null) return null;
+        if (frame.limited) {
+            queuedPushes.decrementAndGet();
+            depth.decrementAndGet();
+        } else if (frame.payload != null) {
+            responseDone();
+        }
+        return frame;
+    }
+
+    /**
+     * Writer: frame đã được ghi ra socket
+     */
+    void written(Frame frame) {
+        if (!frame.limited) return;
+        delivered.incrementAndGet();
+        deliveryLatency.recordSince(frame.enqueuedAt);
+    }
+
+    /**
+     * Writer đã ghi hết những gì poll() trả về
+     *
+     * @return true nếu có frame mới trong lúc đó và writer phải ghi tiếp
+     */
+    boolean drained() {
+        // Push bị bỏ trước frame này nên client đọc lại state sau khi nhận nó là đủ
+        if (resyncPending && queuedPushes.get() <= MAX_QUEUED / 2) {
+            resyncPending = false;
+            resyncs.incrementAndGet();
+            frames.add(new Frame(null, RESYNC_REQUIRED, false, 0));
+        }
+        scheduled.set(false);
+        return !frames.isEmpty() && scheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Kết nối đóng: bỏ các frame chưa ghi
+     */
+    void close() {
+        closed = true;
+        while (poll() != null) {
+            // Bỏ
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * latency: từ lúc push vào hàng đợi tới lúc ghi xong, theo từng người nhận
+     */
+    static String stats() {
+        LatencyHistogram.Snapshot latency = deliveryLatency.snapshot();
+        return "queued=" + queued.get() + " delivered=" + delivered.get() + " dropped=" + dropped.get()
+                + " resyncs=" + resyncs.get() + " slowDisconnects=" + slowDisconnects.get()
+                + " depth=" + depth.get() + " maxDepth=" + maxDepth.get() + " readPauses=" + readPauses.get()
+                + " latency p50=" + latency.percentileMicros(50) + "us p99=" + latency.percentileMicros(99)
+                + "us p999=" + latency.percentileMicros(99.9) + "us max=" + latency.maxMicros() + "us";
+    }
+}
@@ -0,0 +1,257 @@
+package org.example.educonnect1.Server;
+
+import org.example.educonnect1.Server.dao.FriendDAO;
+import org.example.educonnect1.Server.utils.TimingWheel;
+import org.example.educonnect1.logging.Log;
+import org.example.educonnect1.protocol.Opcode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ai đang online: userId -> các kết nối đang mở + lần cuối thấy hoạt động (LOGIN, PING).
+ * - Chia thành STRIPES phần, mỗi phần một lock, để LOGIN/PING/đóng kết nối của các user khác nhau không tranh nhau
+ * - Đóng kết nối cuối cùng chưa báo offline ngay: chờ GRACE_MS, kết nối lại trong khoảng đó (mạng chập chờn,
+ *   client reconnect) thì bạn bè không nhận được cặp offline/online thừa
+ * - Chuyển online/offline được đẩy (EVENT_PRESENCE) tới những người bạn đang online
+ */
+public class PresenceRegistry {
+    private static final Log LOG = Log.get("push");
+    private static final int STRIPES = 64; // lũy thừa của 2
+    private static final long GRACE_MS = Long.getLong("educonnect.presence.graceMs", 5_000);
+    private static final ClientSession[] NO_SESSIONS = new ClientSession[0];
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final FriendDAO friendDAO;
+    // Báo offline có thể đọc DB và ghi socket nên không chạy trên thread của TimingWheel
+    private final ExecutorService notifier = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "presence-notifier");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Metrics
+    private final AtomicLong connects = new AtomicLong();
+    private final AtomicLong disconnects = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong announcements = new AtomicLong();
+
+    private static class Stripe {
+        final HashMap<Integer, Entry> entries = new HashMap<>();
+    }
+
+    /**
+     * Trạng thái của một user, chỉ đọc/ghi khi giữ lock của stripe chứa nó
+     */
+    private static class Entry {
+        ClientSession[] sessions = NO_SESSIONS; // copy-on-write, đọc snapshot không cần lock
+        long lastSeen;
+        int[] friends;                          // nạp khi online, bỏ khi offline
+        boolean announcedOnline;
+        TimingWheel.Timeout offlineTask;
+    }
+
+    public PresenceRegistry(FriendDAO friendDAO) {
+        this.friendDAO = friendDAO;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private Stripe stripe(int userId) {
+        int h = userId * 0x9E3779B9; // trộn bit để id liên tiếp rải đều các stripe
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * LOGIN thành công trên một kết nối
+     */
+    public void connected(ClientSession session, int userId) {
+        connects.incrementAndGet();
+        boolean announce;
+        boolean needFriends;
+        Stripe stripe = stripe(userId);
+        synchronized (stripe) {
+            Entry entry = stripe.entries.computeIfAbsent(userId, id -> new Entry());
+            ClientSession[] sessions = Arrays.copyOf(entry.sessions, entry.sessions.length + 1);
+            sessions[sessions.length - 1] = session;
+            entry.sessions = sessions;
+            entry.lastSeen = System.currentTimeMillis();
+            if (entry.offlineTask != null) {
+                entry.offlineTask.cancel();
+                entry.offlineTask = null;
+                coalesced.incrementAndGet();
+            }
+            announce = !entry.announcedOnline;
+            entry.announcedOnline = true;
+            needFriends = entry.friends == null;
+        }
+        if (needFriends) {
+            int[] friends = loadFriends(userId);
+            synchronized (stripe) {
+                Entry entry = stripe.entries.get(userId);
+                if (entry != null && entry.announcedOnline && entry.friends == null) entry.friends = friends;
+            }
+        }
+        if (announce) announce(userId, true);
+    }
+
+    /**
+     * Kết nối đóng (hoặc LOGIN lại bằng user khác); kết nối cuối của user thì hẹn báo offline sau GRACE_MS
+     */
+    public void disconnected(ClientSession session, int userId) {
+        disconnects.incrementAndGet();
+        Stripe stripe = stripe(userId);
+        synchronized (stripe) {
+            Entry entry = stripe.entries.get(userId);
+            if (entry == null) return;
+            ClientSession[] sessions = entry.sessions;
+            int index = -1;
+            for (int i = 0; i < sessions.length; i++) {
+                if (sessions[i] == session) index = i;
+            }
+            if (index < 0) return;
+            ClientSession[] remaining = new ClientSession[sessions.length - 1];
+            System.arraycopy(sessions, 0, remaining, 0, index);
+            System.arraycopy(sessions, index + 1, remaining, index, remaining.length - index);
+            entry.sessions = remaining.length == 0 ? NO_SESSIONS : remaining;
+            entry.lastSeen = System.currentTimeMillis();
+            if (remaining.length == 0 && entry.offlineTask == null) {
+                entry.offlineTask = TimingWheel.shared().schedule(
+                        () -> notifier.execute(() -> expire(userId)), GRACE_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void expire(int userId) {
+        Stripe stripe = stripe(userId);
+        synchronized (stripe) {
+            Entry entry = stripe.entries.get(userId);
+            if (entry == null || entry.sessions.length > 0 || entry.offlineTask == null) return;
+            entry.offlineTask = null;
+            if (!entry.announcedOnline) return;
+            entry.announcedOnline = false;
+        }
+        announce(userId, false);
+        synchronized (stripe) {
+            Entry entry = stripe.entries.get(userId);
+            // Chỉ giữ lastSeen cho user offline
+            if (entry != null && !entry.announcedOnline) entry.friends = null;
+        }
+    }
+
+    /**
+     * PING (hoặc hoạt động khác) trên một kết nối đã LOGIN
+     */
+    public void touch(int userId) {
+        Stripe stripe = stripe(userId);
+        synchronized (stripe) {
+            Entry entry = stripe.entries.get(userId);
+            if (entry != null) entry.lastSeen = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Các kết nối đang mở của user (snapshot, không copy)
+     */
+    public ClientSession[] sessions(int userId) {
+        Stripe stripe = stripe(userId);
+        synchronized (stripe) {
+            Entry entry = stripe.entries.get(userId);
+            return entry == null ? NO_SESSIONS : entry.sessions;
+        }
+    }
+
+    /**
+     * Có kết nối đang mở không (khác isOnline trong lúc chờ GRACE_MS)
+     */
+    public boolean hasConnections(int userId) {
+        return sessions(userId).length > 0;
+    }
+
+    /**
+     * Trạng thái bạn bè nhìn thấy: vẫn online trong GRACE_MS sau khi mất kết nối cuối
+     */
+    public boolean isOnline(int userId) {
+        Stripe stripe = stripe(userId);
+        synchronized (stripe) {
+            Entry entry = stripe.entries.get(userId);
+            return entry != null && entry.announcedOnline;
+        }
+    }
+
+    /**
+     * Lần cuối thấy user hoạt động (epoch millis), 0 nếu chưa thấy từ khi server chạy
+     */
+    public long lastSeen(int userId) {
+        Stripe stripe = stripe(userId);
+        synchronized (stripe) {
+            Entry entry = stripe.entries.get(userId);
+            return entry == null ? 0 : entry.lastSeen;
+        }
+    }
+
+    /**
+     * Bạn bè đang online của user, một lần gọi (danh sách bạn đã nạp lúc LOGIN)
+     */
+    public List<Integer> onlineFriends(int userId) {
+        List<Integer> online = new ArrayList<>();
+        for (int friendId : friendsOf(userId)) {
+            if (isOnline(friendId)) online.add(friendId);
+        }
+        return online;
+    }
+
+    private int[] friendsOf(int userId) {
+        Stripe stripe = stripe(userId);
+        synchronized (stripe) {
+            Entry entry = stripe.entries.get(userId);
+            if (entry != null && entry.friends != null) return entry.friends;
+        }
+        return loadFriends(userId);
+    }
+
+    private int[] loadFriends(int userId) {
+        try {
+            return friendDAO.getFriendIds(userId);
+        } catch (RuntimeException e) {
+            LOG.warn("⚠ Cannot load friends").with("user", userId).error(e).log();
+            return new int[0];
+        }
+    }
+
+    /**
+     * EVENT_PRESENCE (userId, online, lastSeen) tới bạn bè đang có kết nối, ngoài mọi lock
+     */
+    private void announce(int userId, boolean online) {
+        announcements.incrementAndGet();
+        long seen = lastSeen(userId);
+        for (int friendId : friendsOf(userId)) {
+            if (hasConnections(friendId)) {
+                PushService.publish(friendId, Opcode.EVENT_PRESENCE, userId, online, seen);
+            }
+        }
+    }
+
+    public String stats() {
+        int users = 0, online = 0, connections = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                users += stripe.entries.size();
+                for (Entry entry : stripe.entries.values()) {
+                    if (entry.announcedOnline) online++;
+                    connections += entry.sessions.length;
+                }
+            }
+        }
+        return "users=" + users + " online=" + online + " connections=" + connections + " connects=" + connects.get()
+                + " disconnects=" + disconnects.get() + " coalesced=" + coalesced.get()
+                + " announcements=" + announcements.get();
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.educonnect1.Server;
+
+import org.example.educonnect1.protocol.Opcode;
+import org.example.educonnect1.protocol.Protocol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Một push event đã encode sẵn thành frame hoàn chỉnh (kèm length prefix), bất biến.
+ * Encode một lần rồi xếp cùng một instance vào hàng đợi của mọi người nhận:
+ * - NIO ghi một view read-only (buffer()) nên không copy payload cho từng kết nối
+ * - ClientHandler ghi thẳng mảng byte vào stream của kết nối
+ * -Deduconnect.push.directBuffers=true giữ thêm một bản off-heap để NIO ghi không qua buffer tạm của JDK
+ * (có lợi với payload lớn hoặc nhiều người nhận; tốn thêm bộ nhớ native cho mỗi event đang chờ).
+ */
+final class PushFrame {
+    private static final boolean DIRECT = Boolean.getBoolean("educonnect.push.directBuffers");
+
+    private final byte[] bytes;
+    private final ByteBuffer buffer;
+
+    private PushFrame(byte[] bytes) {
+        this.bytes = bytes;
+        ByteBuffer shared = DIRECT
+                ? ByteBuffer.allocateDirect(bytes.length).put(bytes).flip()
+                : ByteBuffer.wrap(bytes);
+        this.buffer = shared.asReadOnlyBuffer();
+    }
+
+    static PushFrame encode(Opcode event, Object... fields) throws IOException {
+        return new PushFrame(Protocol.encodePushFrame(event, fields));
+    }
+
+    /**
+     * Kích thước frame, tính cả length prefix
+     */
+    int size() {
+        return bytes.length;
+    }
+
+    /**
+     * View read-only với position/limit riêng: mỗi kết nối ghi dở tới đâu không ảnh hưởng kết nối khác
+     */
+    ByteBuffer buffer() {
+        return buffer.duplicate();
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.educonnect1.Server;
+
+import org.example.educonnect1.Server.dao.FriendDAO;
+import org.example.educonnect1.logging.Log;
+import org.example.educonnect1.protocol.Opcode;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Đẩy event (tin nhắn mới, lời mời kết bạn, chấp nhận kết bạn, online/offline) tới các kết nối
+ * đang online của user, ngay sau khi dữ liệu đã được ghi vào DB.
+ * Kết nối của từng user do PresenceRegistry quản lý.
+ */
+public final class PushService {
+    private static final Log LOG = Log.get("push");
+    private static final PresenceRegistry presence = new PresenceRegistry(new FriendDAO());
+
+    // Metrics
+    private static final AtomicLong fanOuts = new AtomicLong();
+    private static final AtomicLong recipients = new AtomicLong();
+
+    private PushService() {
+    }
+
+    public static PresenceRegistry presence() {
+        return presence;
+    }
+
+    /**
+     * Gọi sau khi LOGIN thành công
+     */
+    public static void bind(ClientSession session, int userId) {
+        unbind(session);
+        session.setUserId(userId);
+        presence.connected(session, userId);
+    }
+
+    /**
+     * Gọi khi kết nối đóng
+     */
+    public static void unbind(ClientSession session) {
+        int userId = session.getUserId();
+        if (userId < 0) return;
+        presence.disconnected(session, userId);
+        session.setUserId(-1);
+        session.setAdmin(false);
+    }
+
+    /**
+     * Gửi event tới mọi kết nối của user, frame chỉ encode một lần.
+     *
+     * @return số kết nối đã nhận event (0 nếu user offline)
+     */
+    public static int publish(int userId, Opcode event, Object... fields) {
+        ClientSession[] sessions = presence.sessions(userId);
+        if (sessions.length == 0) return 0;
+        PushFrame frame = encode(event, fields);
+        return frame == null ? 0 : push(sessions, frame);
+    }
+
+    /**
+     * Fan-out tới mọi kết nối của nhiều user (vd. participant của một nhóm chat), trừ exceptUserId.
+     * Frame encode một lần và mọi kết nối dùng chung cùng một PushFrame bất biến (không copy cho từng người nhận);
+     * mỗi kết nối chỉ được xếp vào hàng đợi ghi riêng nên client chậm không làm chậm người gửi hay các người nhận khác.
+     *
+     * @return số kết nối đã nhận event
+     */
+    public static int publishAll(int[] userIds, int exceptUserId, Opcode event, Object... fields) {
+        PushFrame frame = null;
+        int delivered = 0;
+        for (int userId : userIds) {
+            if (userId == exceptUserId) continue;
+            ClientSession[] sessions = presence.sessions(userId);
+            if (sessions.length == 0) continue;
+            if (frame == null) {
+                frame = encode(event, fields);
+                if (frame == null) return 0;
+            }
+            delivered += push(sessions, frame);
+        }
+        fanOuts.incrementAndGet();
+        recipients.addAndGet(delivered);
+        return delivered;
+    }
+
+    private static PushFrame encode(Opcode event, Object... fields) {
+        try {
+            return PushFrame.encode(event, fields);
+        } catch (IOException e) {
+            LOG.error("Cannot encode push event").with("event", event).error(e).log();
+            return null;
+        }
+    }
+
+    private static int push(ClientSession[] sessions, PushFrame frame) {
+        int delivered = 0;
+        for (ClientSession session : sessions) {
+            if (session.push(frame)) delivered++;
+        }
+        return delivered;
+    }
+
+    /**
+     * User còn kết nối nào đang mở không
+     */
+    public static boolean isOnline(int userId) {
+        return presence.hasConnections(userId);
+    }
+
+    public static String stats() {
+        return "fanOuts=" + fanOuts.get() + " recipients=" + recipients.get() + " " + OutboundQueue.stats();
+    }
+}
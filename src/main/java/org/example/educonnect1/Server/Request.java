@@ -0,0 +1,30 @@
+package org.example.educonnect1.Server;
+
+/**
+ * Nguồn tham số của một request, độc lập với định dạng trên dây
+ * (object stream hay frame binary), kèm session của kết nối gửi request
+ */
+public interface Request {
+    Object readObject() throws Exception;
+
+    ClientSession session();
+
+    static Request of(Source source, ClientSession session) {
+        return new Request() {
+            @Override
+            public Object readObject() throws Exception {
+                return source.read();
+            }
+
+            @Override
+            public ClientSession session() {
+                return session;
+            }
+        };
+    }
+
+    @FunctionalInterface
+    interface Source {
+        Object read() throws Exception;
+    }
+}
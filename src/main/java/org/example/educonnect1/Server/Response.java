@@ -0,0 +1,9 @@
+package org.example.educonnect1.Server;
+
+/**
+ * Đích ghi kết quả của một Command, độc lập với định dạng trên dây
+ */
+@FunctionalInterface
+public interface Response {
+    void writeObject(Object value) throws Exception;
+}
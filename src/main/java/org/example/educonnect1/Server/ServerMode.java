@@ -0,0 +1,22 @@
+package org.example.educonnect1.Server;
+
+import org.example.educonnect1.logging.Log;
+
+/**
+ * Engine xử lý kết nối, chọn lúc khởi động qua args[0] hoặc -Deduconnect.server.mode
+ */
+public enum ServerMode {
+    CLASSIC, // 1 thread / client trong fixed pool
+    VIRTUAL, // 1 virtual thread / client, không giới hạn số client (cần JDK 21 lúc chạy)
+    NIO;     // Selector + worker pool cho Command
+
+    static ServerMode fromArgs(String[] args) {
+        String value = args.length > 0 ? args[0] : System.getProperty("educonnect.server.mode", "classic");
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            Log.get("server").warn("Unknown server mode, falling back to CLASSIC").with("mode", value).log();
+            return CLASSIC;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.educonnect1.Server;
+
+import org.example.educonnect1.Server.utils.DB;
+import org.example.educonnect1.Server.utils.PasswordHasher;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Supplier;
+
+/**
+ * Báo cáo vận hành của server: metrics theo Command, hàng đợi của các pool (worker, bcrypt, DB)
+ * và stats() của từng thành phần. Đọc qua action STATS (chỉ admin) hoặc JMX
+ * (org.example.educonnect1:type=Server và type=Command,name=ACTION).
+ * Cùng một request LOGIN chậm có thể do chờ worker (queue p99), chờ bcrypt (hasher wait)
+ * hay chờ/giữ connection DB (db waiting, hold p99): báo cáo đặt các số đó cạnh nhau.
+ */
+public class ServerStats implements ServerStatsMXBean {
+    private final long startedAt = System.currentTimeMillis();
+    private final CommandMetrics commands;
+    private final ExecutorService workers;
+    private final ExecutorService requestPool;
+    private final PasswordHasher passwordHasher;
+    private final Map<String, Supplier<String>> components = new LinkedHashMap<>();
+
+    /**
+     * @param workers     pool chạy ClientHandler (CLASSIC) hoặc Command (NIO/VIRTUAL)
+     * @param requestPool pool chạy request v3 của ClientHandler (trùng workers nếu không tách)
+     */
+    ServerStats(CommandMetrics commands, ExecutorService workers, ExecutorService requestPool,
+                PasswordHasher passwordHasher) {
+        this.commands = commands;
+        this.workers = workers;
+        this.requestPool = requestPool;
+        this.passwordHasher = passwordHasher;
+    }
+
+    /**
+     * Thêm một dòng "name: stats" vào cuối báo cáo
+     */
+    ServerStats component(String name, Supplier<String> stats) {
+        components.put(name, stats);
+        return this;
+    }
+
+    /**
+     * -1 nếu pool không có hàng đợi (virtual thread)
+     */
+    private static int queueDepth(ExecutorService pool) {
+        return pool instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) pool).getQueue().size() : -1;
+    }
+
+    private static String poolStats(ExecutorService pool) {
+        if (!(pool instanceof ThreadPoolExecutor)) return "virtual";
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) pool;
+        return "active=" + executor.getActiveCount() + "/" + executor.getMaximumPoolSize()
+                + " queue=" + executor.getQueue().size();
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("uptime=").append((System.currentTimeMillis() - startedAt) / 1000).append("s")
+                .append(" connections=").append(TCPServer.getActiveClientCount())
+                .append(" inFlight=").append(commands.inFlight()).append('\n');
+        sb.append("workers: ").append(poolStats(workers));
+        if (requestPool != workers) sb.append(" | requests: ").append(poolStats(requestPool));
+        sb.append('\n');
+        sb.append("db: ").append(DB.pool().stats()).append('\n');
+        sb.append("hasher: ").append(passwordHasher.stats()).append('\n');
+        sb.append(commands.report());
+        for (Map.Entry<String, Supplier<String>> component : components.entrySet()) {
+            try {
+                sb.append(component.getKey()).append(": ").append(component.getValue().get()).append('\n');
+            } catch (RuntimeException e) {
+                sb.append(component.getKey()).append(": unavailable (").append(e.getMessage()).append(")\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    void registerMBeans() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("org.example.educonnect1:type=Server");
+        if (!server.isRegistered(name)) server.registerMBean(this, name);
+        commands.registerMBeans(server);
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return TCPServer.getActiveClientCount();
+    }
+
+    @Override
+    public int getInFlight() {
+        return commands.inFlight();
+    }
+
+    @Override
+    public int getWorkerQueueDepth() {
+        return queueDepth(workers);
+    }
+
+    @Override
+    public int getRequestQueueDepth() {
+        return queueDepth(requestPool);
+    }
+
+    @Override
+    public int getHasherQueueDepth() {
+        return passwordHasher.queueDepth();
+    }
+
+    @Override
+    public int getDbWaiting() {
+        return DB.pool().stats().waiting;
+    }
+
+    @Override
+    public String getReport() {
+        return report();
+    }
+
+    @Override
+    public void resetCommandStats() {
+        commands.reset();
+    }
+}
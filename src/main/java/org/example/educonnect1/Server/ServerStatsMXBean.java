@@ -0,0 +1,25 @@
+package org.example.educonnect1.Server;
+
+/**
+ * Thuộc tính JMX của server (org.example.educonnect1:type=Server)
+ */
+public interface ServerStatsMXBean {
+    int getActiveConnections();
+
+    int getInFlight();
+
+    int getWorkerQueueDepth();
+
+    /**
+     * -1 nếu pool không có hàng đợi (virtual thread)
+     */
+    int getRequestQueueDepth();
+
+    int getHasherQueueDepth();
+
+    int getDbWaiting();
+
+    String getReport();
+
+    void resetCommandStats();
+}
@@ -1,161 +1,649 @@
 package org.example.educonnect1.Server;
 
 import org.example.educonnect1.Server.Commands.*;
-import org.example.educonnect1.Server.dao.FriendDAO;
+import org.example.educonnect1.Server.dao.ConversationDAO;
+import org.example.educonnect1.Server.dao.EmailOutboxDAO;
 import org.example.educonnect1.Server.dao.MessageDAO;
+import org.example.educonnect1.Server.dao.UnreadDAO;
 import org.example.educonnect1.Server.dao.UserDAO;
+import org.example.educonnect1.Server.utils.DB;
+import org.example.educonnect1.Server.utils.EmailOutbox;
+import org.example.educonnect1.Server.utils.InboxCache;
+import org.example.educonnect1.Server.utils.MessageWriter;
+import org.example.educonnect1.Server.utils.PasswordHasher;
+import org.example.educonnect1.Server.utils.TimingWheel;
+import org.example.educonnect1.Server.utils.UnreadCounters;
+import org.example.educonnect1.Server.utils.VerificationExpiry;
+import org.example.educonnect1.logging.Log;
+import org.example.educonnect1.protocol.BinaryCodec;
+import org.example.educonnect1.protocol.Opcode;
+import org.example.educonnect1.protocol.Protocol;
 
 import java.io.*;
 import java.net.*;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
 
 public class TCPServer {
+    private static final Log LOG = Log.get("server");
+    // PING tới liên tục từ mọi client, chỉ log 1/100 (-Deduconnect.log.sample.PING)
+    private static final Log.Sampler PING_SAMPLER = Log.sampler("PING", 100);
     private static final int PORT = 2005;
     private static final int MAX_THREADS = 50; // Tối đa 50 clients đồng thời
-    private static final int SOCKET_TIMEOUT = 5 * 60 * 1000; // 5 phút timeout
+    private static final long MESSAGE_WRITER_MAX_RETRY_MS = 30_000;
 
     private static UserDAO userDAO = new UserDAO();
+    private static EmailOutbox emailOutbox = new EmailOutbox(new EmailOutboxDAO());
+    private static PasswordHasher passwordHasher = new PasswordHasher(MAX_THREADS);
+    private static VerificationExpiry verificationExpiry = new VerificationExpiry(userDAO);
+    private static MessageDAO messageDAO = new MessageDAO();
+    private static UnreadCounters unreadCounters = new UnreadCounters(new UnreadDAO(), messageDAO);
+    private static InboxCache inboxCache = new InboxCache(new ConversationDAO(), messageDAO);
+    private static MessageWriter messageWriter = new MessageWriter(messageDAO, unreadCounters, inboxCache);
 
     private static Map<String, Command> commandMap = new HashMap<>();
+    private static final CommandMetrics commandMetrics = new CommandMetrics();
+    private static ServerStats serverStats;
     private static ExecutorService threadPool;
+    // Chạy các request v3 (multiplexed) ngoài thread đọc socket
+    private static ExecutorService requestPool;
+    // Ghi response/push v3 của ClientHandler; ghi chặn vào client chậm chỉ giữ thread của kết nối đó
+    private static final ExecutorService pushWriters = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "push-writer");
+        t.setDaemon(true);
+        return t;
+    });
     private static ServerSocket serverSocket;
+    private static NioServer nioServer;
     private static volatile boolean isRunning = true;
 
-    // Track active connections
-    private static final ConcurrentHashMap<String, ClientHandler> activeClients = new ConcurrentHashMap<>();
+    // Track active connections (ClientHandler hoặc kết nối NIO)
+    private static final ConcurrentHashMap<String, Closeable> activeClients = new ConcurrentHashMap<>();
 
     public static void main(String[] args) {
+        ServerMode mode = ServerMode.fromArgs(args);
+
+        // Tạo thread pool (mode NIO: worker pool cho Command)
+        threadPool = mode == ServerMode.VIRTUAL
+                ? newVirtualThreadExecutor()
+                : Executors.newFixedThreadPool(MAX_THREADS);
+
+        requestPool = mode == ServerMode.CLASSIC ? Executors.newFixedThreadPool(MAX_THREADS) : threadPool;
+
         // Khởi tạo command map
+        serverStats = newServerStats();
         initializeCommands();
-
-        // Tạo thread pool
-        threadPool = Executors.newFixedThreadPool(MAX_THREADS);
+        registerMBeans();
+        emailOutbox.start();
+        verificationExpiry.start();
+        startMessageWriter();
+        loadNameIndexAsync();
+        if (Boolean.getBoolean("educonnect.unread.checkOnStart")) {
+            checkUnreadCountersAsync();
+        }
 
         // Thêm shutdown hook
         Runtime.getRuntime().addShutdownHook(new Thread(TCPServer::shutdown));
 
         try {
+            if (mode == ServerMode.NIO) {
+                nioServer = new NioServer(PORT, threadPool);
+                printBanner(mode);
+                nioServer.run();
+                return;
+            }
+
             serverSocket = new ServerSocket(PORT);
             serverSocket.setSoTimeout(0); // No timeout for accept()
-            System.out.println("╔════════════════════════════════════════╗");
-            System.out.println("║   EduConnect Server Started!           ║");
-            System.out.println("║   Port: " + PORT + "                            ║");
-            System.out.println("║   Status: READY                        ║");
-            System.out.println("╚════════════════════════════════════════╝");
+            printBanner(mode);
 
             while (isRunning) {
                 try {
                     Socket clientSocket = serverSocket.accept();
-                    clientSocket.setSoTimeout(SOCKET_TIMEOUT);
+                    // Như NIO engine: response nhỏ không phải chờ Nagle + delayed ACK (~40ms)
+                    clientSocket.setTcpNoDelay(true);
                     String clientId = clientSocket.getInetAddress().getHostAddress() + ":" + clientSocket.getPort();
-                    ClientHandler handler = new ClientHandler(clientSocket, clientId);
+                    ClientHandler handler = new ClientHandler(clientSocket, clientId, null);
                     activeClients.put(clientId, handler);
                     threadPool.submit(handler);
                 } catch (SocketTimeoutException e) {
                     // Normal timeout, continue
                 } catch (IOException e) {
                     if (isRunning) {
-                        System.err.println("Error accepting client: " + e.getMessage());
+                        LOG.warn("Error accepting client").error(e).log();
                     }
                 }
             }
 
         } catch (IOException e) {
-            System.err.println("Server error: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Server error").with("port", PORT).error(e).log();
         }
     }
 
-    private static void initializeCommands() {
-        commandMap.put("LOGIN", new LoginCommand(userDAO));
-        commandMap.put("SIGNUP", new SignupCommand(userDAO));
-        commandMap.put("VERIFY", new VerifyCommand(userDAO));
+    /**
+     * Nạp index tên ở nền để server nhận kết nối ngay; SEARCH_FRIEND dùng LIKE cho tới khi nạp xong
+     */
+    private static void loadNameIndexAsync() {
+        Thread loader = new Thread(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                userDAO.loadNameIndex();
+                LOG.info("✓ Name index loaded").with("users", UserDAO.nameIndex().size())
+                        .with("ms", System.currentTimeMillis() - start).log();
+            } catch (RuntimeException e) {
+                LOG.warn("⚠ Cannot load name index, search falls back to SQL").error(e).log();
+            }
+        }, "name-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Replay journal tin nhắn còn sót rồi bắt đầu ghi nền. Lỗi (thường là DB chưa lên) thì thử lại ở nền
+     * với backoff tới MESSAGE_WRITER_MAX_RETRY_MS; trong lúc đó SEND_MESSAGE trả về BUSY
+     */
+    private static void startMessageWriter() {
+        if (tryStartMessageWriter(1_000)) return;
+        Thread starter = new Thread(() -> {
+            long delay = 1_000;
+            while (isRunning) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                delay = Math.min(delay * 2, MESSAGE_WRITER_MAX_RETRY_MS);
+                if (!isRunning || tryStartMessageWriter(delay)) return;
+            }
+        }, "message-writer-starter");
+        starter.setDaemon(true);
+        starter.start();
+    }
+
+    private static boolean tryStartMessageWriter(long retryMs) {
+        try {
+            messageWriter.start();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            LOG.error("⚠ Cannot start message writer, SEND_MESSAGE disabled until it starts")
+                    .with("retryMs", retryMs).error(e).log();
+            return false;
+        }
+    }
+
+    /**
+     * Đếm lại toàn bộ unread_counters từ messages ở nền (-Deduconnect.unread.checkOnStart=true)
+     */
+    private static void checkUnreadCountersAsync() {
+        Thread checker = new Thread(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                int fixed = unreadCounters.checkAll();
+                LOG.info("✓ Unread counters checked").with("ms", System.currentTimeMillis() - start)
+                        .with("corrected", fixed).log();
+            } catch (RuntimeException e) {
+                LOG.warn("⚠ Unread counter check failed").error(e).log();
+            }
+        }, "unread-checker");
+        checker.setDaemon(true);
+        checker.start();
+    }
+
+    /**
+     * Kết nối đóng: gỡ khỏi PushService, user không còn kết nối nào thì bỏ state chỉ dành cho user online
+     */
+    static void sessionClosed(ClientSession session) {
+        int userId = session.getUserId();
+        PushService.unbind(session);
+        if (userId > 0 && !PushService.isOnline(userId)) {
+            unreadCounters.evict(userId);
+            inboxCache.evict(userId);
+        }
+    }
+
+    /**
+     * PING của kết nối đã LOGIN: cập nhật lần cuối thấy user
+     */
+    private static void heartbeat(ClientSession session) {
+        int userId = session.getUserId();
+        if (userId > 0) PushService.presence().touch(userId);
+        LOG.debug("request").sampled(PING_SAMPLER)
+                .with("client", session.getClientId()).with("user", userId).with("action", "PING").log();
+    }
+
+    private static void printBanner(ServerMode mode) {
+        System.out.println("╔════════════════════════════════════════╗");
+        System.out.println("║   EduConnect Server Started!           ║");
+        System.out.println("║   Port: " + PORT + "                            ║");
+        System.out.println("║   Mode: " + String.format("%-31s", mode) + "║");
+        System.out.println("║   Status: READY                        ║");
+        System.out.println("╚════════════════════════════════════════╝");
+    }
+
+    /**
+     * Project build với target 17 nên lấy virtual thread executor qua reflection;
+     * chạy trên JDK < 21 thì dùng cached pool (vẫn không giới hạn 50 client).
+     * Số thao tác JDBC đồng thời vẫn bị chặn bởi kích thước pool của DB.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOG.warn("Virtual threads require JDK 21+, falling back to cached thread pool")
+                    .with("java", System.getProperty("java.version")).log();
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private static ServerStats newServerStats() {
+        return new ServerStats(commandMetrics, threadPool, requestPool, passwordHasher)
+                .component("users", () -> UserDAO.cache().stats())
+                .component("messages", messageWriter::stats)
+                .component("unread", unreadCounters::stats)
+                .component("inbox", inboxCache::stats)
+                .component("presence", () -> PushService.presence().stats())
+                .component("push", PushService::stats)
+                .component("email", emailOutbox::stats)
+                .component("verification", verificationExpiry::stats)
+                .component("timers", () -> TimingWheel.shared().stats())
+                .component("log", Log::stats);
+    }
+
+    /**
+     * Metrics qua JMX (jconsole/VisualVM): org.example.educonnect1:type=Server, type=Command,name=ACTION
+     */
+    private static void registerMBeans() {
+        try {
+            serverStats.registerMBeans();
+        } catch (javax.management.JMException e) {
+            LOG.warn("⚠ Cannot register JMX metrics").error(e).log();
+        }
+    }
+
+    /**
+     * Đăng ký mọi Command vào commandMap (benchmarks gọi trực tiếp, không chạy main)
+     */
+    static void initializeCommands() {
+        commandMap.put("LOGIN", new LoginCommand(userDAO, passwordHasher));
+        commandMap.put("SIGNUP", new SignupCommand(userDAO, emailOutbox, passwordHasher, verificationExpiry));
+        commandMap.put("VERIFY", new VerifyCommand(userDAO, verificationExpiry));
         commandMap.put("SEARCH_FRIEND", new SearchFriendCommand(userDAO));
-        
-       
+        commandMap.put("SEARCH_FRIEND_PAGE", new SearchFriendPageCommand(userDAO));
+        commandMap.put("GET_ONLINE_FRIENDS", new GetOnlineFriendsCommand(userDAO, PushService.presence()));
+        commandMap.put("SEND_MESSAGE", new SendMessageCommand(messageDAO, messageWriter));
+        commandMap.put("SEND_GROUP_MESSAGE", new SendGroupMessageCommand(messageDAO, messageWriter));
+        commandMap.put("GET_MESSAGES", new GetMessagesCommand(messageDAO, messageWriter));
+        commandMap.put("OPEN_CONVERSATION", new OpenConversationCommand(messageDAO, messageWriter));
+        commandMap.put("MARK_MESSAGES_READ", new MarkMessagesReadCommand(messageDAO, messageWriter, unreadCounters));
+        commandMap.put("GET_UNREAD_COUNTS", new GetUnreadCountsCommand(unreadCounters));
+        commandMap.put("GET_CONVERSATIONS", new GetConversationsCommand(userDAO, inboxCache, unreadCounters));
+        commandMap.put("STATS", new StatsCommand(serverStats));
+        for (String action : commandMap.keySet()) {
+            commandMetrics.register(action);
+        }
+    }
+
+    /**
+     * Thay command của một action (benchmark dùng bản stub không chạm DB/bcrypt)
+     */
+    static void replaceCommand(String action, Command command) {
+        commandMap.put(action, command);
+        commandMetrics.register(action);
     }
 
+    // dispatchFrame trả về mảng này khi không có gì để gửi (request v3 đã bị client hủy)
+    static final byte[] NO_RESPONSE = new byte[0];
+
     /**
-     * ClientHandler - Xử lý từng client trong persistent connection
+     * v3: gọi trên thread đọc socket trước khi đưa frame sang worker.
+     * CANCEL được xử lý ngay tại đây để không phải xếp hàng sau chính request mà nó hủy.
+     * @return false nếu frame đã xử lý xong, không cần dispatch
      */
-    static class ClientHandler implements Runnable {
+    static boolean acceptFrame(byte[] payload, ClientSession session) throws IOException {
+        if (Protocol.requestOpcode(payload) == Opcode.CANCEL.code) {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload, 6, payload.length - 6));
+            Object target = BinaryCodec.readValue(in);
+            if (target instanceof Integer) {
+                session.cancel((Integer) target);
+            }
+            return false;
+        }
+        session.begin(Protocol.responseId(payload));
+        return true;
+    }
+
+    /**
+     * Xử lý một frame request (đã bỏ length prefix) theo version đã thỏa thuận
+     * và trả về payload response. Trả về null nếu client yêu cầu DISCONNECT,
+     * NO_RESPONSE nếu request đã bị hủy.
+     * @param queuedAt lúc frame được xếp vào hàng đợi worker (System.nanoTime()), 0 nếu chạy ngay trên thread đọc
+     */
+    static byte[] dispatchFrame(byte[] payload, ClientSession session, int version, long queuedAt) throws Exception {
+        if (version >= Protocol.VERSION_BINARY) {
+            return dispatchBinary(payload, session, version >= Protocol.VERSION_MULTIPLEXED, queuedAt);
+        }
+        ObjectInputStream in = Protocol.openSerialized(payload);
+        String action = (String) in.readObject();
+        if ("DISCONNECT".equals(action)) {
+            return null;
+        }
+        if ("PING".equals(action)) {
+            heartbeat(session);
+            return Protocol.serialize("PONG");
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+            execute(action, session, queuedAt, in::readObject, out::writeObject);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static byte[] dispatchBinary(byte[] payload, ClientSession session, boolean multiplexed,
+                                         long queuedAt) throws Exception {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        int requestId = multiplexed ? in.readInt() : 0;
+        try {
+            // Bị hủy khi còn trong hàng đợi thì bỏ qua luôn
+            if (multiplexed && session.isCancelled(requestId)) {
+                return NO_RESPONSE;
+            }
+            int code = in.readUnsignedShort();
+            Opcode op = Opcode.fromCode(code);
+            if (op == Opcode.DISCONNECT) {
+                return null;
+            }
+
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(buffer);
+            if (multiplexed) {
+                // Echo requestId để client ghép đúng response dù trả về lệch thứ tự
+                out.writeInt(requestId);
+            }
+            if (op == Opcode.PING) {
+                heartbeat(session);
+                BinaryCodec.writeValue(out, "PONG");
+            } else {
+                String action = op != null ? op.name() : "opcode " + code;
+                execute(action, session, queuedAt, () -> BinaryCodec.readValue(in), value -> BinaryCodec.writeValue(out, value));
+            }
+            return multiplexed && session.isCancelled(requestId) ? NO_RESPONSE : buffer.toByteArray();
+        } finally {
+            if (multiplexed) session.end(requestId);
+        }
+    }
+
+    private static void execute(String action, ClientSession session, long queuedAt, Request.Source source,
+                                Response out) throws Exception {
+        // Tìm và thực thi command
+        Command cmd = commandMap.get(action);
+        CommandMetrics.Action metrics = commandMetrics.action(action);
+        long start = metrics.begin(queuedAt);
+        boolean ok = false;
+        try {
+            if (cmd != null) {
+                cmd.execute(Request.of(source, session), out);
+            } else {
+                out.writeObject("UNKNOWN_ACTION");
+                LOG.warn("Unknown action").with("client", session.getClientId()).with("action", action).log();
+            }
+            ok = true;
+        } finally {
+            long elapsed = metrics.end(start, ok);
+            LOG.debug("request").with("client", session.getClientId()).with("user", session.getUserId())
+                    .with("action", action).with("us", elapsed / 1000).with("ok", ok).log();
+        }
+    }
+
+    static void registerClient(String clientId, Closeable connection) {
+        activeClients.put(clientId, connection);
+    }
+
+    static boolean unregisterClient(String clientId) {
+        return activeClients.remove(clientId) != null;
+    }
+
+    /**
+     * ClientHandler - Xử lý từng client trong persistent connection.
+     * Nhận cả client framed (handshake "EDUC") lẫn client cũ dùng object stream.
+     */
+    static class ClientHandler implements Runnable, Closeable {
         private final Socket socket;
         private final String clientId;
+        private final InputStream rawIn;
+        private ClientSession session;
         private ObjectInputStream in;
         private ObjectOutputStream out;
+        private IdleTimeout idleTimeout;
+        private volatile OutboundQueue outbound;
 
-        public ClientHandler(Socket socket, String clientId) {
+        /**
+         * @param rawIn stream đọc thay cho socket (NIO engine trả lại các byte đã đọc), null = socket.getInputStream()
+         */
+        public ClientHandler(Socket socket, String clientId, InputStream rawIn) {
             this.socket = socket;
             this.clientId = clientId;
+            this.rawIn = rawIn;
         }
 
         @Override
         public void run() {
+            idleTimeout = new IdleTimeout(this::closeIdle);
             try {
-                // Khởi tạo streams
-                out = new ObjectOutputStream(socket.getOutputStream());
-                out.flush();
-                in = new ObjectInputStream(socket.getInputStream());
-                System.out.println("→ Client handler started for: " + clientId);
-                // Vòng lặp xử lý requests từ client
-                while (!socket.isClosed() && isRunning) {
-                    try {
-                        // Đọc action từ client
-                        String action = (String) in.readObject();
-                        if ("PING".equals(action)) {
-                            out.writeObject("PONG");
-                            out.flush();
-                            // Không log để tránh spam console
-                            continue;
-                        }
-                        // Xử lý disconnect
-                        if ("DISCONNECT".equals(action)) {
-                            System.out.println("← Client requested disconnect: " + clientId);
-                            break;
+                InputStream input = new BufferedInputStream(rawIn != null ? rawIn : socket.getInputStream());
+                OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+                // Xem 2 byte đầu để biết client dùng giao thức nào
+                input.mark(2);
+                int b0 = input.read();
+                int b1 = input.read();
+                input.reset();
+                if (b0 < 0) return;
+
+                if (Protocol.isObjectStreamHeader(b0, b1)) {
+                    serveObjectStreams(input, output);
+                } else {
+                    serveFrames(new DataInputStream(input), new DataOutputStream(output));
+                }
+            } catch (IOException e) {
+                LOG.warn("Error handling client").with("client", clientId).error(e).log();
+            } finally {
+                cleanup();
+            }
+        }
+
+        private void serveFrames(DataInputStream din, DataOutputStream dout) throws IOException {
+            int clientVersion = Protocol.readHandshake(din);
+            if (clientVersion < 0) {
+                LOG.warn("Bad handshake").with("client", clientId).log();
+                return;
+            }
+            int version = Protocol.negotiate(clientVersion);
+            Protocol.writeHandshake(dout, version);
+            dout.flush();
+            if (version >= Protocol.VERSION_MULTIPLEXED) {
+                outbound = new OutboundQueue(clientId, () -> pushWriters.execute(() -> drain(dout)), this::closeQuietly, null);
+            }
+            session = new ClientSession(clientId, version, outbound != null ? outbound::offerPush : null);
+            LOG.info("→ Client handler started").with("client", clientId).with("version", version).log();
+
+            while (!socket.isClosed() && isRunning) {
+                try {
+                    byte[] payload = Protocol.readFrame(din);
+                    idleTimeout.touch();
+                    if (version >= Protocol.VERSION_MULTIPLEXED) {
+                        if (acceptFrame(payload, session)) {
+                            boolean readable = outbound.requestAccepted();
+                            long queuedAt = System.nanoTime();
+                            requestPool.execute(() -> dispatchAsync(payload, version, queuedAt, dout));
+                            // Đủ MAX_PENDING_RESPONSES request chưa có response: chờ writer ghi bớt rồi mới đọc tiếp
+                            if (!readable) outbound.awaitReading();
                         }
-                        System.out.println("Processing: " + action + " from " + clientId);
-                        // Tìm và thực thi command
-                        Command cmd = commandMap.get(action);
-                        if (cmd != null) {
-                            cmd.execute(in, out);
-                            out.flush();
+                        continue;
+                    }
+                    byte[] response = dispatchFrame(payload, session, version, 0);
+                    if (response == null) {
+                        LOG.info("← Client requested disconnect").with("client", clientId).log();
+                        break;
+                    }
+                    Protocol.writeFrame(dout, response);
+                    dout.flush();
+                } catch (EOFException e) {
+                    LOG.info("← Client disconnected (EOF)").with("client", clientId).log();
+                    break;
+                } catch (SocketException e) {
+                    LOG.info("← Client connection lost").with("client", clientId).log();
+                    break;
+                } catch (IOException e) {
+                    throw e;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+
+        /**
+         * v3: các request của cùng client chạy song song, response ghi ra theo thứ tự hoàn thành
+         */
+        private void dispatchAsync(byte[] payload, int version, long queuedAt, DataOutputStream dout) {
+            try {
+                byte[] response = dispatchFrame(payload, session, version, queuedAt);
+                if (response == null) {
+                    LOG.info("← Client requested disconnect").with("client", clientId).log();
+                    outbound.noResponse();
+                    close();
+                    return;
+                }
+                if (response != NO_RESPONSE) {
+                    outbound.offerResponse(response);
+                } else {
+                    outbound.noResponse();
+                }
+            } catch (Exception e) {
+                LOG.warn("Error handling request").with("client", clientId).with("user", session.getUserId())
+                        .error(e).log();
+                outbound.noResponse();
+                closeQuietly();
+            }
+        }
+
+        /**
+         * v3: chạy trên pushWriters, mỗi lúc tối đa một lần cho mỗi kết nối; ghi mọi frame đang chờ rồi flush một lần
+         */
+        private void drain(DataOutputStream dout) {
+            List<OutboundQueue.Frame> written = new ArrayList<>();
+            try {
+                do {
+                    OutboundQueue.Frame frame;
+                    while ((frame = outbound.poll()) != null) {
+                        if (frame.push != null) {
+                            frame.push.writeTo(dout);
                         } else {
-                            out.writeObject("UNKNOWN_ACTION");
-                            out.flush();
-                            System.err.println("Unknown action: " + action);
+                            Protocol.writeFrame(dout, frame.payload);
                         }
-                    } catch (EOFException e) {
-                        System.out.println("← Client disconnected (EOF): " + clientId);
-                        break;
-                    } catch (SocketException e) {
-                        System.out.println("← Client connection lost: " + clientId);
+                        written.add(frame);
+                        if (written.size() >= 256) flushWritten(dout, written);
+                    }
+                    flushWritten(dout, written);
+                } while (outbound.drained());
+            } catch (IOException e) {
+                LOG.warn("Write failed").with("client", clientId).error(e).log();
+                closeQuietly();
+            }
+        }
+
+        private void flushWritten(DataOutputStream dout, List<OutboundQueue.Frame> written) throws IOException {
+            if (written.isEmpty()) return;
+            dout.flush();
+            for (OutboundQueue.Frame frame : written) {
+                outbound.written(frame);
+            }
+            written.clear();
+        }
+
+        private void serveObjectStreams(InputStream input, OutputStream output) throws IOException {
+            // Khởi tạo streams
+            out = new ObjectOutputStream(output);
+            out.flush();
+            in = new ObjectInputStream(input);
+            session = new ClientSession(clientId, ClientSession.OBJECT_STREAM, null);
+            LOG.info("→ Client handler started").with("client", clientId).with("version", "object-stream").log();
+            // Vòng lặp xử lý requests từ client
+            while (!socket.isClosed() && isRunning) {
+                try {
+                    // Đọc action từ client
+                    String action = (String) in.readObject();
+                    idleTimeout.touch();
+                    if ("PING".equals(action)) {
+                        heartbeat(session);
+                        out.writeObject("PONG");
+                        out.flush();
+                        continue;
+                    }
+                    // Xử lý disconnect
+                    if ("DISCONNECT".equals(action)) {
+                        LOG.info("← Client requested disconnect").with("client", clientId).log();
                         break;
-                    } catch (ClassNotFoundException e) {
-                        System.err.println("Invalid object received from " + clientId);
-                        e.printStackTrace();
-                    } catch (Exception e) {
-                        throw new RuntimeException(e);
                     }
+                    execute(action, session, 0, in::readObject, out::writeObject);
+                    out.flush();
+                } catch (EOFException e) {
+                    LOG.info("← Client disconnected (EOF)").with("client", clientId).log();
+                    break;
+                } catch (SocketException e) {
+                    LOG.info("← Client connection lost").with("client", clientId).log();
+                    break;
+                } catch (ClassNotFoundException e) {
+                    LOG.error("Invalid object received").with("client", clientId).error(e).log();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
                 }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Reader có thể đang chờ trong awaitReading()
+            if (outbound != null) outbound.close();
+            if (socket != null && !socket.isClosed()) {
+                socket.close();
+            }
+        }
+
+        /**
+         * Quá hạn heartbeat: đóng socket, read đang chặn sẽ ném SocketException
+         */
+        private void closeIdle() {
+            LOG.info("⏱ Idle timeout").with("client", clientId).log();
+            closeQuietly();
+        }
+
+        private void closeQuietly() {
+            try {
+                close();
             } catch (IOException e) {
-                System.err.println("Error handling client " + clientId + ": " + e.getMessage());
-            } finally {
-                cleanup();
+                // Ignore
             }
         }
 
         private void cleanup() {
+            if (idleTimeout != null) idleTimeout.stop();
+            if (outbound != null) outbound.close();
             try {
                 if (in != null) in.close();
                 if (out != null) out.close();
                 if (socket != null && !socket.isClosed()) socket.close();
 
+                if (session != null) sessionClosed(session);
                 activeClients.remove(clientId);
-                System.out.println("✗ Client disconnected: " + clientId + " (Total: " + activeClients.size() + ")");
+                LOG.info("✗ Client disconnected").with("client", clientId).with("total", activeClients.size()).log();
             } catch (IOException e) {
-                System.err.println("Error closing resources for " + clientId);
+                LOG.warn("Error closing resources").with("client", clientId).error(e).log();
             }
         }
     }
@@ -167,16 +655,20 @@ public class TCPServer {
         System.out.println("\n⚠ Shutting down server...");
         isRunning = false;
         // Đóng tất cả client connections
-        for (ClientHandler handler : activeClients.values()) {
+        for (Closeable connection : activeClients.values()) {
             try {
-                if (handler.socket != null && !handler.socket.isClosed()) {
-                    handler.socket.close();
-                }
+                connection.close();
             } catch (IOException e) {
                 // Ignore
             }
         }
+        if (nioServer != null) {
+            nioServer.stop();
+        }
         // Shutdown thread pool
+        if (requestPool != threadPool) {
+            requestPool.shutdownNow();
+        }
         threadPool.shutdown();
         try {
             if (!threadPool.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -186,6 +678,13 @@ public class TCPServer {
             threadPool.shutdownNow();
         }
 
+        emailOutbox.stop();
+        verificationExpiry.stop();
+        messageWriter.stop();
+        TimingWheel.shared().stop();
+        DB.pool().shutdown();
+        Log.flush(1000);
+
         // Đóng server socket
         try {
             if (serverSocket != null && !serverSocket.isClosed()) {
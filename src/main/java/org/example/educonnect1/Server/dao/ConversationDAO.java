@@ -0,0 +1,141 @@
+package org.example.educonnect1.Server.dao;
+
+import org.example.educonnect1.Server.dao.MessageDAO.NewMessage;
+import org.example.educonnect1.Server.utils.DB;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bảng conversation_summaries: mỗi participant một dòng chứa snapshot tin nhắn cuối của conversation,
+ * cập nhật cùng transaction với lô tin nhắn. Inbox của một user là một lần đọc range trên
+ * index (user_id, updated_at, conversation_id), không JOIN và không tìm tin mới nhất trong messages.
+ */
+public class ConversationDAO {
+    public static final int PREVIEW_LENGTH = 100;
+
+    /**
+     * Một dòng inbox (peerId = 0 nếu không phải chat 1-1)
+     */
+    public static class InboxEntry {
+        public final int conversationId;
+        public final int peerId;
+        public final int lastMessageId;
+        public final int lastSenderId;
+        public final String lastPreview;
+        public final long updatedAt;
+
+        public InboxEntry(int conversationId, int peerId, int lastMessageId, int lastSenderId,
+                          String lastPreview, long updatedAt) {
+            this.conversationId = conversationId;
+            this.peerId = peerId;
+            this.lastMessageId = lastMessageId;
+            this.lastSenderId = lastSenderId;
+            this.lastPreview = lastPreview;
+            this.updatedAt = updatedAt;
+        }
+
+        /**
+         * Snapshot của tin nhắn cuối nhìn từ phía userId
+         */
+        public static InboxEntry of(NewMessage last, int userId, int[] participants) {
+            int peerId = 0;
+            if (participants.length == 2) peerId = participants[0] == userId ? participants[1] : participants[0];
+            return new InboxEntry(last.conversationId, peerId, last.id, last.senderId, preview(last.content), last.createdAt);
+        }
+
+        /**
+         * Thứ tự inbox: mới cập nhật trước, cùng thời điểm thì conversation id lớn trước
+         */
+        public boolean before(long updatedAt, int conversationId) {
+            return this.updatedAt > updatedAt || (this.updatedAt == updatedAt && this.conversationId > conversationId);
+        }
+    }
+
+    /**
+     * Tối đa PREVIEW_LENGTH char đầu, không cắt đôi cặp surrogate (emoji) ở cuối
+     */
+    public static String preview(String content) {
+        if (content.length() <= PREVIEW_LENGTH) return content;
+        int end = Character.isHighSurrogate(content.charAt(PREVIEW_LENGTH - 1)) ? PREVIEW_LENGTH - 1 : PREVIEW_LENGTH;
+        return content.substring(0, end);
+    }
+
+    /**
+     * Ghi snapshot tin nhắn cuối cho mọi participant, chạy trong transaction của MessageDAO.insertBatch.
+     * Chỉ ghi đè khi tin mới hơn snapshot hiện có nên replay journal không làm lùi inbox.
+     * Giá trị mới được bind lại làm tham số thay vì VALUES(col) (deprecated từ MySQL 8.0.20) hay row alias
+     * (H2 không hỗ trợ); last_message_id phải được gán cuối vì MySQL gán lần lượt từ trái sang phải.
+     */
+    static void upsertSummaries(Connection conn, Collection<NewMessage> latest, MessageDAO messageDAO) throws SQLException {
+        if (latest.isEmpty()) return;
+        String sql = "INSERT INTO conversation_summaries " +
+                "(user_id, conversation_id, peer_id, last_message_id, last_sender_id, last_preview, updated_at) " +
+                "VALUES (?,?,?,?,?,?,?) ON DUPLICATE KEY UPDATE " +
+                "last_sender_id = CASE WHEN ? > last_message_id THEN ? ELSE last_sender_id END, " +
+                "last_preview = CASE WHEN ? > last_message_id THEN ? ELSE last_preview END, " +
+                "updated_at = CASE WHEN ? > last_message_id THEN ? ELSE updated_at END, " +
+                "last_message_id = GREATEST(last_message_id, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (NewMessage last : latest) {
+                int[] participants = messageDAO.getParticipants(last.conversationId);
+                for (int userId : participants) {
+                    InboxEntry entry = InboxEntry.of(last, userId, participants);
+                    ps.setInt(1, userId);
+                    ps.setInt(2, entry.conversationId);
+                    if (entry.peerId > 0) ps.setInt(3, entry.peerId);
+                    else ps.setNull(3, Types.INTEGER);
+                    ps.setInt(4, entry.lastMessageId);
+                    ps.setInt(5, entry.lastSenderId);
+                    ps.setString(6, entry.lastPreview);
+                    Timestamp updatedAt = new Timestamp(entry.updatedAt);
+                    ps.setTimestamp(7, updatedAt);
+                    ps.setInt(8, entry.lastMessageId);
+                    ps.setInt(9, entry.lastSenderId);
+                    ps.setInt(10, entry.lastMessageId);
+                    ps.setString(11, entry.lastPreview);
+                    ps.setInt(12, entry.lastMessageId);
+                    ps.setTimestamp(13, updatedAt);
+                    ps.setInt(14, entry.lastMessageId);
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Tối đa limit dòng inbox xếp sau (afterUpdatedAt, afterConversationId), null = trang đầu
+     */
+    public List<InboxEntry> inbox(int userId, Long afterUpdatedAt, int afterConversationId, int limit) {
+        String sql = "SELECT conversation_id, peer_id, last_message_id, last_sender_id, last_preview, updated_at " +
+                "FROM conversation_summaries WHERE user_id = ? " +
+                (afterUpdatedAt == null ? "" : "AND (updated_at < ? OR (updated_at = ? AND conversation_id < ?)) ") +
+                "ORDER BY updated_at DESC, conversation_id DESC LIMIT ?";
+        List<InboxEntry> entries = new ArrayList<>(limit);
+        try (Connection conn = DB.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int p = 1;
+            ps.setInt(p++, userId);
+            if (afterUpdatedAt != null) {
+                Timestamp after = new Timestamp(afterUpdatedAt);
+                ps.setTimestamp(p++, after);
+                ps.setTimestamp(p++, after);
+                ps.setInt(p++, afterConversationId);
+            }
+            ps.setInt(p, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    entries.add(new InboxEntry(rs.getInt("conversation_id"), rs.getInt("peer_id"),
+                            rs.getInt("last_message_id"), rs.getInt("last_sender_id"), rs.getString("last_preview"),
+                            rs.getTimestamp("updated_at").getTime()));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.educonnect1.Server.dao;
+
+import org.example.educonnect1.Server.utils.DB;
+import org.example.educonnect1.logging.Log;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class EmailOutboxDAO {
+    private static final Log LOG = Log.get("db");
+
+    public static class PendingEmail {
+        public final long id;
+        public final String recipient;
+        public final String subject;
+        public final String body;
+        public final int attempts;
+
+        PendingEmail(long id, String recipient, String subject, String body, int attempts) {
+            this.id = id;
+            this.recipient = recipient;
+            this.subject = subject;
+            this.body = body;
+            this.attempts = attempts;
+        }
+    }
+
+    public long enqueue(String recipient, String subject, String body) {
+        String sql = "INSERT INTO email_outbox (recipient, subject, body) VALUES (?,?,?)";
+        try (Connection conn = DB.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, recipient);
+            ps.setString(2, subject);
+            ps.setString(3, body);
+            ps.executeUpdate();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                return rs.next() ? rs.getLong(1) : -1;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Các email đến hạn gửi, cũ nhất trước
+     */
+    public List<PendingEmail> findDue(int limit) {
+        List<PendingEmail> list = new ArrayList<>();
+        String sql = "SELECT id, recipient, subject, body, attempts FROM email_outbox " +
+                "WHERE status = 'pending' AND next_attempt_at <= NOW() ORDER BY id LIMIT ?";
+        try (Connection conn = DB.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(new PendingEmail(rs.getLong("id"), rs.getString("recipient"),
+                            rs.getString("subject"), rs.getString("body"), rs.getInt("attempts")));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return list;
+    }
+
+    public void markSent(List<Long> ids) {
+        if (ids.isEmpty()) return;
+        String sql = "UPDATE email_outbox SET status = 'sent', attempts = attempts + 1 WHERE id = ?";
+        try (Connection conn = DB.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (long id : ids) {
+                ps.setLong(1, id);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } catch (SQLException e) {
+            LOG.error("Query failed").with("op", "markSent").error(e).log();
+        }
+    }
+
+    /**
+     * Hẹn lần gửi lại, hoặc đánh dấu failed nếu nextAttempt == null
+     */
+    public void markAttemptFailed(long id, String error, LocalDateTime nextAttempt) {
+        String sql = nextAttempt != null
+                ? "UPDATE email_outbox SET attempts = attempts + 1, last_error = ?, next_attempt_at = ? WHERE id = ?"
+                : "UPDATE email_outbox SET attempts = attempts + 1, last_error = ?, status = 'failed' WHERE id = ?";
+        try (Connection conn = DB.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, error == null ? null : error.substring(0, Math.min(error.length(), 500)));
+            if (nextAttempt != null) {
+                ps.setTimestamp(2, Timestamp.valueOf(nextAttempt));
+                ps.setLong(3, id);
+            } else {
+                ps.setLong(2, id);
+            }
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            LOG.error("Query failed").with("op", "markAttemptFailed").error(e).log();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.educonnect1.Server.dao;
+
+import org.example.educonnect1.Server.utils.DB;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class FriendDAO {
+
+    /**
+     * id bạn bè của user (friends có thể lưu một hoặc hai chiều nên lấy cả hai phía)
+     */
+    public int[] getFriendIds(int userId) {
+        String sql = "SELECT friend_id FROM friends WHERE user_id = ? UNION SELECT user_id FROM friends WHERE friend_id = ?";
+        try (Connection conn = DB.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, userId);
+            ps.setInt(2, userId);
+            List<Integer> ids = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+            return ids.stream().mapToInt(Integer::intValue).toArray();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
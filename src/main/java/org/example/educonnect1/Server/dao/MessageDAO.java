@@ -0,0 +1,315 @@
+package org.example.educonnect1.Server.dao;
+
+import org.example.educonnect1.Server.utils.DB;
+import org.example.educonnect1.client.models.Message;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class MessageDAO {
+    // Số dòng tối đa trong một câu INSERT nhiều dòng
+    private static final int ROWS_PER_STATEMENT = 500;
+
+    // (user nhỏ, user lớn) -> conversation 1-1, để không phải tra DB mỗi tin nhắn
+    private static final ConcurrentHashMap<Long, Integer> directConversations = new ConcurrentHashMap<>();
+    // Tạo conversation 1-1 tuần tự theo cặp user (chia stripe theo directKey), để hai người nhắn cho nhau
+    // lần đầu cùng lúc không tạo ra hai conversation
+    private static final int CREATE_STRIPES = 64; // lũy thừa của 2
+    private static final Object[] createLocks = new Object[CREATE_STRIPES];
+    static {
+        for (int i = 0; i < CREATE_STRIPES; i++) createLocks[i] = new Object();
+    }
+    // conversationId -> participant, để cộng unread cho người nhận mà không tra DB mỗi lô.
+    // Thành viên nhóm có thể đổi ngoài server (thêm/bỏ trong conversation_participants) nên chỉ giữ PARTICIPANTS_TTL_MS
+    private static final long PARTICIPANTS_TTL_MS = Long.getLong("educonnect.participants.ttlMs", 30_000);
+    private static final ConcurrentHashMap<Integer, Participants> participants = new ConcurrentHashMap<>();
+
+    private static final class Participants {
+        final int[] userIds;
+        final long loadedAt;
+
+        Participants(int[] userIds) {
+            this.userIds = userIds;
+            this.loadedAt = System.currentTimeMillis();
+        }
+
+        boolean fresh() {
+            return System.currentTimeMillis() - loadedAt < PARTICIPANTS_TTL_MS;
+        }
+    }
+
+    public static class NewMessage {
+        public final int id;
+        public final int conversationId;
+        public final int senderId;
+        public final String content;
+        public final long createdAt;
+
+        public NewMessage(int id, int conversationId, int senderId, String content, long createdAt) {
+            this.id = id;
+            this.conversationId = conversationId;
+            this.senderId = senderId;
+            this.content = content;
+            this.createdAt = createdAt;
+        }
+    }
+
+    /**
+     * Một trang lịch sử, mới nhất trước; nextBefore = id cũ nhất của trang (null = hết)
+     */
+    public static class HistoryPage {
+        public final List<Message> messages;
+        public final Integer nextBefore;
+
+        public HistoryPage(List<Message> messages, Integer nextBefore) {
+            this.messages = messages;
+            this.nextBefore = nextBefore;
+        }
+    }
+
+    /**
+     * Conversation 1-1 giữa hai user, tạo mới (kèm 2 participant) nếu chưa có
+     */
+    public int getOrCreateConversation(int user1, int user2) {
+        Integer existing = findDirectConversation(user1, user2);
+        if (existing != null) return existing;
+        long key = directKey(user1, user2);
+        synchronized (createLocks[Long.hashCode(key * 0x9E3779B97F4A7C15L) & (CREATE_STRIPES - 1)]) {
+            // Người kia có thể vừa tạo xong trong lúc mình chờ lock
+            existing = findDirectConversation(user1, user2);
+            if (existing != null) return existing;
+            Integer created = createDirectConversation(key, user1, user2);
+            if (created != null) return created;
+            existing = findDirectConversation(user1, user2);
+            if (existing == null) throw new IllegalStateException("Direct conversation vanished: " + user1 + "-" + user2);
+            return existing;
+        }
+    }
+
+    /**
+     * @return id conversation mới, null nếu cặp này đã có conversation (vi phạm unique_direct_key)
+     */
+    private Integer createDirectConversation(long key, int user1, int user2) {
+        try (Connection conn = DB.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int id;
+                try (PreparedStatement ps = conn.prepareStatement("INSERT INTO conversations (direct_key) VALUES (?)",
+                        Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setLong(1, key);
+                    ps.executeUpdate();
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        rs.next();
+                        id = rs.getInt(1);
+                    }
+                }
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO conversation_participants (conversation_id, user_id) VALUES (?,?),(?,?)")) {
+                    ps.setInt(1, id);
+                    ps.setInt(2, user1);
+                    ps.setInt(3, id);
+                    ps.setInt(4, user2);
+                    ps.executeUpdate();
+                }
+                conn.commit();
+                directConversations.put(key, id);
+                participants.put(id, new Participants(new int[]{user1, user2}));
+                return id;
+            } catch (SQLIntegrityConstraintViolationException e) {
+                // unique_direct_key: một server khác vừa tạo conversation cho cặp này, caller đọc lại sau khi trả kết nối
+                conn.rollback();
+                return null;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Conversation 1-1 giữa hai user, null nếu chưa từng nhắn tin (không tạo mới).
+     * Tìm theo conversations.direct_key chứ không theo số participant: nhóm chỉ có hai người này không phải chat 1-1
+     */
+    public Integer findDirectConversation(int user1, int user2) {
+        long key = directKey(user1, user2);
+        Integer cached = directConversations.get(key);
+        if (cached != null) return cached;
+
+        try (Connection conn = DB.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT id FROM conversations WHERE direct_key = ?")) {
+            ps.setLong(1, key);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                int id = rs.getInt(1);
+                directConversations.put(key, id);
+                return id;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static long directKey(int user1, int user2) {
+        return ((long) Math.min(user1, user2) << 32) | Math.max(user1, user2);
+    }
+
+    public boolean isParticipant(int conversationId, int userId) {
+        for (int participant : getParticipants(conversationId)) {
+            if (participant == userId) return true;
+        }
+        return false;
+    }
+
+    /**
+     * userId của mọi participant trong conversation (cache tối đa PARTICIPANTS_TTL_MS)
+     */
+    public int[] getParticipants(int conversationId) {
+        Participants cached = participants.get(conversationId);
+        if (cached != null && cached.fresh()) return cached.userIds;
+        String sql = "SELECT user_id FROM conversation_participants WHERE conversation_id = ?";
+        try (Connection conn = DB.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, conversationId);
+            List<Integer> ids = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+            int[] result = ids.stream().mapToInt(Integer::intValue).toArray();
+            participants.put(conversationId, new Participants(result));
+            return result;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Gọi sau khi thêm/bỏ thành viên của conversation: lần sau đọc lại từ DB thay vì chờ hết TTL
+     */
+    public static void invalidateParticipants(int conversationId) {
+        participants.remove(conversationId);
+    }
+
+    /**
+     * Tối đa limit tin nhắn có id < beforeId (null = mới nhất), mới nhất trước.
+     * Đi thẳng trên index (conversation_id, id) nên chi phí không phụ thuộc độ dài hội thoại.
+     */
+    public List<Message> getMessages(int conversationId, Integer beforeId, int limit) {
+        String sql = "SELECT id, conversation_id, sender_id, content, created_at FROM messages " +
+                "WHERE conversation_id = ? AND id < ? ORDER BY id DESC LIMIT ?";
+        List<Message> messages = new ArrayList<>(limit);
+        try (Connection conn = DB.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, conversationId);
+            ps.setInt(2, beforeId == null ? Integer.MAX_VALUE : beforeId);
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    messages.add(new Message(rs.getInt("id"), rs.getInt("conversation_id"), rs.getInt("sender_id"),
+                            rs.getString("content"), rs.getTimestamp("created_at").getTime()));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return messages;
+    }
+
+    /**
+     * id lớn nhất trong messages (0 nếu trống), để MessageWriter cấp id tiếp theo
+     */
+    public int maxMessageId() {
+        try (Connection conn = DB.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT COALESCE(MAX(id), 0) FROM messages");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * id tin mới nhất của conversation trong messages (0 nếu chưa có), một lần đọc trên idx_conversation_id_id
+     */
+    public int latestMessageId(int conversationId) {
+        try (Connection conn = DB.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT COALESCE(MAX(id), 0) FROM messages WHERE conversation_id = ?")) {
+            ps.setInt(1, conversationId);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void insertBatch(List<NewMessage> batch) {
+        insertBatch(batch, Collections.emptyMap());
+    }
+
+    /**
+     * Ghi cả lô trong MỘT transaction bằng INSERT nhiều dòng, cùng với phần cộng thêm vào unread_counters
+     * và snapshot tin nhắn cuối trong conversation_summaries.
+     * id do MessageWriter cấp nên ON DUPLICATE KEY UPDATE id = id làm việc replay journal sau crash không tạo bản trùng
+     * (replay không cộng unread, bộ đếm của các conversation đó được đếm lại). Không dùng INSERT IGNORE:
+     * nó biến cả lỗi FK / dữ liệu sai thành warning và lặng lẽ bỏ dòng, trong khi người gửi đã nhận SUCCESS;
+     * lỗi thật phải làm hỏng cả lô để MessageWriter retry và báo.
+     */
+    public void insertBatch(List<NewMessage> batch, Map<Long, UnreadDAO.Delta> unreadDeltas) {
+        try (Connection conn = DB.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (int from = 0; from < batch.size(); from += ROWS_PER_STATEMENT) {
+                    List<NewMessage> rows = batch.subList(from, Math.min(batch.size(), from + ROWS_PER_STATEMENT));
+                    StringBuilder sql = new StringBuilder(
+                            "INSERT INTO messages (id, conversation_id, sender_id, content, created_at) VALUES ");
+                    for (int i = 0; i < rows.size(); i++) {
+                        sql.append(i == 0 ? "(?,?,?,?,?)" : ",(?,?,?,?,?)");
+                    }
+                    sql.append(" ON DUPLICATE KEY UPDATE id = id");
+                    try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                        int p = 1;
+                        for (NewMessage m : rows) {
+                            ps.setInt(p++, m.id);
+                            ps.setInt(p++, m.conversationId);
+                            ps.setInt(p++, m.senderId);
+                            ps.setString(p++, m.content);
+                            ps.setTimestamp(p++, new Timestamp(m.createdAt));
+                        }
+                        ps.executeUpdate();
+                    }
+                }
+                UnreadDAO.addUnread(conn, unreadDeltas);
+                ConversationDAO.upsertSummaries(conn, latestPerConversation(batch).values(), this);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Tin nhắn cuối của mỗi conversation trong lô (lô xếp theo id tăng dần)
+     */
+    public static Map<Integer, NewMessage> latestPerConversation(List<NewMessage> batch) {
+        Map<Integer, NewMessage> latest = new LinkedHashMap<>();
+        for (NewMessage m : batch) {
+            latest.put(m.conversationId, m);
+        }
+        return latest;
+    }
+}
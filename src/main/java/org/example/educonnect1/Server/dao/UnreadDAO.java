@@ -0,0 +1,182 @@
+package org.example.educonnect1.Server.dao;
+
+import org.example.educonnect1.Server.utils.DB;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bảng unread_counters: mỗi (user, conversation) một dòng gồm số tin chưa đọc và id tin cuối đã đọc.
+ * Khóa chính (user_id, conversation_id) nên badge của một user là một lần đọc range trên khóa chính.
+ */
+public class UnreadDAO {
+
+    /**
+     * key của map delta: (userId << 32) | conversationId
+     */
+    public static long key(int userId, int conversationId) {
+        return ((long) userId << 32) | (conversationId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Phần cộng thêm cho một (user, conversation) từ một lô tin nhắn: id các tin đó, tăng dần như trong lô.
+     * Giữ từng id chứ không chỉ số lượng: lô có thể vắt qua mốc đã đọc (tin 5..10, đã đọc tới 7),
+     * khi đó chỉ các tin sau mốc được cộng.
+     */
+    public static final class Delta {
+        private int[] ids = new int[4];
+        private int count;
+
+        public void add(int messageId) {
+            if (count == ids.length) ids = Arrays.copyOf(ids, count * 2);
+            ids[count++] = messageId;
+        }
+
+        public int count() {
+            return count;
+        }
+
+        public int id(int i) {
+            return ids[i];
+        }
+
+        /**
+         * Số tin có id > lastReadId
+         */
+        public int countAfter(int lastReadId) {
+            int i = count;
+            while (i > 0 && ids[i - 1] > lastReadId) i--;
+            return count - i;
+        }
+    }
+
+    /**
+     * conversationId -> số tin chưa đọc (chỉ các conversation có tin chưa đọc)
+     */
+    public Map<Integer, Integer> load(int userId) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        String sql = "SELECT conversation_id, unread FROM unread_counters WHERE user_id = ? AND unread > 0";
+        try (Connection conn = DB.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    counts.put(rs.getInt(1), rs.getInt(2));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return counts;
+    }
+
+    /**
+     * Cộng dồn số tin chưa đọc, chạy trong transaction ghi tin nhắn của MessageDAO.insertBatch.
+     * Mỗi tin một dòng trong batch và chỉ cộng khi id tin > last_read_id: user đã đọc tới (hoặc qua) tin đó trước
+     * khi lô được ghi (MARK_MESSAGES_READ đến khi tin còn nằm trong journal) thì không cộng, nếu không badge
+     * của tin đã đọc sẽ hiện lại.
+     */
+    static void addUnread(Connection conn, Map<Long, Delta> deltas) throws SQLException {
+        if (deltas.isEmpty()) return;
+        String sql = "INSERT INTO unread_counters (user_id, conversation_id, unread) VALUES (?,?,1) " +
+                "ON DUPLICATE KEY UPDATE unread = unread + CASE WHEN ? > last_read_id THEN 1 ELSE 0 END";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (Map.Entry<Long, Delta> entry : deltas.entrySet()) {
+                Delta delta = entry.getValue();
+                for (int i = 0; i < delta.count(); i++) {
+                    ps.setInt(1, (int) (entry.getKey() >>> 32));
+                    ps.setInt(2, entry.getKey().intValue());
+                    ps.setInt(3, delta.id(i));
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Đã đọc tới lastReadId: đưa bộ đếm về 0
+     */
+    public void markRead(int userId, int conversationId, int lastReadId) {
+        String sql = "INSERT INTO unread_counters (user_id, conversation_id, unread, last_read_id) VALUES (?,?,0,?) " +
+                "ON DUPLICATE KEY UPDATE unread = 0, last_read_id = GREATEST(last_read_id, ?)";
+        try (Connection conn = DB.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, userId);
+            ps.setInt(2, conversationId);
+            ps.setInt(3, lastReadId);
+            ps.setInt(4, lastReadId);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Đếm lại từ messages cho mọi participant của một conversation (tin của người khác có id > last_read_id)
+     * và sửa các bộ đếm lệch
+     *
+     * @return userId -> số đúng, chỉ gồm các bộ đếm đã bị sửa
+     */
+    public Map<Integer, Integer> rebuild(int conversationId) {
+        Map<Integer, Integer> changed = new HashMap<>();
+        String count = "SELECT cp.user_id, COALESCE(uc.unread, 0) AS stored, " +
+                "(SELECT COUNT(*) FROM messages m WHERE m.conversation_id = cp.conversation_id " +
+                "AND m.id > COALESCE(uc.last_read_id, 0) AND m.sender_id <> cp.user_id) AS actual " +
+                "FROM conversation_participants cp LEFT JOIN unread_counters uc " +
+                "ON uc.user_id = cp.user_id AND uc.conversation_id = cp.conversation_id " +
+                "WHERE cp.conversation_id = ?";
+        String upsert = "INSERT INTO unread_counters (user_id, conversation_id, unread) VALUES (?,?,?) " +
+                "ON DUPLICATE KEY UPDATE unread = ?";
+        try (Connection conn = DB.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(count)) {
+                ps.setInt(1, conversationId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        int actual = rs.getInt("actual");
+                        if (rs.getInt("stored") != actual) changed.put(rs.getInt("user_id"), actual);
+                    }
+                }
+            }
+            if (changed.isEmpty()) return changed;
+            try (PreparedStatement ps = conn.prepareStatement(upsert)) {
+                for (Map.Entry<Integer, Integer> entry : changed.entrySet()) {
+                    ps.setInt(1, entry.getKey());
+                    ps.setInt(2, conversationId);
+                    ps.setInt(3, entry.getValue());
+                    ps.setInt(4, entry.getValue());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return changed;
+    }
+
+    /**
+     * Tối đa limit conversation id lớn hơn afterId, dùng để duyệt toàn bộ theo từng đợt
+     */
+    public List<Integer> conversationIds(int afterId, int limit) {
+        List<Integer> ids = new ArrayList<>(limit);
+        String sql = "SELECT id FROM conversations WHERE id > ? ORDER BY id LIMIT ?";
+        try (Connection conn = DB.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return ids;
+    }
+}
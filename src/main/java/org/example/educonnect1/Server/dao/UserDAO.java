@@ -1,19 +1,58 @@
 package org.example.educonnect1.Server.dao;
 
 import org.example.educonnect1.client.models.User;
+import org.example.educonnect1.client.models.UserSummary;
 import org.example.educonnect1.Server.utils.DB;
+import org.example.educonnect1.Server.utils.NameIndex;
+import org.example.educonnect1.Server.utils.UserCache;
+import org.example.educonnect1.logging.Log;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 public class UserDAO {
-    Connection conn = DB.connect();
+    private static final Log LOG = Log.get("db");
+    // Dùng chung cho mọi UserDAO để invalidate ở đâu cũng có hiệu lực
+    private static final UserCache cache = new UserCache(
+            Integer.getInteger("educonnect.userCache.size", 10_000),
+            Long.getLong("educonnect.userCache.ttlMs", 60_000));
+
+    // Index tên cho SEARCH_FRIEND, nạp bằng loadNameIndex() lúc server khởi động
+    private static final NameIndex nameIndex = new NameIndex();
+
+    public static UserCache cache() {
+        return cache;
+    }
+
+    public static NameIndex nameIndex() {
+        return nameIndex;
+    }
+
+    /**
+     * Nạp toàn bộ (id, full_name, avatar) vào nameIndex; trước khi xong findByName vẫn dùng LIKE
+     */
+    public void loadNameIndex() {
+        String sql = "SELECT id, full_name, avatar FROM users";
+        try (Connection conn = DB.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            DB.streamResults(conn, ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    nameIndex.putIfAbsent(rs.getInt("id"), rs.getString("full_name"), rs.getString("avatar"));
+                }
+            }
+            nameIndex.markReady();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
     public boolean saveUser(User user) {
         String sql = "INSERT INTO users (email, password, full_name, is_verified, verification_code, verification_expiry,avatar) VALUES (?,?,?,?,?,?,?)";
-        try (
-                PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection conn = DB.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setString(1, user.getEmail());
             ps.setString(2, user.getPassWord());
             ps.setString(3, user.getFullName());
@@ -26,11 +65,13 @@ public class UserDAO {
                 ps.setTimestamp(6, null);
             }
             int affected = ps.executeUpdate();
+            cache.invalidate(user.getEmail());
             if (affected == 0) return false;
 
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) user.setId(rs.getInt(1));
             }
+            nameIndex.put(user.getId(), user.getFullName(), user.getAvatar());
             return true;
         } catch (SQLException e) {
             throw new RuntimeException(e);
@@ -38,10 +79,27 @@ public class UserDAO {
     }
 
     public User findByEmail(String email) {
-        String sql = "SELECT * from users where email=?";
-        try (
-                PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, email);
+        return cache.getByEmail(email, () -> loadUser("SELECT * from users where email=?", email));
+    }
+
+    public User findById(int id) {
+        return cache.getById(id, () -> loadUser("SELECT * from users where id=?", id));
+    }
+
+    /**
+     * Tên + avatar để hiển thị, lấy từ nameIndex (RAM) nếu có, không thì qua cache/DB
+     */
+    public UserSummary findSummary(int id) {
+        UserSummary summary = nameIndex.get(id);
+        if (summary != null) return summary;
+        User user = findById(id);
+        return user == null ? null : new UserSummary(user.getId(), user.getFullName(), user.getAvatar());
+    }
+
+    private User loadUser(String sql, Object key) {
+        try (Connection conn = DB.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setObject(1, key);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
                     User u = new User();
@@ -68,25 +126,95 @@ public class UserDAO {
 
     public void markVerified(String email) {
         String sql = "UPDATE users SET is_verified = TRUE, verification_code = NULL WHERE email = ?";
-        try (Connection conn = DB.connect();
+        try (Connection conn = DB.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, email);
             stmt.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error("Query failed").with("op", "markVerified").error(e).log();
+        } finally {
+            cache.invalidate(email);
         }
     }
 
     public void updateVerification(User user) {
         String sql = "UPDATE users SET verification_code = ?, verification_expiry = ? WHERE email = ?";
-        try (Connection conn = DB.connect();
+        try (Connection conn = DB.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, user.getVerificationCode());
             stmt.setTimestamp(2, Timestamp.valueOf(user.getVerificationExpiry()));
             stmt.setString(3, user.getEmail());
             stmt.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error("Query failed").with("op", "updateVerification").error(e).log();
+        } finally {
+            cache.invalidate(user.getEmail());
+        }
+    }
+
+    /**
+     * Xóa mã xác thực đã quá hạn của một tài khoản chưa xác thực
+     */
+    public void clearExpiredVerification(String email) {
+        String sql = "UPDATE users SET verification_code = NULL " +
+                "WHERE email = ? AND is_verified = FALSE AND verification_expiry <= ?";
+        try (Connection conn = DB.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, email);
+            stmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            cache.invalidate(email);
+        }
+    }
+
+    /**
+     * Xóa mọi mã xác thực đã quá hạn (mã hết hạn khi server không chạy)
+     *
+     * @return số tài khoản bị xóa mã
+     */
+    public int clearExpiredVerifications() {
+        String where = " WHERE verification_code IS NOT NULL AND is_verified = FALSE AND verification_expiry <= ?";
+        // Cùng một mốc thời gian cho SELECT và UPDATE: mã mới cấp luôn hết hạn ở tương lai nên không lọt thêm dòng nào
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<String> emails = new ArrayList<>();
+        try (Connection conn = DB.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT email FROM users" + where)) {
+                stmt.setTimestamp(1, now);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        emails.add(rs.getString(1));
+                    }
+                }
+            }
+            if (emails.isEmpty()) return 0;
+            try (PreparedStatement stmt = conn.prepareStatement("UPDATE users SET verification_code = NULL" + where)) {
+                stmt.setTimestamp(1, now);
+                return stmt.executeUpdate();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            // Chỉ bỏ khỏi cache đúng các tài khoản bị xóa mã, không xóa cả cache
+            for (String email : emails) {
+                cache.invalidate(email);
+            }
+        }
+    }
+
+    public void updatePassword(String email, String passwordHash) {
+        String sql = "UPDATE users SET password = ? WHERE email = ?";
+        try (Connection conn = DB.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, passwordHash);
+            stmt.setString(2, email);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            LOG.error("Query failed").with("op", "updatePassword").error(e).log();
+        } finally {
+            cache.invalidate(email);
         }
     }
 
@@ -112,34 +240,83 @@ public class UserDAO {
 //    }
     public boolean updateAvatar(String email, String avatarUrl) {
         String sql = "UPDATE users SET avatar = ? WHERE email = ?";
-        try (
-                PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (Connection conn = DB.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, avatarUrl);
             ps.setString(2, email);
-            return ps.executeUpdate() > 0;
+            if (ps.executeUpdate() == 0) return false;
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error("Query failed").with("op", "updateAvatar").error(e).log();
             return false;
+        } finally {
+            cache.invalidate(email);
         }
+        User user = findByEmail(email);
+        if (user != null) nameIndex.put(user.getId(), user.getFullName(), user.getAvatar());
+        return true;
     }
 
-    public List<User> findByName(String name) {
-        List<User> list = new ArrayList<>();
-        String sql = "select id, full_name, avatar from users where full_name like ?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+    public List<UserSummary> findByName(String name) {
+        return findByName(name, null, Integer.MAX_VALUE).users;
+    }
+
+    /**
+     * Một trang kết quả tìm theo tên, nextCursor = null nếu đã hết
+     */
+    public static class NamePage {
+        public final List<UserSummary> users;
+        public final String nextCursor;
+
+        NamePage(List<UserSummary> users, String nextCursor) {
+            this.users = users;
+            this.nextCursor = nextCursor;
+        }
+    }
+
+    /**
+     * Phân trang keyset: cursor là vị trí của kết quả cuối trang trước (null = trang đầu).
+     * Cursor "i..." đi theo thứ tự xếp hạng của nameIndex, "s..." theo id của query SQL;
+     * một lượt tìm giữ nguyên nguồn đã bắt đầu kể cả khi index nạp xong giữa chừng.
+     */
+    public NamePage findByName(String name, String cursor, int pageSize) {
+        boolean useIndex = cursor == null ? nameIndex.isReady() : cursor.startsWith("i");
+        long after = -1;
+        if (cursor != null) {
+            try {
+                after = Long.parseLong(cursor.substring(1), 36);
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid search cursor: " + cursor);
+            }
+        }
+        int fetch = pageSize == Integer.MAX_VALUE ? pageSize : pageSize + 1; // thêm 1 dòng để biết còn trang sau
+        List<UserSummary> list = new ArrayList<>(Math.min(pageSize, 64));
+        long last = -1;
+        if (useIndex) {
+            for (NameIndex.Match match : nameIndex.search(name, after, fetch)) {
+                if (list.size() == pageSize) return new NamePage(list, "i" + Long.toString(last, 36));
+                list.add(match.user);
+                last = match.rank;
+            }
+            return new NamePage(list, null);
+        }
+
+        String sql = "select id, full_name, avatar from users where full_name like ? and id > ? order by id limit ?";
+        try (Connection conn = DB.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, "%" + name + "%");
+            ps.setLong(2, after);
+            ps.setInt(3, fetch);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    User u = new User();
-                    u.setId(rs.getInt("id"));
-                    u.setFullName(rs.getString("full_name"));
-                    u.setAvatar(rs.getString("avatar"));
-                    list.add(u);
+                    if (list.size() == pageSize) return new NamePage(list, "s" + Long.toString(last, 36));
+                    int id = rs.getInt(1);
+                    list.add(new UserSummary(id, rs.getString(2), rs.getString(3)));
+                    last = id;
                 }
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
-        return list;
+        return new NamePage(list, null);
     }
 }
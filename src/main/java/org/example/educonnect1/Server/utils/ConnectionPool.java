@@ -0,0 +1,294 @@
+package org.example.educonnect1.Server.utils;
+
+import org.example.educonnect1.logging.Log;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Pool JDBC có giới hạn: tối đa maxSize connection, chờ quá acquireTimeout thì báo lỗi.
+ * - Connection idle lâu được kiểm tra isValid() trước khi cho mượn
+ * - Thread nền đóng connection idle quá idleTimeout (giữ lại minIdle)
+ * - Connection bị mượn quá leakThreshold thì log thread đang giữ và stack hiện tại của nó (lấy lúc báo, không tốn gì
+ *   khi mượn); leakStackTraces = true thì chụp thêm stack chỗ mượn ở MỖI lần mượn, chỉ bật khi debug
+ * close() trên connection mượn ra chỉ trả nó về pool.
+ */
+public class ConnectionPool {
+    private static final Log LOG = Log.get("db");
+    private final Supplier<Connection> factory;
+    private final int maxSize;
+    private final int minIdle;
+    private final long acquireTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long validationIntervalMs;
+    private final long leakThresholdMs;
+    private final boolean leakStackTraces;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Set<PooledConnection> leased = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+
+    // Metrics
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LatencyHistogram waitTimes = new LatencyHistogram();
+    // Thời gian một connection bị giữ (mượn -> close), gần đúng thời gian chạy query của request
+    private final LatencyHistogram holdTimes = new LatencyHistogram();
+
+    public ConnectionPool(Supplier<Connection> factory, int maxSize, int minIdle, long acquireTimeoutMs,
+                          long idleTimeoutMs, long validationIntervalMs, long leakThresholdMs,
+                          boolean leakStackTraces) {
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.minIdle = Math.min(minIdle, maxSize);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.validationIntervalMs = validationIntervalMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.leakStackTraces = leakStackTraces;
+        this.permits = new Semaphore(maxSize, true);
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, (leakThresholdMs > 0 ? Math.min(idleTimeoutMs, leakThresholdMs) : idleTimeoutMs) / 2);
+        housekeeper.scheduleAtFixedRate(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Mượn một connection, luôn dùng trong try-with-resources
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTransientConnectionException("Connection pool exhausted: no connection available after "
+                        + acquireTimeoutMs + "ms (max " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection", e);
+        }
+        long waited = System.nanoTime() - start;
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        waitTimes.record(waited);
+        acquired.incrementAndGet();
+
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(factory.get());
+                created.incrementAndGet();
+            }
+            Connection handle = pooled.lease();
+            leased.add(pooled);
+            return handle;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw new SQLException("Cannot open database connection", e);
+        }
+    }
+
+    /**
+     * Lấy connection idle gần nhất (LIFO, còn "ấm"), kiểm tra lại nếu đã idle lâu
+     */
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - pooled.lastUsed < validationIntervalMs || pooled.isValid()) {
+                return pooled;
+            }
+            pooled.closePhysical();
+            evicted.incrementAndGet();
+        }
+        return null;
+    }
+
+    private void release(PooledConnection pooled) {
+        if (!leased.remove(pooled)) return;
+        holdTimes.recordSince(pooled.leasedAtNanos);
+        pooled.leasedByThread = null;
+        pooled.leasedBy = null;
+        try {
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            pooled.lastUsed = System.currentTimeMillis();
+            idle.addFirst(pooled);
+        } catch (SQLException e) {
+            pooled.closePhysical();
+            evicted.incrementAndGet();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        // Idle eviction: connection cũ nhất nằm cuối deque
+        while (idle.size() > minIdle) {
+            PooledConnection oldest = idle.peekLast();
+            if (oldest == null || now - oldest.lastUsed < idleTimeoutMs || !idle.remove(oldest)) break;
+            oldest.closePhysical();
+            evicted.incrementAndGet();
+        }
+        // Leak detection
+        if (leakThresholdMs <= 0) return;
+        for (PooledConnection pooled : leased) {
+            if (!pooled.leakReported && now - pooled.leasedAt > leakThresholdMs) {
+                pooled.leakReported = true;
+                leaks.incrementAndGet();
+                Thread holder = pooled.leasedByThread;
+                Throwable where = pooled.leasedBy;
+                if (where == null && holder != null) {
+                    // Thread giữ connection đang làm gì lúc này (thường vẫn nằm trong đoạn đã mượn)
+                    where = new Throwable("Holder is here now");
+                    where.setStackTrace(holder.getStackTrace());
+                }
+                LOG.error("⚠ Possible connection leak").with("heldMs", now - pooled.leasedAt)
+                        .with("thread", holder == null ? null : holder.getName()).error(where).log();
+            }
+        }
+    }
+
+    public void shutdown() {
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.closePhysical();
+        }
+    }
+
+    public Stats stats() {
+        long count = acquired.get();
+        return new Stats(maxSize, leased.size(), idle.size(), maxSize - permits.availablePermits() - leased.size(),
+                permits.getQueueLength(), count, timeouts.get(), created.get(), evicted.get(), leaks.get(),
+                count == 0 ? 0 : totalWaitNanos.get() / count / 1_000, maxWaitNanos.get() / 1_000,
+                waitTimes.snapshot().percentileMicros(99), holdTimes.snapshot().percentileMicros(99));
+    }
+
+    /**
+     * Snapshot metrics của pool (thời gian chờ tính bằng micro giây)
+     */
+    public static class Stats {
+        public final int maxSize, active, idle, opening, waiting;
+        public final long acquired, timeouts, created, evicted, leaks, avgWaitMicros, maxWaitMicros;
+        public final long p99WaitMicros, p99HoldMicros;
+
+        Stats(int maxSize, int active, int idle, int opening, int waiting, long acquired, long timeouts,
+              long created, long evicted, long leaks, long avgWaitMicros, long maxWaitMicros,
+              long p99WaitMicros, long p99HoldMicros) {
+            this.maxSize = maxSize;
+            this.active = active;
+            this.idle = idle;
+            this.opening = Math.max(0, opening);
+            this.waiting = waiting;
+            this.acquired = acquired;
+            this.timeouts = timeouts;
+            this.created = created;
+            this.evicted = evicted;
+            this.leaks = leaks;
+            this.avgWaitMicros = avgWaitMicros;
+            this.maxWaitMicros = maxWaitMicros;
+            this.p99WaitMicros = p99WaitMicros;
+            this.p99HoldMicros = p99HoldMicros;
+        }
+
+        @Override
+        public String toString() {
+            return "active=" + active + "/" + maxSize + " idle=" + idle + " waiting=" + waiting
+                    + " acquired=" + acquired + " timeouts=" + timeouts + " created=" + created
+                    + " evicted=" + evicted + " leaks=" + leaks
+                    + " avgWait=" + avgWaitMicros + "us p99Wait=" + p99WaitMicros + "us maxWait=" + maxWaitMicros + "us"
+                    + " p99Hold=" + p99HoldMicros + "us";
+        }
+    }
+
+    private class PooledConnection {
+        final Connection physical;
+        volatile long lastUsed = System.currentTimeMillis();
+        volatile long leasedAt;
+        volatile long leasedAtNanos;
+        volatile Thread leasedByThread;
+        volatile Throwable leasedBy; // chỉ khi leakStackTraces
+        volatile boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        /**
+         * Mỗi lần mượn có một handle riêng, handle cũ đã close() không dùng lại được
+         */
+        Connection lease() {
+            leasedAt = System.currentTimeMillis();
+            leasedAtNanos = System.nanoTime();
+            leasedByThread = Thread.currentThread();
+            leasedBy = leakStackTraces && leakThresholdMs > 0 ? new Throwable("Connection leased here") : null;
+            leakReported = false;
+            AtomicBoolean returned = new AtomicBoolean(false);
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (p, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                                if (returned.compareAndSet(false, true)) {
+                                    release(this);
+                                }
+                                return null;
+                            case "isClosed":
+                                return returned.get() || physical.isClosed();
+                            case "equals":
+                                return p == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(p);
+                            case "toString":
+                                return "Pooled(" + physical + ")";
+                        }
+                        if (returned.get()) {
+                            throw new SQLException("Connection already returned to pool");
+                        }
+                        try {
+                            return method.invoke(physical, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+
+        boolean isValid() {
+            try {
+                return physical.isValid(2);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        void closePhysical() {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                // Ignore
+            }
+        }
+    }
+}
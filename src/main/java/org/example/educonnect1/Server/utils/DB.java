@@ -1,19 +1,45 @@
 package org.example.educonnect1.Server.utils;
 
 
+import org.example.educonnect1.logging.Log;
+
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 public class DB {
-    // JDBC URL, username and password of MySQL server
-    private static final String URL = "jdbc:mysql://localhost:3306/educonnect";
-    private static final String USER = "root";
-    private static final String PASSWORD = "tungnebay123";
+    private static final Log LOG = Log.get("db");
+    // JDBC URL, username and password of MySQL server (-Deduconnect.db.url/user/password, vd. DB nhúng cho benchmark)
+    private static final String URL = System.getProperty("educonnect.db.url", "jdbc:mysql://localhost:3306/educonnect");
+    private static final String USER = System.getProperty("educonnect.db.user", "root");
+    private static final String PASSWORD = System.getProperty("educonnect.db.password", "tungnebay123");
+    private static final int STREAM_FETCH_SIZE = 1_000;
+
+    // Pool dùng chung cho mọi DAO; kích thước pool cũng là giới hạn số thao tác JDBC đồng thời
+    private static final ConnectionPool pool = new ConnectionPool(DB::connect,
+            Integer.getInteger("educonnect.db.poolSize", 20),
+            Integer.getInteger("educonnect.db.minIdle", 2),
+            Long.getLong("educonnect.db.acquireTimeoutMs", 5_000),
+            Long.getLong("educonnect.db.idleTimeoutMs", 5 * 60_000),
+            30_000,
+            Long.getLong("educonnect.db.leakThresholdMs", 30_000),
+            Boolean.getBoolean("educonnect.db.leakStackTraces"));
 
-    // JDBC variables for opening and managing connection
-    private static Connection connection;
+    /**
+     * Mượn connection từ pool, close() sẽ trả connection về pool
+     */
+    public static Connection getConnection() throws SQLException {
+        return pool.getConnection();
+    }
 
+    public static ConnectionPool pool() {
+        return pool;
+    }
+
+    /**
+     * Mở một connection vật lý mới (pool dùng hàm này để tạo connection)
+     */
     public static Connection connect() {
         try {
             Class.forName("com.mysql.cj.jdbc.Driver");
@@ -25,12 +51,21 @@ public class DB {
         }
     }
 
+    /**
+     * Đọc kết quả lớn theo từng phần thay vì nạp hết vào RAM. MySQL Connector/J chỉ stream khi fetch size là
+     * Integer.MIN_VALUE (không có useCursorFetch); driver khác (vd. H2) báo lỗi với số âm nên dùng fetch size dương.
+     */
+    public static void streamResults(Connection connection, Statement statement) throws SQLException {
+        String driver = connection.getMetaData().getDriverName();
+        statement.setFetchSize(driver != null && driver.startsWith("MySQL") ? Integer.MIN_VALUE : STREAM_FETCH_SIZE);
+    }
+
     public static void close(Connection connection) {
         if (connection != null) {
             try {
                 connection.close();
             } catch (SQLException e) {
-                e.printStackTrace();
+                LOG.warn("Cannot close connection").error(e).log();
             }
         }
     }
@@ -0,0 +1,157 @@
+package org.example.educonnect1.Server.utils;
+
+import org.example.educonnect1.Server.dao.EmailOutboxDAO;
+import org.example.educonnect1.Server.dao.EmailOutboxDAO.PendingEmail;
+import org.example.educonnect1.logging.Log;
+
+import javax.mail.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hàng đợi email bền vững: enqueue() chỉ ghi vào bảng email_outbox rồi trả về ngay,
+ * một thread nền gửi theo lô trên MỘT kết nối SMTP, lỗi thì retry với backoff tăng dần.
+ * Email chưa gửi vẫn nằm trong DB nên restart server không mất.
+ */
+public class EmailOutbox {
+    private static final Log LOG = Log.get("email");
+    private static final int BATCH_SIZE = 50;
+    private static final long POLL_INTERVAL_MS = 5_000;
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long BASE_BACKOFF_SECONDS = 5;
+    private static final long MAX_BACKOFF_SECONDS = 10 * 60;
+
+    private final EmailOutboxDAO dao;
+    private final Object signal = new Object();
+    private volatile boolean running;
+    private Thread sender;
+    private Session session;
+    private Transport transport;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public EmailOutbox(EmailOutboxDAO dao) {
+        this.dao = dao;
+    }
+
+    public void start() {
+        running = true;
+        sender = new Thread(this::runSender, "email-outbox");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    public void stop() {
+        running = false;
+        wakeUp();
+        closeTransport();
+    }
+
+    /**
+     * Lưu email vào outbox và đánh thức thread gửi, không chờ SMTP
+     */
+    public void enqueue(String to, String subject, String body) {
+        dao.enqueue(to, subject, body);
+        wakeUp();
+    }
+
+    private void wakeUp() {
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    private void runSender() {
+        while (running) {
+            try {
+                List<PendingEmail> batch = dao.findDue(BATCH_SIZE);
+                if (!batch.isEmpty()) {
+                    sendBatch(batch);
+                    if (batch.size() == BATCH_SIZE) continue; // còn việc, không chờ
+                } else {
+                    closeTransport(); // không giữ kết nối SMTP khi rảnh
+                }
+                synchronized (signal) {
+                    signal.wait(POLL_INTERVAL_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                LOG.error("Email outbox error").error(e).log();
+                sleepQuietly();
+            }
+        }
+    }
+
+    private void sendBatch(List<PendingEmail> batch) {
+        List<Long> delivered = new ArrayList<>(batch.size());
+        for (PendingEmail email : batch) {
+            try {
+                Transport t = connectedTransport();
+                Message message = EmailUtil.buildMessage(session, email.recipient, email.subject, email.body);
+                t.sendMessage(message, message.getAllRecipients());
+                delivered.add(email.id);
+                sent.incrementAndGet();
+            } catch (MessagingException e) {
+                scheduleRetry(email, e);
+                if (transport != null && !transport.isConnected()) {
+                    closeTransport();
+                }
+            }
+        }
+        dao.markSent(delivered);
+    }
+
+    private void scheduleRetry(PendingEmail email, MessagingException e) {
+        int attempts = email.attempts + 1;
+        if (attempts >= MAX_ATTEMPTS) {
+            failed.incrementAndGet();
+            LOG.warn("✗ Giving up on email").with("id", email.id).with("to", email.recipient)
+                    .with("attempts", attempts).error(e).log();
+            dao.markAttemptFailed(email.id, e.getMessage(), null);
+            return;
+        }
+        retried.incrementAndGet();
+        long delay = Math.min(MAX_BACKOFF_SECONDS, BASE_BACKOFF_SECONDS << (attempts - 1));
+        dao.markAttemptFailed(email.id, e.getMessage(), LocalDateTime.now().plusSeconds(delay));
+    }
+
+    private Transport connectedTransport() throws MessagingException {
+        if (transport == null || !transport.isConnected()) {
+            if (session == null) session = EmailUtil.createSession();
+            transport = session.getTransport("smtp");
+            transport.connect(EmailUtil.HOST, EmailUtil.PORT, EmailUtil.FROM, EmailUtil.PASSWORD);
+        }
+        return transport;
+    }
+
+    private void closeTransport() {
+        Transport t = transport;
+        transport = null;
+        if (t != null) {
+            try {
+                t.close();
+            } catch (MessagingException e) {
+                // Ignore
+            }
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(POLL_INTERVAL_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String stats() {
+        return "sent=" + sent.get() + " retried=" + retried.get() + " failed=" + failed.get();
+    }
+}
@@ -1,36 +1,57 @@
 package org.example.educonnect1.Server.utils;
 
+import org.example.educonnect1.logging.Log;
+
 import javax.mail.*;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
 import java.util.Properties;
 
 public class EmailUtil {
-    public static void sendEmail(String to, String subject, String body) {
-        final String from = "";
-        final String password = "";
+    private static final Log LOG = Log.get("email");
+    // Cấu hình SMTP, có thể trỏ sang SMTP giả lập khi test: -Deduconnect.smtp.host=localhost ...
+    static final String HOST = System.getProperty("educonnect.smtp.host", "smtp.gmail.com");
+    static final int PORT = Integer.getInteger("educonnect.smtp.port", 587);
+    static final String FROM = System.getProperty("educonnect.smtp.user", "");
+    static final String PASSWORD = System.getProperty("educonnect.smtp.password", "");
+    private static final boolean AUTH = Boolean.parseBoolean(System.getProperty("educonnect.smtp.auth", "true"));
+    private static final boolean STARTTLS = Boolean.parseBoolean(System.getProperty("educonnect.smtp.starttls", "true"));
 
+    public static Session createSession() {
         Properties props = new Properties();
-        props.put("mail.smtp.host", "smtp.gmail.com");
-        props.put("mail.smtp.port", "587");
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
+        props.put("mail.smtp.host", HOST);
+        props.put("mail.smtp.port", String.valueOf(PORT));
+        props.put("mail.smtp.auth", String.valueOf(AUTH));
+        props.put("mail.smtp.starttls.enable", String.valueOf(STARTTLS));
+        props.put("mail.smtp.connectiontimeout", "10000");
+        props.put("mail.smtp.timeout", "10000");
 
-        Session session = Session.getInstance(props, new Authenticator() {
+        return Session.getInstance(props, new Authenticator() {
             protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(from, password);
+                return new PasswordAuthentication(FROM, PASSWORD);
             }
         });
+    }
 
+    public static Message buildMessage(Session session, String to, String subject, String body) throws MessagingException {
+        Message message = new MimeMessage(session);
+        message.setFrom(new InternetAddress(FROM));
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(to));
+        message.setSubject(subject);
+        message.setContent(body, "text/html; charset=utf-8");
+        message.saveChanges();
+        return message;
+    }
+
+    /**
+     * Gửi đồng bộ, mở một kết nối SMTP mới cho mỗi email.
+     * Email của request nên đi qua EmailOutbox để không chặn thread xử lý client.
+     */
+    public static void sendEmail(String to, String subject, String body) {
         try {
-            Message message = new MimeMessage(session);
-            message.setFrom(new InternetAddress(from));
-            message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(to));
-            message.setSubject(subject);
-            message.setContent(body, "text/html; charset=utf-8");
-            Transport.send(message);
+            Transport.send(buildMessage(createSession(), to, subject, body));
         } catch (MessagingException e) {
-            e.printStackTrace();
+            LOG.error("Cannot send email").with("to", to).error(e).log();
         }
     }
 }
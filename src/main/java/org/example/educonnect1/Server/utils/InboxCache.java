@@ -0,0 +1,164 @@
+package org.example.educonnect1.Server.utils;
+
+import org.example.educonnect1.Server.dao.ConversationDAO;
+import org.example.educonnect1.Server.dao.ConversationDAO.InboxEntry;
+import org.example.educonnect1.Server.dao.MessageDAO;
+import org.example.educonnect1.Server.dao.MessageDAO.NewMessage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Giữ CACHE_SIZE dòng inbox mới nhất của mỗi user đang online. Mỗi lô tin nhắn được flush thì
+ * dòng của conversation tương ứng được đưa lên đầu cho mọi participant đang có trong cache.
+ * Trang nằm ngoài phần đã cache thì đọc từ conversation_summaries.
+ * Cùng cách khóa với UnreadCounters (UserStripes): ghi DB không giữ lock, rồi cập nhật cache theo từng stripe user;
+ * lần nạp xen giữa một lô đang ghi thì không được cache.
+ */
+public class InboxCache {
+    private static final int CACHE_SIZE = Integer.getInteger("educonnect.inbox.cacheSize", 50);
+
+    private final ConversationDAO dao;
+    private final MessageDAO messageDAO;
+    private final ConcurrentHashMap<Integer, Inbox> byUser = new ConcurrentHashMap<>();
+    private final UserStripes stripes = new UserStripes();
+
+    // Metrics
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+
+    /**
+     * Các dòng mới nhất, xếp như inbox; complete = user không có dòng nào ngoài danh sách này
+     */
+    private static class Inbox {
+        final List<InboxEntry> entries;
+        boolean complete;
+
+        Inbox(List<InboxEntry> entries, boolean complete) {
+            this.entries = entries;
+            this.complete = complete;
+        }
+    }
+
+    public InboxCache(ConversationDAO dao, MessageDAO messageDAO) {
+        this.dao = dao;
+        this.messageDAO = messageDAO;
+    }
+
+    /**
+     * Tối đa limit dòng xếp sau cursor (afterUpdatedAt = null: trang đầu)
+     */
+    public List<InboxEntry> page(int userId, Long afterUpdatedAt, int afterConversationId, int limit) {
+        UserStripes.Stripe stripe = stripes.of(userId);
+        List<InboxEntry> cached = cachedPage(stripe, byUser.get(userId), afterUpdatedAt, afterConversationId, limit);
+        if (cached != null) return cached;
+        if (!byUser.containsKey(userId)) {
+            long stamp = stripes.stamp(stripe);
+            loads.incrementAndGet();
+            List<InboxEntry> loaded = dao.inbox(userId, null, 0, CACHE_SIZE + 1);
+            boolean complete = loaded.size() <= CACHE_SIZE;
+            if (!complete) loaded.remove(CACHE_SIZE);
+            Inbox fresh = new Inbox(loaded, complete);
+            synchronized (stripe) {
+                // Có lô ghi chạm stripe trong lúc đọc: dùng kết quả cho lần này nhưng không cache
+                if (stripes.unchanged(stripe, stamp)) byUser.putIfAbsent(userId, fresh);
+            }
+            cached = cachedPage(stripe, fresh, afterUpdatedAt, afterConversationId, limit);
+            if (cached != null) return cached;
+        }
+        misses.incrementAndGet();
+        return dao.inbox(userId, afterUpdatedAt, afterConversationId, limit);
+    }
+
+    /**
+     * Trang lấy từ inbox đã cache, null nếu phần đã cache không đủ
+     */
+    private List<InboxEntry> cachedPage(UserStripes.Stripe stripe, Inbox inbox, Long afterUpdatedAt,
+                                        int afterConversationId, int limit) {
+        if (inbox == null) return null;
+        synchronized (stripe) {
+            int start = 0;
+            if (afterUpdatedAt != null) {
+                while (start < inbox.entries.size()
+                        && !isAfter(inbox.entries.get(start), afterUpdatedAt, afterConversationId)) {
+                    start++;
+                }
+            }
+            int available = inbox.entries.size() - start;
+            if (available < limit && !inbox.complete) return null;
+            hits.incrementAndGet();
+            return new ArrayList<>(inbox.entries.subList(start, start + Math.min(available, limit)));
+        }
+    }
+
+    private static boolean isAfter(InboxEntry entry, long updatedAt, int conversationId) {
+        return entry.updatedAt < updatedAt || (entry.updatedAt == updatedAt && entry.conversationId < conversationId);
+    }
+
+    /**
+     * Chạy write (ghi lô vào DB, gồm cả conversation_summaries) rồi đưa tin nhắn cuối của từng
+     * conversation lên đầu inbox của các participant đang được cache
+     */
+    public void commit(Runnable write, List<NewMessage> batch) {
+        Map<NewMessage, int[]> latest = new LinkedHashMap<>();
+        List<Integer> users = new ArrayList<>();
+        for (NewMessage last : MessageDAO.latestPerConversation(batch).values()) {
+            int[] participants = messageDAO.getParticipants(last.conversationId);
+            latest.put(last, participants);
+            for (int userId : participants) users.add(userId);
+        }
+        List<UserStripes.Stripe> touched = stripes.begin(users);
+        try {
+            write.run();
+            for (Map.Entry<NewMessage, int[]> entry : latest.entrySet()) {
+                int[] participants = entry.getValue();
+                for (int userId : participants) {
+                    synchronized (stripes.of(userId)) {
+                        Inbox inbox = byUser.get(userId);
+                        if (inbox != null) apply(inbox, InboxEntry.of(entry.getKey(), userId, participants));
+                    }
+                }
+            }
+        } finally {
+            stripes.end(touched);
+        }
+    }
+
+    private static void apply(Inbox inbox, InboxEntry entry) {
+        List<InboxEntry> entries = inbox.entries;
+        for (int i = 0; i < entries.size(); i++) {
+            InboxEntry old = entries.get(i);
+            if (old.conversationId != entry.conversationId) continue;
+            if (old.lastMessageId >= entry.lastMessageId) return;
+            entries.remove(i);
+            break;
+        }
+        int position = 0;
+        while (position < entries.size() && entries.get(position).before(entry.updatedAt, entry.conversationId)) {
+            position++;
+        }
+        // Cũ hơn mọi dòng đang cache mà phía sau còn dòng chưa cache: không biết vị trí đúng
+        if (position == entries.size() && !inbox.complete) return;
+        entries.add(position, entry);
+        if (entries.size() > CACHE_SIZE) {
+            entries.remove(entries.size() - 1);
+            inbox.complete = false;
+        }
+    }
+
+    /**
+     * User không còn kết nối nào: bỏ khỏi cache
+     */
+    public void evict(int userId) {
+        byUser.remove(userId);
+    }
+
+    public String stats() {
+        return "users=" + byUser.size() + " hits=" + hits.get() + " misses=" + misses.get() + " loads=" + loads.get();
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.educonnect1.Server.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram latency kiểu HDR (log-linear) với số bucket cố định, đơn vị micro giây.
+ * - Mỗi lũy thừa của 2 chia thành 32 bucket nên sai số tương đối ≤ 1/32 (~3%), từ 1us tới ~71 phút
+ * - record() chỉ là vài phép dịch bit + một incrementAndGet: không cấp phát, không khóa
+ * Percentile đọc từ snapshot nên có thể lệch một chút so với lúc đang ghi, đủ cho monitoring.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 32;
+    private static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 1) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void record(long nanos) {
+        long micros = Math.min(MAX_VALUE, Math.max(0, nanos / 1000));
+        counts.incrementAndGet(index(micros));
+        totalMicros.addAndGet(micros);
+        if (micros > maxMicros.get()) maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    private static int index(long micros) {
+        if (micros < SUB_COUNT) return (int) micros;
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BITS;
+        return (shift + 1) * SUB_COUNT + (int) ((micros >>> shift) - SUB_COUNT);
+    }
+
+    /**
+     * Giá trị lớn nhất còn rơi vào bucket
+     */
+    private static long highestValue(int index) {
+        if (index < SUB_COUNT) return index;
+        int shift = index / SUB_COUNT - 1;
+        long sub = index % SUB_COUNT + SUB_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * Xóa số liệu (ghi đồng thời trong lúc reset có thể còn sót lại một ít)
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        totalMicros.set(0);
+        maxMicros.set(0);
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, totalMicros.get(), maxMicros.get());
+    }
+
+    /**
+     * Số liệu tại một thời điểm, đơn vị micro giây
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalMicros;
+        private final long maxMicros;
+
+        private Snapshot(long[] counts, long count, long totalMicros, long maxMicros) {
+            this.counts = counts;
+            this.count = count;
+            this.totalMicros = totalMicros;
+            this.maxMicros = maxMicros;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long meanMicros() {
+            return count == 0 ? 0 : totalMicros / count;
+        }
+
+        public long maxMicros() {
+            return maxMicros;
+        }
+
+        /**
+         * @param percentile 0..100, vd. 99.9
+         */
+        public long percentileMicros(double percentile) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(highestValue(i), maxMicros);
+            }
+            return maxMicros;
+        }
+
+        public double percentileMillis(double percentile) {
+            return percentileMicros(percentile) / (double) TimeUnit.MILLISECONDS.toMicros(1);
+        }
+
+        @Override
+        public String toString() {
+            return "n=" + count + " p50=" + percentileMicros(50) + "us p99=" + percentileMicros(99)
+                    + "us max=" + maxMicros + "us";
+        }
+    }
+}
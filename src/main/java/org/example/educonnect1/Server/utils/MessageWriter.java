@@ -0,0 +1,478 @@
+package org.example.educonnect1.Server.utils;
+
+import org.example.educonnect1.Server.dao.MessageDAO;
+import org.example.educonnect1.Server.dao.MessageDAO.HistoryPage;
+import org.example.educonnect1.Server.dao.MessageDAO.NewMessage;
+import org.example.educonnect1.Server.dao.UnreadDAO;
+import org.example.educonnect1.client.models.Message;
+import org.example.educonnect1.logging.Log;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Pipeline ghi tin nhắn kiểu write-behind:
+ * 1. submit() xếp tin nhắn vào hàng đợi
+ * 2. thread journal ghi cả lô vào file journal + fsync MỘT lần rồi mới báo thành công cho người gửi
+ * 3. thread flush gom tin nhắn của mọi conversation, tối đa FLUSH_INTERVAL_MS, ghi vào MySQL
+ *    bằng INSERT nhiều dòng trong một transaction
+ * Khi khởi động, các bản ghi còn trong journal (chưa chắc đã vào DB) được ghi lại trước.
+ * id tin nhắn do writer cấp nên replay không tạo bản trùng.
+ */
+public class MessageWriter {
+    private static final Log LOG = Log.get("messages");
+    private static final Path JOURNAL = Paths.get(System.getProperty("educonnect.messages.journal", "data/message-journal.log"));
+    private static final long FLUSH_INTERVAL_MS = Long.getLong("educonnect.messages.flushIntervalMs", 50);
+    private static final int MAX_BATCH = Integer.getInteger("educonnect.messages.batchSize", 500);
+    private static final int QUEUE_CAPACITY = Integer.getInteger("educonnect.messages.queue", 10_000);
+    // DB chậm/chết: chỉ giữ tối đa chừng này tin nhắn chưa flush trong RAM, vượt quá thì trả BUSY
+    private static final int MAX_UNFLUSHED = Integer.getInteger("educonnect.messages.maxUnflushed", 200_000);
+    private static final long MAX_RETRY_DELAY_MS = 30_000;
+    // Journal lớn hơn ngưỡng này mà chưa lúc nào flush hết thì được viết lại chỉ với phần chưa flush
+    private static final long COMPACT_THRESHOLD_BYTES = Long.getLong("educonnect.messages.compactBytes", 64L << 20);
+
+    private final MessageDAO dao;
+    private final UnreadCounters unreadCounters;
+    private final InboxCache inboxCache;
+    private final BlockingQueue<Submission> incoming = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final ArrayDeque<NewMessage> unflushed = new ArrayDeque<>(); // đã vào journal, chưa vào DB
+    // journalLock giữ unflushed và các id; fileLock giữ file journal (ghi, fsync, truncate, compact).
+    // Thứ tự khóa: fileLock rồi mới journalLock. history() chỉ cần journalLock nên không phải chờ fsync
+    private final Object journalLock = new Object();
+    private final Object fileLock = new Object();
+    private final AtomicInteger nextId = new AtomicInteger();
+    // conversationId -> id tin mới nhất đã vào journal mà chưa vào DB (bỏ khi tin đó flush xong)
+    private final ConcurrentHashMap<Integer, Integer> latestUnflushed = new ConcurrentHashMap<>();
+    private FileChannel journal;
+    private long journalEnd; // cuối bản ghi đầy đủ cuối cùng, chỉ đọc/ghi khi giữ fileLock
+    private int lastJournaledId;
+    private int lastCommittedId;
+    private volatile int unflushedCount;
+    private volatile boolean running;
+    private Thread journalThread;
+    private Thread flushThread;
+
+    // Metrics
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong fsyncs = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+
+    /**
+     * Báo khi hàng đợi đầy, command trả về BUSY
+     */
+    public static class BusyException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BusyException() {
+            super("Message queue is full");
+        }
+    }
+
+    private static class Submission {
+        final int conversationId;
+        final int senderId;
+        final String content;
+        final CompletableFuture<NewMessage> done = new CompletableFuture<>();
+
+        Submission(int conversationId, int senderId, String content) {
+            this.conversationId = conversationId;
+            this.senderId = senderId;
+            this.content = content;
+        }
+    }
+
+    public MessageWriter(MessageDAO dao, UnreadCounters unreadCounters, InboxCache inboxCache) {
+        this.dao = dao;
+        this.unreadCounters = unreadCounters;
+        this.inboxCache = inboxCache;
+    }
+
+    /**
+     * Replay journal còn sót từ lần chạy trước rồi mới nhận tin nhắn mới.
+     * Lỗi (vd. DB chưa lên) thì journal được đóng lại và để nguyên, có thể gọi start() lại sau.
+     */
+    public void start() throws IOException {
+        if (JOURNAL.getParent() != null) Files.createDirectories(JOURNAL.getParent());
+        journal = FileChannel.open(JOURNAL, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            recover();
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(journal);
+            throw e;
+        }
+
+        running = true;
+        journalThread = new Thread(this::runJournal, "message-journal");
+        flushThread = new Thread(this::runFlusher, "message-flusher");
+        journalThread.setDaemon(true);
+        flushThread.setDaemon(true);
+        journalThread.start();
+        flushThread.start();
+    }
+
+    private void recover() throws IOException {
+        List<NewMessage> recovered = readJournal();
+        int maxId = dao.maxMessageId();
+        if (!recovered.isEmpty()) {
+            dao.insertBatch(recovered);
+            // Không biết lô nào đã vào DB trước khi crash nên đếm lại unread thay vì cộng
+            Set<Integer> conversations = new HashSet<>();
+            for (NewMessage m : recovered) conversations.add(m.conversationId);
+            unreadCounters.rebuild(conversations);
+            maxId = Math.max(maxId, recovered.get(recovered.size() - 1).id);
+            LOG.info("✓ Recovered unflushed messages from journal").with("messages", recovered.size())
+                    .with("journal", JOURNAL).log();
+        }
+        journal.truncate(0);
+        journalEnd = 0;
+        nextId.set(maxId + 1);
+        lastJournaledId = lastCommittedId = maxId;
+    }
+
+    /**
+     * Dừng nhận tin nhắn mới, ghi nốt những gì còn lại (phần chưa ghi được vẫn nằm trong journal)
+     */
+    public void stop() {
+        if (!running) return;
+        running = false;
+        try {
+            journalThread.join(2_000);
+            flushThread.interrupt();
+            flushThread.join(5_000);
+            journal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+
+    /**
+     * @return future hoàn thành khi tin nhắn đã nằm an toàn trong journal (đã fsync)
+     * @throws BusyException nếu hàng đợi đầy
+     */
+    public CompletableFuture<NewMessage> submit(int conversationId, int senderId, String content) {
+        Submission submission = new Submission(conversationId, senderId, content);
+        if (!running || unflushedCount >= MAX_UNFLUSHED || !incoming.offer(submission)) {
+            rejected.incrementAndGet();
+            throw new BusyException();
+        }
+        accepted.incrementAndGet();
+        return submission.done;
+    }
+
+    private void runJournal() {
+        List<Submission> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !incoming.isEmpty()) {
+            try {
+                Submission first = incoming.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                incoming.drainTo(batch, MAX_BATCH - 1);
+                appendToJournal(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                LOG.error("⚠ Message journal write failed").with("messages", batch.size()).error(e).log();
+                for (Submission s : batch) s.done.completeExceptionally(e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Ghi cả lô, fsync một lần (group commit), rồi báo cho tất cả người gửi trong lô.
+     * Ghi/fsync lỗi giữa chừng thì cắt file về journalEnd: bản ghi dở không được để lại,
+     * nếu không lần replay sau sẽ dừng ở đó và bỏ mất mọi bản ghi phía sau.
+     */
+    private void appendToJournal(List<Submission> batch) throws IOException {
+        List<NewMessage> messages = new ArrayList<>(batch.size());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(batch.size() * 128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        long now = System.currentTimeMillis();
+        synchronized (fileLock) {
+            int firstId = nextId.get();
+            for (Submission s : batch) {
+                NewMessage m = new NewMessage(nextId.getAndIncrement(), s.conversationId, s.senderId, s.content, now);
+                writeRecord(out, m);
+                messages.add(m);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            try {
+                long position = journalEnd;
+                while (buffer.hasRemaining()) {
+                    position += journal.write(buffer, position);
+                }
+                journal.force(false);
+                journalEnd = position;
+            } catch (IOException e) {
+                discardPartialWrite(firstId);
+                throw e;
+            }
+            fsyncs.incrementAndGet();
+            for (NewMessage m : messages) latestUnflushed.merge(m.conversationId, m.id, Math::max);
+            synchronized (journalLock) {
+                lastJournaledId = messages.get(messages.size() - 1).id;
+                unflushed.addAll(messages);
+                unflushedCount = unflushed.size();
+                journalLock.notifyAll();
+            }
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).done.complete(messages.get(i));
+        }
+    }
+
+    /**
+     * Gọi khi giữ fileLock sau khi ghi lô lỗi: cắt phần đã ghi dở, trả lại các id của lô.
+     * Không cắt được thì giữ nguyên id đã cấp (lô sau vẫn ghi đè từ journalEnd),
+     * để bản ghi sót lại nếu còn đọc được cũng không trùng id với tin nhắn khác.
+     */
+    private void discardPartialWrite(int firstId) {
+        try {
+            journal.truncate(journalEnd);
+            nextId.set(firstId);
+        } catch (IOException e) {
+            LOG.error("⚠ Could not truncate message journal").with("offset", journalEnd).error(e).log();
+        }
+    }
+
+    private void runFlusher() {
+        long retryDelay = 1_000;
+        while (true) {
+            List<NewMessage> batch;
+            try {
+                synchronized (journalLock) {
+                    while (unflushed.isEmpty()) {
+                        if (!running && !journalThread.isAlive()) return;
+                        journalLock.wait(100);
+                    }
+                }
+                // Chờ thêm một chút để gom được lô lớn hơn
+                if (running) Thread.sleep(FLUSH_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                if (running) return;
+                // Đang dừng: flush nốt rồi thoát
+            }
+            // Tin nhắn vẫn nằm trong unflushed cho tới khi commit xong để history() luôn thấy chúng
+            synchronized (journalLock) {
+                batch = new ArrayList<>(Math.min(unflushed.size(), MAX_BATCH * 4));
+                for (NewMessage m : unflushed) {
+                    if (batch.size() == MAX_BATCH * 4) break;
+                    batch.add(m);
+                }
+            }
+            if (batch.isEmpty()) continue;
+            try {
+                Map<Long, UnreadDAO.Delta> unread = unreadCounters.deltas(batch);
+                unreadCounters.commit(() -> inboxCache.commit(() -> dao.insertBatch(batch, unread), batch), unread,
+                        batch.get(batch.size() - 1).id);
+                flushed.addAndGet(batch.size());
+                batches.incrementAndGet();
+                retryDelay = 1_000;
+                synchronized (journalLock) {
+                    for (int i = 0; i < batch.size(); i++) unflushed.poll();
+                    unflushedCount = unflushed.size();
+                    lastCommittedId = batch.get(batch.size() - 1).id;
+                }
+                for (NewMessage m : batch) latestUnflushed.remove(m.conversationId, m.id);
+                trimJournal();
+            } catch (RuntimeException | IOException e) {
+                flushFailures.incrementAndGet();
+                LOG.warn("⚠ Message flush failed, retrying").with("messages", batch.size())
+                        .with("retryMs", retryDelay).error(e).log();
+                if (!running) return; // còn trong journal, lần khởi động sau sẽ ghi lại
+                try {
+                    Thread.sleep(retryDelay);
+                } catch (InterruptedException ie) {
+                    // Đang dừng
+                }
+                retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MS);
+            }
+        }
+    }
+
+    /**
+     * Mọi bản ghi trong journal đã vào DB thì làm rỗng file;
+     * tải liên tục không có lúc rỗng thì viết lại journal chỉ với phần chưa flush.
+     * Giữ fileLock nên không có lô nào đang ghi dở: lastJournaledId và unflushed khớp đúng với nội dung file.
+     */
+    private void trimJournal() throws IOException {
+        synchronized (fileLock) {
+            List<NewMessage> remaining;
+            synchronized (journalLock) {
+                if (lastCommittedId == lastJournaledId) {
+                    remaining = null;
+                } else if (journalEnd > COMPACT_THRESHOLD_BYTES) {
+                    remaining = new ArrayList<>(unflushed);
+                } else {
+                    return;
+                }
+            }
+            if (remaining == null) {
+                journal.truncate(0);
+                journalEnd = 0;
+            } else {
+                compactJournal(remaining);
+            }
+        }
+    }
+
+    /**
+     * Gọi khi giữ fileLock: ghi phần chưa flush ra file tạm, fsync rồi thay thế journal.
+     * Mở channel của file mới trước khi đổi tên và chỉ đóng journal cũ khi đã đổi xong:
+     * lỗi ở bất kỳ bước nào thì journal cũ (vẫn đầy đủ) tiếp tục được dùng thay vì để submit() lỗi mãi.
+     */
+    private void compactJournal(List<NewMessage> remaining) throws IOException {
+        Path tmp = JOURNAL.resolveSibling(JOURNAL.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            for (NewMessage m : remaining) {
+                writeRecord(out, m);
+            }
+        }
+        FileChannel next = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            next.force(true);
+            Files.move(tmp, JOURNAL, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            closeQuietly(next);
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        FileChannel old = journal;
+        journal = next;
+        journalEnd = next.size();
+        closeQuietly(old);
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+
+    /**
+     * Bản ghi: [int length][long crc32][payload], bản ghi cuối bị ghi dở (crash) sẽ bị bỏ qua khi đọc
+     */
+    private static void writeRecord(DataOutputStream out, NewMessage m) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(64 + m.content.length());
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        payload.writeInt(m.id);
+        payload.writeInt(m.conversationId);
+        payload.writeInt(m.senderId);
+        payload.writeLong(m.createdAt);
+        payload.writeUTF(m.content);
+        byte[] data = payloadBytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        out.writeInt(data.length);
+        out.writeLong(crc.getValue());
+        out.write(data);
+    }
+
+    private List<NewMessage> readJournal() throws IOException {
+        List<NewMessage> messages = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(JOURNAL)))) {
+            while (true) {
+                int length = in.readInt();
+                long expected = in.readLong();
+                if (length < 0 || length > 1 << 20) break;
+                byte[] data = new byte[length];
+                in.readFully(data);
+                CRC32 crc = new CRC32();
+                crc.update(data);
+                if (crc.getValue() != expected) break;
+                DataInputStream payload = new DataInputStream(new ByteArrayInputStream(data));
+                int id = payload.readInt();
+                int conversationId = payload.readInt();
+                int senderId = payload.readInt();
+                long createdAt = payload.readLong();
+                messages.add(new NewMessage(id, conversationId, senderId, payload.readUTF(), createdAt));
+            }
+        } catch (EOFException e) {
+            // Hết file hoặc bản ghi cuối bị cắt
+        }
+        return messages;
+    }
+
+    /**
+     * Một trang lịch sử gồm cả tin nhắn đã vào journal nhưng chưa flush (người gửi vừa nhận SUCCESS
+     * thì mở lại chat vẫn thấy tin của mình). Chụp phần chưa flush TRƯỚC khi đọc DB: tin nào bị flush
+     * xen giữa hai bước thì DB đã có, trùng id được bỏ khi trộn.
+     */
+    public HistoryPage history(int conversationId, Integer beforeId, int limit) {
+        List<Message> pending = new ArrayList<>();
+        synchronized (journalLock) {
+            Iterator<NewMessage> it = unflushed.descendingIterator();
+            while (it.hasNext() && pending.size() <= limit) {
+                NewMessage m = it.next();
+                if (m.conversationId == conversationId && (beforeId == null || m.id < beforeId)) {
+                    pending.add(new Message(m.id, m.conversationId, m.senderId, m.content, m.createdAt));
+                }
+            }
+        }
+        List<Message> stored = dao.getMessages(conversationId, beforeId, limit + 1);
+
+        // Trộn hai danh sách đã xếp id giảm dần, lấy limit + 1 để biết còn trang sau không
+        List<Message> merged = new ArrayList<>(limit + 1);
+        int i = 0, j = 0;
+        while (merged.size() <= limit && (i < pending.size() || j < stored.size())) {
+            Message next;
+            if (j == stored.size() || (i < pending.size() && pending.get(i).getId() > stored.get(j).getId())) {
+                next = pending.get(i++);
+            } else {
+                next = stored.get(j++);
+                if (i < pending.size() && pending.get(i).getId() == next.getId()) i++;
+            }
+            merged.add(next);
+        }
+        if (merged.size() <= limit) return new HistoryPage(merged, null);
+        merged.remove(limit);
+        return new HistoryPage(merged, merged.get(limit - 1).getId());
+    }
+
+    /**
+     * id tin mới nhất của conversation, kể cả tin còn trong journal (0 nếu chưa có tin nào)
+     */
+    public int latestMessageId(int conversationId) {
+        Integer pending = latestUnflushed.get(conversationId);
+        return pending != null ? pending : dao.latestMessageId(conversationId);
+    }
+
+    public int pending() {
+        synchronized (journalLock) {
+            return incoming.size() + unflushed.size();
+        }
+    }
+
+    public String stats() {
+        long b = batches.get();
+        return "accepted=" + accepted.get() + " rejected=" + rejected.get() + " pending=" + pending()
+                + " fsyncs=" + fsyncs.get() + " flushed=" + flushed.get() + " batches=" + b
+                + " avgBatch=" + (b == 0 ? 0 : flushed.get() / b) + " flushFailures=" + flushFailures.get();
+    }
+}
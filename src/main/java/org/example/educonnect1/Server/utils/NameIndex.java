@@ -0,0 +1,433 @@
+package org.example.educonnect1.Server.utils;
+
+import org.example.educonnect1.client.models.UserSummary;
+import org.example.educonnect1.protocol.NameMatcher;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index n-gram (2 và 3 ký tự) trong RAM cho full_name, thay cho LIKE '%name%' (quét cả bảng).
+ * - Tên và query đều được bỏ dấu + lowercase (NameMatcher) nên "nguyen van a" tìm được "Nguyễn Văn A"
+ * - Lấy posting list ngắn nhất trong các n-gram của query rồi kiểm tra contains trên từng ứng viên
+ * - Query 1 ký tự: quét toàn bộ (vẫn trong RAM)
+ * Kết quả xếp theo độ liên quan: trùng hẳn > đầu tên > đầu một từ > nằm giữa, rồi tên ngắn hơn, rồi id.
+ * Họ phổ biến ("nguyen") khớp hàng trăm nghìn tên nên thêm danh sách tên theo bigram/trigram đầu tên / đầu từ,
+ * sắp sẵn theo [độ dài tên | id]: duyệt theo đúng thứ hạng và dừng khi đã đủ limit kết quả.
+ */
+public class NameIndex {
+    // id là AUTO_INCREMENT nên dùng mảng đánh theo id thay cho HashMap<Integer, ...>
+    private Entry[] byId = new Entry[1024];
+    private int count = 0;
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private final Map<Long, StartList> nameStarts = new HashMap<>();
+    private final Map<Long, StartList> wordStarts = new HashMap<>(); // đầu từ, trừ từ đầu tiên
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready = false;
+
+    /**
+     * Kết quả tìm kiếm: summary dùng chung với index (không tạo mới cho mỗi lần tìm)
+     */
+    public static class Match {
+        public final UserSummary user;
+        public final long rank; // vị trí trong thứ tự xếp hạng, dùng làm cursor phân trang
+
+        Match(UserSummary user, long rank) {
+            this.user = user;
+            this.rank = rank;
+        }
+    }
+
+    private static class Entry {
+        final int id;
+        final String normalized;
+        final UserSummary summary;
+
+        Entry(int id, String fullName, String avatar) {
+            this.id = id;
+            this.normalized = NameMatcher.normalize(fullName);
+            this.summary = new UserSummary(id, fullName, avatar);
+        }
+
+        /**
+         * Phần thấp của NameMatcher.rank: cùng score thì thứ tự theo key cũng là thứ tự theo rank
+         */
+        long startKey() {
+            return ((long) Math.min(normalized.length(), 0xFFFFFF) << 32) | id;
+        }
+    }
+
+    /**
+     * Thêm hoặc cập nhật một user
+     */
+    public void put(int id, String fullName, String avatar) {
+        update(id, fullName, avatar, true);
+    }
+
+    /**
+     * Dùng khi nạp từ DB: không ghi đè user vừa được put() bởi signup/cập nhật đang chạy song song
+     */
+    public void putIfAbsent(int id, String fullName, String avatar) {
+        update(id, fullName, avatar, false);
+    }
+
+    private void update(int id, String fullName, String avatar, boolean overwrite) {
+        if (fullName == null) fullName = "";
+        Entry entry = new Entry(id, fullName, avatar);
+        lock.writeLock().lock();
+        try {
+            if (id >= byId.length) byId = Arrays.copyOf(byId, Math.max(id + 1, byId.length * 2));
+            Entry old = byId[id];
+            if (old != null && !overwrite) return;
+            byId[id] = entry;
+            if (old == null) count++;
+            if (old != null && old.normalized.equals(entry.normalized)) return; // chỉ đổi avatar
+            if (old != null) {
+                for (long gram : grams(old.normalized)) {
+                    IntList list = postings.get(gram);
+                    if (list != null && list.remove(id) && list.size == 0) postings.remove(gram);
+                }
+                removeStarts(old);
+            }
+            for (long gram : grams(entry.normalized)) {
+                postings.computeIfAbsent(gram, k -> new IntList()).add(id);
+            }
+            addStarts(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Lúc nạp lần đầu chỉ nối vào cuối rồi sắp một lần khi tìm; sau đó chèn đúng chỗ để giữ thứ tự
+     */
+    private void addStarts(Entry entry) {
+        String s = entry.normalized;
+        if (s.length() < 2) return;
+        long key = entry.startKey();
+        for (long gram : startGrams(s, 0)) {
+            nameStarts.computeIfAbsent(gram, k -> new StartList()).add(key, ready);
+        }
+        for (long gram : wordStartGrams(s)) {
+            wordStarts.computeIfAbsent(gram, k -> new StartList()).add(key, ready);
+        }
+    }
+
+    private void removeStarts(Entry entry) {
+        String s = entry.normalized;
+        if (s.length() < 2) return;
+        long key = entry.startKey();
+        for (long gram : startGrams(s, 0)) {
+            removeStart(nameStarts, gram, key);
+        }
+        for (long gram : wordStartGrams(s)) {
+            removeStart(wordStarts, gram, key);
+        }
+    }
+
+    private static void removeStart(Map<Long, StartList> lists, long gram, long key) {
+        StartList list = lists.get(gram);
+        if (list != null && list.remove(key) && list.size == 0) lists.remove(gram);
+    }
+
+    public void markReady() {
+        ready = true;
+    }
+
+    /**
+     * false trong lúc đang nạp lần đầu, khi đó DAO vẫn dùng SQL
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Summary của một user đã có trong index, null nếu chưa có
+     */
+    public UserSummary get(int id) {
+        lock.readLock().lock();
+        try {
+            Entry entry = id >= 0 && id < byId.length ? byId[id] : null;
+            return entry == null ? null : entry.summary;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Match> search(String query, int limit) {
+        return search(query, -1, limit);
+    }
+
+    /**
+     * Keyset: chỉ trả về kết quả xếp sau afterRank (rank của kết quả cuối trang trước, -1 = trang đầu)
+     */
+    public List<Match> search(String query, long afterRank, int limit) {
+        String q = NameMatcher.normalize(query);
+        if (q.isEmpty() || limit <= 0) return new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            RankHeap best = new RankHeap(afterRank, limit);
+            if (q.length() < 2) {
+                for (Entry entry : byId) {
+                    if (entry != null) best.offer(entry, q);
+                }
+            } else {
+                IntList candidates = null;
+                for (long gram : grams(q)) {
+                    IntList list = postings.get(gram);
+                    if (list == null) return new ArrayList<>();
+                    if (candidates == null || list.size < candidates.size) candidates = list;
+                }
+                // score <= covered: đã xét hết ở các bước trước, hoặc cả nhóm nằm trước cursor
+                int skipped = afterRank < 0 ? -1 : (int) (afterRank >>> 56) - 1;
+                int covered = skipped;
+                long gram = q.length() < 3 ? bigram(q, 0) : trigram(q, 0);
+                // tổng số tên được duyệt theo thứ tự; vượt quá thì quét ứng viên như cũ (tối đa gấp đôi)
+                int budget = candidates.size;
+                if (covered < 1) {
+                    budget = scanStarts(nameStarts.get(gram), budget, q, covered, 1, best);
+                    if (budget >= 0) covered = 1;
+                }
+                if (covered == 1 && !best.isFull()) {
+                    budget = scanStarts(wordStarts.get(gram), budget, q, covered, 2, best);
+                    if (budget >= 0) covered = 2;
+                }
+                if (budget < 0) {
+                    best.clear();
+                    covered = skipped;
+                }
+                if (!best.isFull()) {
+                    for (int i = 0; i < candidates.size; i++) {
+                        Entry entry = byId[candidates.values[i]];
+                        long rank = NameMatcher.rank(entry.normalized, entry.id, q);
+                        if (rank >>> 56 > covered) best.offer(rank);
+                    }
+                }
+            }
+
+            long[] ranks = best.sorted();
+            List<Match> result = new ArrayList<>(ranks.length);
+            for (long rank : ranks) {
+                Entry entry = byId[(int) rank];
+                result.add(new Match(entry.summary, rank));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Đưa vào heap các tên có score trong (covered, maxScore], duyệt theo thứ tự rank nên dừng được
+     * ngay khi heap đầy. Trả về budget còn lại, -1 nếu hết budget trước khi duyệt xong
+     */
+    private int scanStarts(StartList list, int budget, String q, int covered, int maxScore, RankHeap best) {
+        if (list == null) return budget;
+        list.sort();
+        for (int i = 0; i < list.size && !best.isFull(); i++) {
+            if (budget-- == 0) return -1;
+            Entry entry = byId[(int) list.keys[i]];
+            long rank = NameMatcher.rank(entry.normalized, entry.id, q);
+            int score = (int) (rank >>> 56);
+            if (rank >= 0 && score > covered && score <= maxScore) best.offer(rank);
+        }
+        return budget;
+    }
+
+    /**
+     * Max-heap giữ limit kết quả tốt nhất dưới dạng long: [score | độ dài tên | id],
+     * số nhỏ hơn = liên quan hơn, không tạo object cho từng ứng viên
+     */
+    private static class RankHeap {
+        private final long after;
+        private final int limit;
+        private long[] heap = new long[16];
+        private int size;
+
+        RankHeap(long after, int limit) {
+            this.after = after;
+            this.limit = limit;
+        }
+
+        void offer(Entry entry, String q) {
+            offer(NameMatcher.rank(entry.normalized, entry.id, q));
+        }
+
+        void offer(long rank) {
+            if (rank < 0 || rank <= after) return;
+            if (size < limit) {
+                if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+                heap[size] = rank;
+                siftUp(size++);
+            } else if (rank < heap[0]) {
+                heap[0] = rank;
+                siftDown(0);
+            }
+        }
+
+        boolean isFull() {
+            return size == limit;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        long[] sorted() {
+            long[] result = Arrays.copyOf(heap, size);
+            Arrays.sort(result);
+            return result;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] >= heap[i]) return;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int largest = i, left = 2 * i + 1, right = left + 1;
+                if (left < size && heap[left] > heap[largest]) largest = left;
+                if (right < size && heap[right] > heap[largest]) largest = right;
+                if (largest == i) return;
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+        }
+    }
+
+    /**
+     * Bigram và trigram của chuỗi đã normalize; 2 bit cao đánh dấu độ dài để không trùng key
+     */
+    private static Set<Long> grams(String s) {
+        Set<Long> result = new HashSet<>();
+        for (int i = 0; i + 2 <= s.length(); i++) {
+            long bigram = ((long) s.charAt(i) << 16) | s.charAt(i + 1);
+            result.add((2L << 48) | bigram);
+            if (i + 3 <= s.length()) {
+                result.add((3L << 48) | (bigram << 16) | s.charAt(i + 2));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Cùng cách mã hóa với grams()
+     */
+    private static long bigram(String s, int at) {
+        return (2L << 48) | ((long) s.charAt(at) << 16) | s.charAt(at + 1);
+    }
+
+    private static long trigram(String s, int at) {
+        return (3L << 48) | ((long) s.charAt(at) << 32) | ((long) s.charAt(at + 1) << 16) | s.charAt(at + 2);
+    }
+
+    /**
+     * Bigram và trigram (nếu đủ ký tự) bắt đầu tại at: query 2 ký tự dùng bigram, dài hơn dùng trigram
+     */
+    private static long[] startGrams(String s, int at) {
+        return at + 3 <= s.length()
+                ? new long[]{bigram(s, at), trigram(s, at)}
+                : new long[]{bigram(s, at)};
+    }
+
+    /**
+     * Bigram/trigram đầu các từ sau từ đầu tiên, mỗi gram một lần
+     */
+    private static Set<Long> wordStartGrams(String s) {
+        Set<Long> result = new HashSet<>();
+        for (int i = 1; i + 2 <= s.length(); i++) {
+            if (s.charAt(i - 1) != ' ') continue;
+            for (long gram : startGrams(s, i)) result.add(gram);
+        }
+        return result;
+    }
+
+    /**
+     * Tên bắt đầu (hoặc có một từ bắt đầu) bằng một gram, dạng key [độ dài tên | id].
+     * Chỉ sắp khi tìm (sort() giữ monitor riêng vì nhiều luồng đọc cùng giữ read lock)
+     */
+    private static class StartList {
+        long[] keys = new long[4];
+        int size;
+        boolean sorted = true;
+
+        void add(long key, boolean keepSorted) {
+            if (size == keys.length) keys = Arrays.copyOf(keys, size * 2);
+            if (keepSorted && sorted) {
+                int at = Arrays.binarySearch(keys, 0, size, key);
+                if (at < 0) at = -at - 1;
+                System.arraycopy(keys, at, keys, at + 1, size - at);
+                keys[at] = key;
+                size++;
+            } else {
+                keys[size++] = key;
+                sorted = size == 1;
+            }
+        }
+
+        boolean remove(long key) {
+            int at = -1;
+            if (sorted) {
+                at = Arrays.binarySearch(keys, 0, size, key);
+            } else {
+                for (int i = 0; i < size && at < 0; i++) {
+                    if (keys[i] == key) at = i;
+                }
+            }
+            if (at < 0) return false;
+            System.arraycopy(keys, at + 1, keys, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        synchronized void sort() {
+            if (sorted) return;
+            Arrays.sort(keys, 0, size);
+            sorted = true;
+        }
+    }
+
+    /**
+     * Posting list: mảng int tự giãn, tránh boxing khi có hàng triệu user
+     */
+    private static class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        boolean remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    values[i] = values[--size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
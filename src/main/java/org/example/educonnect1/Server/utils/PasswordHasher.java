@@ -0,0 +1,149 @@
+package org.example.educonnect1.Server.utils;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chạy bcrypt trên pool riêng (số thread = số core) với hàng đợi giới hạn.
+ * hash()/verify() chặn thread xử lý request trong lúc chờ, nên số người gọi đang chờ bị giới hạn theo
+ * kích thước pool xử lý request (mặc định 1/4, ít nhất bằng số thread bcrypt); vượt quá hoặc hàng đợi đầy
+ * thì ném BusyException ngay để command trả về BUSY, thay vì để hàng loạt login chiếm hết thread xử lý
+ * client (PING, SEND_MESSAGE của người khác vẫn có thread để chạy).
+ */
+public class PasswordHasher {
+    public static final int COST = Integer.getInteger("educonnect.bcrypt.cost", 12);
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int QUEUE_CAPACITY = Integer.getInteger("educonnect.bcrypt.queue", THREADS * 16);
+
+    private final int maxWaiting;
+    private final Semaphore waiting;
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+        Thread t = new Thread(r, "bcrypt");
+        t.setDaemon(true);
+        return t;
+    }, new ThreadPoolExecutor.AbortPolicy());
+
+    // Metrics
+    private final LatencyHistogram hashTimes = new LatencyHistogram();
+    private final LatencyHistogram waitTimes = new LatencyHistogram();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param requestThreads số thread của pool chạy Command (cùng pool với người gọi hash/verify)
+     */
+    public PasswordHasher(int requestThreads) {
+        int configured = Integer.getInteger("educonnect.bcrypt.maxWaiting", Math.max(THREADS, requestThreads / 4));
+        // Máy nhiều core (THREADS >= requestThreads) hoặc cấu hình quá lớn vẫn phải chừa nửa pool cho PING/search
+        maxWaiting = Math.max(1, Math.min(configured, requestThreads / 2));
+        waiting = new Semaphore(maxWaiting);
+    }
+
+    public static class BusyException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BusyException() {
+            super("Password hashing queue is full");
+        }
+    }
+
+    public String hash(String password) {
+        return call(() -> BCrypt.hashpw(password, BCrypt.gensalt(COST)));
+    }
+
+    public boolean verify(String password, String hash) {
+        if (hash == null) return false;
+        return call(() -> BCrypt.checkpw(password, hash));
+    }
+
+    /**
+     * Chạy task trên pool bcrypt và chờ kết quả, chỉ khi số người đang chờ chưa tới maxWaiting
+     */
+    private <T> T call(Callable<T> task) {
+        if (!waiting.tryAcquire()) {
+            rejected.incrementAndGet();
+            throw new BusyException();
+        }
+        try {
+            return await(submit(task));
+        } finally {
+            waiting.release();
+        }
+    }
+
+    /**
+     * Hash được tạo với cost khác cấu hình hiện tại ($2a$12$...)
+     */
+    public boolean needsRehash(String hash) {
+        if (hash == null || hash.length() < 7) return false;
+        try {
+            return Integer.parseInt(hash.substring(4, 6)) != COST;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Hash lại với cost hiện tại ở nền, bỏ qua nếu pool đang bận (lần login sau sẽ thử lại)
+     */
+    public void rehashAsync(String password, java.util.function.Consumer<String> onHashed) {
+        try {
+            submit(() -> {
+                onHashed.accept(BCrypt.hashpw(password, BCrypt.gensalt(COST)));
+                return null;
+            });
+        } catch (BusyException e) {
+            // Ignore
+        }
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        long queuedAt = System.nanoTime();
+        try {
+            return executor.submit(() -> {
+                long start = System.nanoTime();
+                waitTimes.record(start - queuedAt);
+                try {
+                    return task.call();
+                } finally {
+                    hashTimes.recordSince(start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new BusyException();
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    public int queueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * hash: thời gian chạy bcrypt, wait: thời gian chờ thread bcrypt
+     */
+    public String stats() {
+        LatencyHistogram.Snapshot hash = hashTimes.snapshot();
+        LatencyHistogram.Snapshot wait = waitTimes.snapshot();
+        return "cost=" + COST + " threads=" + THREADS + " queue=" + queueDepth() + "/" + QUEUE_CAPACITY
+                + " waiting=" + (maxWaiting - waiting.availablePermits()) + "/" + maxWaiting
+                + " hashes=" + hash.count() + " rejected=" + rejected.get()
+                + " hash p50=" + hash.percentileMicros(50) / 1000 + "ms p99=" + hash.percentileMicros(99) / 1000
+                + "ms max=" + hash.maxMicros() / 1000 + "ms"
+                + " wait p99=" + wait.percentileMicros(99) / 1000 + "ms";
+    }
+}
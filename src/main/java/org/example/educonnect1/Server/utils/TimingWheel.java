@@ -0,0 +1,236 @@
+package org.example.educonnect1.Server.utils;
+
+import org.example.educonnect1.logging.Log;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel: một thread cho mọi timer của server (idle kết nối, hết hạn mã xác thực, offline grace...).
+ * - schedule/cancel là O(1): chỉ thêm vào hàng đợi lock-free, thread của wheel mới đụng tới các bucket
+ * - Mỗi tick xử lý một bucket; timer xa hơn một vòng wheel mang theo số vòng còn lại
+ * - Độ chính xác là một tick (mặc định 100ms), đủ cho timeout tính bằng giây/phút
+ * Task chạy trên thread của wheel nên phải ngắn; việc chậm (DB, I/O chặn) thì chuyển sang executor khác.
+ */
+public class TimingWheel {
+    private static final Log LOG = Log.get("timer");
+    private static final TimingWheel shared = new TimingWheel(
+            Long.getLong("educonnect.timer.tickMs", 100), 512, "timing-wheel");
+
+    // Số timer mới tối đa chuyển vào wheel mỗi tick để tick không bị trễ khi có đợt schedule lớn
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long startTime = System.nanoTime();
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private volatile boolean running = true;
+    private long tick; // chỉ thread của wheel
+
+    // Metrics
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * @param wheelSize số bucket, làm tròn lên lũy thừa của 2
+     */
+    public TimingWheel(long tickMs, int wheelSize, String threadName) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMs));
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        worker = new Thread(this::run, threadName);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Wheel dùng chung cho toàn server
+     */
+    public static TimingWheel shared() {
+        return shared;
+    }
+
+    /**
+     * Chạy task sau delay (sớm nhất là tick kế tiếp)
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        long deadline = System.nanoTime() - startTime + Math.max(0, unit.toNanos(delay));
+        Timeout timeout = new Timeout(this, task, deadline);
+        scheduled.incrementAndGet();
+        pending.add(timeout);
+        return timeout;
+    }
+
+    public void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        while (running) {
+            waitForNextTick();
+            if (!running) break;
+            removeCancelled();
+            transferPending();
+            wheel[(int) (tick & mask)].expire();
+            tick++;
+        }
+    }
+
+    /**
+     * Ngủ tới cuối tick hiện tại (tính từ startTime)
+     */
+    private void waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        while (running) {
+            long sleep = deadline - (System.nanoTime() - startTime);
+            if (sleep <= 0) return;
+            LockSupport.parkNanos(this, sleep);
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) timeout.bucket.remove(timeout);
+        }
+    }
+
+    private void transferPending() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout timeout = pending.poll();
+            if (timeout == null) return;
+            if (timeout.state != Timeout.ST_INIT) continue;
+            long ticks = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (ticks - tick) / wheel.length;
+            // Đã quá hạn thì rơi vào bucket của tick này
+            wheel[(int) (Math.max(ticks, tick) & mask)].add(timeout);
+        }
+    }
+
+    public int pendingCount() {
+        return (int) (scheduled.get() - expired.get() - cancelled.get());
+    }
+
+    public String stats() {
+        return "pending=" + pendingCount() + " scheduled=" + scheduled.get() + " expired=" + expired.get()
+                + " cancelled=" + cancelled.get() + " failed=" + failed.get();
+    }
+
+    /**
+     * Handle của một timer đã schedule
+     */
+    public static final class Timeout {
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final TimingWheel owner;
+        private final Runnable task;
+        private final long deadline;
+        private volatile int state = ST_INIT;
+
+        // Chỉ thread của wheel
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimingWheel owner, Runnable task, long deadline) {
+            this.owner = owner;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * @return false nếu task đã chạy (hoặc đã hủy trước đó)
+         */
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, ST_INIT, ST_CANCELLED)) return false;
+            owner.cancelled.incrementAndGet();
+            owner.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state == ST_CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state == ST_EXPIRED;
+        }
+
+        private void expire() {
+            if (!STATE.compareAndSet(this, ST_INIT, ST_EXPIRED)) return;
+            owner.expired.incrementAndGet();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                owner.failed.incrementAndGet();
+                LOG.error("Timer task failed").with("task", task.getClass().getName()).error(t).log();
+            }
+        }
+    }
+
+    /**
+     * Danh sách liên kết đôi để gỡ timer đã hủy trong O(1)
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expire() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    // deadline < cuối tick này vì bucket được chọn theo deadline / tickNanos
+                    remove(timeout);
+                    timeout.expire();
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.bucket != this) return;
+            if (timeout.prev != null) timeout.prev.next = timeout.next;
+            if (timeout.next != null) timeout.next.prev = timeout.prev;
+            if (timeout == head) head = timeout.next;
+            if (timeout == tail) tail = timeout.prev;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
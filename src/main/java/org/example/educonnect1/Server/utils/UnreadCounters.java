@@ -0,0 +1,195 @@
+package org.example.educonnect1.Server.utils;
+
+import org.example.educonnect1.Server.dao.MessageDAO;
+import org.example.educonnect1.Server.dao.MessageDAO.NewMessage;
+import org.example.educonnect1.Server.dao.UnreadDAO;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Số tin chưa đọc theo (user, conversation), cộng dần khi tin nhắn được ghi thay vì COUNT(*) trên messages.
+ * - Bảng unread_counters được cập nhật trong cùng transaction với lô tin nhắn (MessageWriter)
+ * - Trong RAM chỉ giữ bộ đếm của user đang online, nạp một lần từ bảng khi cần
+ * - rebuild()/checkAll() đếm lại từ messages để sửa bộ đếm lệch
+ * - Tin đã được đánh dấu đọc khi còn trong write-behind (push tới lúc journal, client đọc ngay) không được cộng
+ *   khi lô đó flush: readMarks giữ mốc đã đọc cho tới khi mọi tin tới mốc đã vào DB
+ * Không giữ lock qua JDBC: ghi DB rồi áp vào RAM theo từng stripe user (UserStripes),
+ * nên user vừa nạp không bị thiếu hay cộng trùng một lô đang flush.
+ */
+public class UnreadCounters {
+    private static final int CHECK_BATCH = 500;
+
+    private final UnreadDAO dao;
+    private final MessageDAO messageDAO;
+    private final ConcurrentHashMap<Integer, Map<Integer, Integer>> byUser = new ConcurrentHashMap<>();
+    private final UserStripes stripes = new UserStripes();
+    // UnreadDAO.key(user, conversation) -> id tin cuối đã đọc, chỉ giữ khi còn tin tới mốc đó chưa flush
+    private final ConcurrentHashMap<Long, Integer> readMarks = new ConcurrentHashMap<>();
+
+    // Metrics
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong increments = new AtomicLong();
+    private final AtomicLong skippedRead = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+    private final AtomicLong checked = new AtomicLong();
+    private final AtomicLong corrected = new AtomicLong();
+
+    public UnreadCounters(UnreadDAO dao, MessageDAO messageDAO) {
+        this.dao = dao;
+        this.messageDAO = messageDAO;
+    }
+
+    /**
+     * Mỗi tin nhắn cộng 1 cho mọi participant trừ người gửi và người đã đọc tới tin đó;
+     * key = UnreadDAO.key(user, conversation)
+     */
+    public Map<Long, UnreadDAO.Delta> deltas(List<NewMessage> batch) {
+        Map<Long, UnreadDAO.Delta> deltas = new HashMap<>();
+        for (NewMessage m : batch) {
+            for (int userId : messageDAO.getParticipants(m.conversationId)) {
+                if (userId == m.senderId) continue;
+                long key = UnreadDAO.key(userId, m.conversationId);
+                if (isRead(key, m.id)) {
+                    skippedRead.incrementAndGet();
+                    continue;
+                }
+                deltas.computeIfAbsent(key, k -> new UnreadDAO.Delta()).add(m.id);
+            }
+        }
+        return deltas;
+    }
+
+    private boolean isRead(long key, int messageId) {
+        Integer mark = readMarks.get(key);
+        return mark != null && messageId <= mark;
+    }
+
+    /**
+     * Chạy write (ghi lô tin nhắn + deltas vào DB) rồi áp deltas vào RAM; write lỗi thì RAM không đổi.
+     * lastMessageId = id lớn nhất của lô: sau khi ghi xong, mốc đã đọc không vượt quá nó không cần giữ nữa.
+     */
+    public void commit(Runnable write, Map<Long, UnreadDAO.Delta> deltas, int lastMessageId) {
+        List<Integer> users = new ArrayList<>(deltas.size());
+        for (long key : deltas.keySet()) users.add((int) (key >>> 32));
+        List<UserStripes.Stripe> touched = stripes.begin(users);
+        try {
+            write.run();
+            for (Map.Entry<Long, UnreadDAO.Delta> entry : deltas.entrySet()) {
+                long key = entry.getKey();
+                UnreadDAO.Delta delta = entry.getValue();
+                int userId = (int) (key >>> 32);
+                synchronized (stripes.of(userId)) {
+                    // Đánh dấu đọc xen giữa lúc tính deltas và lúc ghi xong: DB cũng đã bỏ qua các tin tới mốc đó
+                    Integer mark = readMarks.get(key);
+                    int unread = mark == null ? delta.count() : delta.countAfter(mark);
+                    increments.addAndGet(unread);
+                    Map<Integer, Integer> counts = byUser.get(userId);
+                    if (counts != null && unread > 0) {
+                        counts.merge((int) key, unread, Integer::sum);
+                    }
+                }
+            }
+        } finally {
+            stripes.end(touched);
+        }
+        readMarks.values().removeIf(mark -> mark <= lastMessageId);
+    }
+
+    /**
+     * conversationId -> số tin chưa đọc (bản sao), chỉ gồm conversation có tin chưa đọc
+     */
+    public Map<Integer, Integer> forUser(int userId) {
+        UserStripes.Stripe stripe = stripes.of(userId);
+        synchronized (stripe) {
+            Map<Integer, Integer> counts = byUser.get(userId);
+            if (counts != null) return new HashMap<>(counts);
+        }
+        long stamp = stripes.stamp(stripe);
+        loads.incrementAndGet();
+        Map<Integer, Integer> loaded = dao.load(userId);
+        synchronized (stripe) {
+            Map<Integer, Integer> counts = byUser.get(userId);
+            if (counts != null) return new HashMap<>(counts);
+            // Có lần ghi chạm stripe trong lúc đọc: trả kết quả nhưng không cache, lần sau nạp lại
+            if (stripes.unchanged(stripe, stamp)) byUser.put(userId, loaded);
+            return new HashMap<>(loaded);
+        }
+    }
+
+    /**
+     * MarkMessagesRead: đã đọc tới lastReadId, bộ đếm về 0
+     */
+    public void markRead(int userId, int conversationId, int lastReadId) {
+        // Đặt mốc trước khi ghi DB: lô đang chờ flush tính deltas sau thời điểm này sẽ bỏ các tin đã đọc
+        readMarks.merge(UnreadDAO.key(userId, conversationId), lastReadId, Math::max);
+        List<UserStripes.Stripe> touched = stripes.begin(List.of(userId));
+        try {
+            dao.markRead(userId, conversationId, lastReadId);
+            synchronized (stripes.of(userId)) {
+                Map<Integer, Integer> counts = byUser.get(userId);
+                if (counts != null) counts.remove(conversationId);
+            }
+            resets.incrementAndGet();
+        } finally {
+            stripes.end(touched);
+        }
+    }
+
+    /**
+     * User không còn kết nối nào: bỏ bộ đếm khỏi RAM (bảng vẫn đúng)
+     */
+    public void evict(int userId) {
+        byUser.remove(userId);
+    }
+
+    /**
+     * Đếm lại từ messages cho các conversation đã cho
+     *
+     * @return số bộ đếm bị lệch đã được sửa
+     */
+    public int rebuild(Collection<Integer> conversationIds) {
+        int fixed = 0;
+        for (int conversationId : conversationIds) {
+            // Không biết trước user nào bị sửa nên chặn cache mọi stripe trong lúc ghi
+            List<UserStripes.Stripe> touched = stripes.beginAll();
+            try {
+                Map<Integer, Integer> changed = dao.rebuild(conversationId);
+                for (Map.Entry<Integer, Integer> entry : changed.entrySet()) {
+                    synchronized (stripes.of(entry.getKey())) {
+                        Map<Integer, Integer> counts = byUser.get(entry.getKey());
+                        if (counts == null) continue;
+                        if (entry.getValue() > 0) counts.put(conversationId, entry.getValue());
+                        else counts.remove(conversationId);
+                    }
+                }
+                fixed += changed.size();
+            } finally {
+                stripes.end(touched);
+            }
+        }
+        checked.addAndGet(conversationIds.size());
+        corrected.addAndGet(fixed);
+        return fixed;
+    }
+
+    /**
+     * Kiểm tra toàn bộ, từng đợt CHECK_BATCH conversation để không giữ lock lâu
+     */
+    public int checkAll() {
+        int fixed = 0;
+        int afterId = 0;
+        List<Integer> ids;
+        while (!(ids = dao.conversationIds(afterId, CHECK_BATCH)).isEmpty()) {
+            fixed += rebuild(ids);
+            afterId = ids.get(ids.size() - 1);
+        }
+        return fixed;
+    }
+
+    public String stats() {
+        return "users=" + byUser.size() + " loads=" + loads.get() + " increments=" + increments.get()
+                + " skippedRead=" + skippedRead.get() + " readMarks=" + readMarks.size() + " resets=" + resets.get() + " checked=" + checked.get() + " corrected=" + corrected.get();
+    }
+}
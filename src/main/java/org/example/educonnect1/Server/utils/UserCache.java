@@ -0,0 +1,222 @@
+package org.example.educonnect1.Server.utils;
+
+import org.example.educonnect1.client.models.User;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache read-through cho User, tra theo email hoặc id.
+ * - Tối đa maxSize user (LRU), mỗi entry sống tối đa ttl
+ * - DAO phải gọi invalidate() sau mỗi lệnh UPDATE/INSERT trên user đó
+ * - Trả về bản sao nên command sửa User không làm bẩn cache
+ */
+public class UserCache {
+    private final int maxSize;
+    private final long ttlMillis;
+
+    // id -> entry theo thứ tự truy cập (LRU), email -> id
+    private final LinkedHashMap<Integer, Entry> byId = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Integer> byEmail = new HashMap<>();
+    // Tăng mỗi lần invalidate. Key bị invalidate nhớ generation lúc đó: kết quả load của CHÍNH user đó bắt đầu
+    // trước thời điểm ấy có thể đã cũ nên không được đưa vào cache; load của user khác không bị ảnh hưởng
+    private long generation = 0;
+    private long clearedAt = 0;
+    // Thứ tự theo lần invalidate gần nhất, chỉ giữ khi còn load bắt đầu trước đó đang chạy
+    private final LinkedHashMap<Object, Long> invalidatedAt = new LinkedHashMap<>();
+    // stamp của các load đang chạy -> số lượng
+    private final TreeMap<Long, Integer> loading = new TreeMap<>();
+
+    // Metrics
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public UserCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public User getByEmail(String email, Supplier<User> loader) {
+        if (email == null) return loader.get();
+        long stamp;
+        synchronized (this) {
+            Integer id = byEmail.get(key(email));
+            User cached = id == null ? null : lookup(id);
+            if (cached != null) return cached;
+            stamp = startLoad();
+        }
+        return load(loader, stamp);
+    }
+
+    public User getById(int id, Supplier<User> loader) {
+        long stamp;
+        synchronized (this) {
+            User cached = lookup(id);
+            if (cached != null) return cached;
+            stamp = startLoad();
+        }
+        return load(loader, stamp);
+    }
+
+    /**
+     * Gọi trong synchronized; trả về bản sao hoặc null nếu không có / đã hết hạn
+     */
+    private User lookup(int id) {
+        Entry entry = byId.get(id);
+        if (entry == null) return null;
+        if (System.currentTimeMillis() - entry.loadedAt > ttlMillis) {
+            remove(id);
+            expirations.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return copy(entry.user);
+    }
+
+    /**
+     * Gọi trong synchronized
+     */
+    private long startLoad() {
+        loading.merge(generation, 1, Integer::sum);
+        return generation;
+    }
+
+    private User load(Supplier<User> loader, long stamp) {
+        misses.incrementAndGet();
+        User user = null;
+        try {
+            user = loader.get();
+            return user;
+        } finally {
+            synchronized (this) {
+                if (user != null && user.getEmail() != null && !stale(user, stamp)) {
+                    put(copy(user));
+                }
+                endLoad(stamp);
+            }
+        }
+    }
+
+    /**
+     * User (theo id hoặc email) bị invalidate sau khi load bắt đầu
+     */
+    private boolean stale(User user, long stamp) {
+        if (clearedAt > stamp) return true;
+        Long byIdAt = invalidatedAt.get(user.getId());
+        Long byEmailAt = invalidatedAt.get(key(user.getEmail()));
+        return (byIdAt != null && byIdAt > stamp) || (byEmailAt != null && byEmailAt > stamp);
+    }
+
+    /**
+     * Bỏ các dấu invalidate không còn load nào bắt đầu trước nó
+     */
+    private void endLoad(long stamp) {
+        loading.computeIfPresent(stamp, (k, count) -> count == 1 ? null : count - 1);
+        long oldest = loading.isEmpty() ? generation : loading.firstKey();
+        Iterator<Long> it = invalidatedAt.values().iterator();
+        while (it.hasNext() && it.next() <= oldest) {
+            it.remove();
+        }
+    }
+
+    private void markInvalidated(Object key) {
+        invalidatedAt.remove(key); // đưa xuống cuối thứ tự
+        invalidatedAt.put(key, generation);
+    }
+
+    private void put(User user) {
+        remove(user.getId());
+        Integer previous = byEmail.get(key(user.getEmail()));
+        if (previous != null) remove(previous);
+        byId.put(user.getId(), new Entry(user, System.currentTimeMillis()));
+        byEmail.put(key(user.getEmail()), user.getId());
+        Iterator<Map.Entry<Integer, Entry>> it = byId.entrySet().iterator();
+        while (byId.size() > maxSize && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            it.remove();
+            byEmail.remove(key(eldest.user.getEmail()));
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void remove(int id) {
+        Entry entry = byId.remove(id);
+        if (entry != null) {
+            byEmail.remove(key(entry.user.getEmail()));
+        }
+    }
+
+    public synchronized void invalidate(String email) {
+        generation++;
+        invalidations.incrementAndGet();
+        if (email == null) return;
+        Integer id = byEmail.get(key(email));
+        if (id != null) remove(id);
+        if (!loading.isEmpty()) markInvalidated(key(email));
+    }
+
+    public synchronized void invalidate(int id) {
+        generation++;
+        invalidations.incrementAndGet();
+        remove(id);
+        if (!loading.isEmpty()) markInvalidated(id);
+    }
+
+    public synchronized void clear() {
+        clearedAt = ++generation;
+        byId.clear();
+        byEmail.clear();
+    }
+
+    /**
+     * MySQL so sánh email không phân biệt hoa thường nên key cũng vậy
+     */
+    private static String key(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    private static User copy(User user) {
+        User u = new User();
+        u.setId(user.getId());
+        u.setEmail(user.getEmail());
+        u.setPassword(user.getPassword());
+        u.setFullName(user.getFullName());
+        u.setAvatar(user.getAvatar());
+        u.setRole(user.getRole());
+        u.setVerified(user.isVerified());
+        u.setVerificationCode(user.getVerificationCode());
+        u.setVerificationExpiry(user.getVerificationExpiry());
+        return u;
+    }
+
+    public String stats() {
+        int size;
+        synchronized (this) {
+            size = byId.size();
+        }
+        long h = hits.get(), m = misses.get();
+        return "size=" + size + "/" + maxSize + " hits=" + h + " misses=" + m
+                + " hitRate=" + (h + m == 0 ? 0 : h * 100 / (h + m)) + "%"
+                + " evictions=" + evictions.get() + " expirations=" + expirations.get()
+                + " invalidations=" + invalidations.get();
+    }
+
+    private static class Entry {
+        final User user;
+        final long loadedAt;
+
+        Entry(User user, long loadedAt) {
+            this.user = user;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
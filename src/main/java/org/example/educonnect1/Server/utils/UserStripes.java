@@ -0,0 +1,96 @@
+package org.example.educonnect1.Server.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Phối hợp cache theo user trong RAM (UnreadCounters, InboxCache) với các lần ghi DB mà không giữ lock qua JDBC.
+ * - Chia user thành STRIPES phần; dữ liệu cache của một user chỉ đọc/ghi khi giữ lock của stripe chứa nó
+ * - Ghi: begin() đánh dấu các stripe bị ảnh hưởng, ghi DB (không giữ lock), áp thay đổi vào RAM dưới lock
+ *   của từng stripe, rồi end() tăng version
+ * - Nạp từ DB: lấy stamp() trước khi đọc, chỉ đưa kết quả vào cache nếu unchanged(): lần đọc xen giữa lúc
+ *   commit và lúc áp RAM sẽ thấy thay đổi hai lần (hoặc không lần nào) nên bị bỏ, lần sau nạp lại
+ */
+final class UserStripes {
+    private static final int STRIPES = 64; // lũy thừa của 2
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    static final class Stripe {
+        private int writers;  // số lần ghi DB đang chạy có chạm stripe này
+        private long version; // tăng mỗi khi một lần ghi xong
+    }
+
+    UserStripes() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    Stripe of(int userId) {
+        return stripes[index(userId)];
+    }
+
+    private static int index(int userId) {
+        int h = userId * 0x9E3779B9; // trộn bit để id liên tiếp rải đều các stripe
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    /**
+     * Trước khi ghi DB cho các user đã cho; trả về các stripe cần end()
+     */
+    List<Stripe> begin(Iterable<Integer> userIds) {
+        boolean[] seen = new boolean[STRIPES];
+        List<Stripe> touched = new ArrayList<>();
+        for (int userId : userIds) {
+            int index = index(userId);
+            if (seen[index]) continue;
+            seen[index] = true;
+            touched.add(stripes[index]);
+        }
+        for (Stripe stripe : touched) {
+            synchronized (stripe) {
+                stripe.writers++;
+            }
+        }
+        return touched;
+    }
+
+    /**
+     * Lần ghi không biết trước user nào bị ảnh hưởng (đếm lại bộ đếm)
+     */
+    List<Stripe> beginAll() {
+        List<Stripe> all = List.of(stripes);
+        for (Stripe stripe : all) {
+            synchronized (stripe) {
+                stripe.writers++;
+            }
+        }
+        return all;
+    }
+
+    void end(List<Stripe> touched) {
+        for (Stripe stripe : touched) {
+            synchronized (stripe) {
+                stripe.writers--;
+                stripe.version++;
+            }
+        }
+    }
+
+    /**
+     * Gọi trước khi đọc DB để nạp cache; -1 nếu đang có lần ghi chạm stripe (kết quả sẽ không được cache)
+     */
+    long stamp(Stripe stripe) {
+        synchronized (stripe) {
+            return stripe.writers > 0 ? -1 : stripe.version;
+        }
+    }
+
+    /**
+     * Gọi khi giữ lock của stripe: không có lần ghi nào chạm stripe kể từ stamp
+     */
+    boolean unchanged(Stripe stripe, long stamp) {
+        return stamp >= 0 && stripe.writers == 0 && stripe.version == stamp;
+    }
+}
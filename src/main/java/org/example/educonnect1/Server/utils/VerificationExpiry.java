@@ -0,0 +1,91 @@
+package org.example.educonnect1.Server.utils;
+
+import org.example.educonnect1.Server.dao.UserDAO;
+import org.example.educonnect1.logging.Log;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dọn mã xác thực hết hạn: mỗi mã đang chờ có một timer trên TimingWheel, tới hạn thì xóa mã trong DB.
+ * VERIFY tự kiểm tra verification_expiry nên timer chỉ để dọn dẹp; mã hết hạn lúc server tắt
+ * được xóa một lần khi start.
+ */
+public class VerificationExpiry {
+    private static final Log LOG = Log.get("verification");
+    private final UserDAO userDAO;
+    private final ConcurrentHashMap<String, TimingWheel.Timeout> pending = new ConcurrentHashMap<>();
+    // Ghi DB ngoài thread của TimingWheel
+    private final ExecutorService cleaner = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "verification-cleaner");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Metrics
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public VerificationExpiry(UserDAO userDAO) {
+        this.userDAO = userDAO;
+    }
+
+    /**
+     * Xóa ở nền các mã đã hết hạn trong lúc server không chạy
+     */
+    public void start() {
+        cleaner.execute(() -> {
+            try {
+                int cleared = userDAO.clearExpiredVerifications();
+                if (cleared > 0) LOG.info("✓ Cleared expired verification codes").with("cleared", cleared).log();
+            } catch (RuntimeException e) {
+                LOG.warn("⚠ Cannot clear expired verification codes").error(e).log();
+            }
+        });
+    }
+
+    /**
+     * Mã mới cho email (gửi lại mã thì timer cũ bị hủy)
+     */
+    public void track(String email, LocalDateTime expiry) {
+        long delay = Math.max(0, Duration.between(LocalDateTime.now(), expiry).toMillis());
+        TimingWheel.Timeout timeout = TimingWheel.shared().schedule(
+                () -> cleaner.execute(() -> expire(email)), delay, TimeUnit.MILLISECONDS);
+        TimingWheel.Timeout old = pending.put(email, timeout);
+        if (old != null) old.cancel();
+    }
+
+    /**
+     * Đã xác thực: không cần dọn nữa
+     */
+    public void verified(String email) {
+        TimingWheel.Timeout timeout = pending.remove(email);
+        if (timeout != null) timeout.cancel();
+    }
+
+    private void expire(String email) {
+        // Timer mới hơn (gửi lại mã) thì vẫn giữ
+        pending.computeIfPresent(email, (key, timeout) -> timeout.isExpired() ? null : timeout);
+        try {
+            // UPDATE chỉ xóa khi verification_expiry đã qua nên timer cũ chạy muộn cũng không xóa nhầm mã mới
+            userDAO.clearExpiredVerification(email);
+            expired.incrementAndGet();
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            LOG.warn("Cannot clear verification code").with("email", email).error(e).log();
+        }
+    }
+
+    public void stop() {
+        cleaner.shutdownNow();
+    }
+
+    public String stats() {
+        return "pending=" + pending.size() + " expired=" + expired.get() + " failed=" + failed.get();
+    }
+}
@@ -0,0 +1,423 @@
+package org.example.educonnect1.client.controllers;
+
+import javafx.application.Platform;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.control.TextField;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.scene.shape.Circle;
+import org.example.educonnect1.client.models.ConversationSummary;
+import org.example.educonnect1.client.models.Message;
+import org.example.educonnect1.client.models.User;
+import org.example.educonnect1.client.models.UserSummary;
+import org.example.educonnect1.client.utils.EventDispatcher;
+import org.example.educonnect1.client.utils.SessionManager;
+import org.example.educonnect1.client.utils.SocketManager;
+import org.example.educonnect1.protocol.Opcode;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Màn hình chat: mở hội thoại chỉ tải trang mới nhất, trang cũ hơn được tải sẵn (prefetch)
+ * ngay khi trang trước hiện lên để cuộn lên là có luôn.
+ * Danh sách hội thoại bên trái lấy từ GET_CONVERSATIONS và được cập nhật tại chỗ khi có tin nhắn mới.
+ */
+public class ChatController implements Initializable {
+
+    private static final int PAGE_SIZE = 30;
+    // Cuộn lên trong khoảng này tính từ đỉnh thì hiện trang cũ hơn
+    private static final double LOAD_OLDER_THRESHOLD = 0.15;
+    private static final int INBOX_PAGE_SIZE = 30;
+    // Response không gắn với hội thoại đang mở (danh sách hội thoại, mark read)
+    private static final int ANY_GENERATION = -1;
+
+    @FXML
+    private ScrollPane conversationsScrollPane;
+    @FXML
+    private VBox conversationsList;
+    @FXML
+    private ImageView chatHeaderAvatar;
+    @FXML
+    private Label chatHeaderName;
+    @FXML
+    private ScrollPane messagesScrollPane;
+    @FXML
+    private VBox messagesContainer;
+    @FXML
+    private TextField messageInput;
+    @FXML
+    private Button sendButton;
+
+    // Trạng thái hội thoại đang mở (chỉ đụng tới trên FX thread)
+    private UserSummary friend;
+    private Integer conversationId;
+    private Integer nextBefore;          // cursor của trang cũ hơn chưa tải
+    private List<Message> prefetched;    // trang cũ hơn đã tải sẵn, chưa hiển thị
+    private Integer prefetchedBefore;    // cursor sau trang đã tải sẵn
+    private boolean loading = false;
+    private boolean showWhenLoaded = false;
+    private volatile int generation = 0;
+
+    // Danh sách hội thoại, mới cập nhật trước (chỉ đụng tới trên FX thread)
+    private final Map<Integer, ConversationSummary> conversations = new LinkedHashMap<>();
+    private String inboxCursor;
+    private boolean inboxLoading = false;
+
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "chat-sender");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Consumer<List<Object>> newMessageListener = fields -> Platform.runLater(() -> onNewMessage(fields));
+    private final Consumer<List<Object>> resyncListener = fields -> Platform.runLater(this::onResyncRequired);
+
+    @Override
+    public void initialize(URL location, ResourceBundle resources) {
+        messagesScrollPane.vvalueProperty().addListener((obs, oldValue, newValue) -> {
+            if (newValue.doubleValue() < LOAD_OLDER_THRESHOLD && newValue.doubleValue() < oldValue.doubleValue()) {
+                showOlder();
+            }
+        });
+        conversationsScrollPane.vvalueProperty().addListener((obs, oldValue, newValue) -> {
+            if (newValue.doubleValue() > 0.9) loadConversations(false);
+        });
+        messageInput.setOnAction(this::onSendMessage);
+        EventDispatcher.getInstance().on(Opcode.EVENT_NEW_MESSAGE, newMessageListener);
+        EventDispatcher.getInstance().on(Opcode.EVENT_RESYNC_REQUIRED, resyncListener);
+        loadConversations(true);
+    }
+
+    /**
+     * Tải danh sách hội thoại: reset = trang đầu, không thì trang kế tiếp khi cuộn xuống
+     */
+    private void loadConversations(boolean reset) {
+        if (inboxLoading || (!reset && inboxCursor == null)) return;
+        inboxLoading = true;
+        String cursor = reset ? null : inboxCursor;
+        send(ANY_GENERATION, "GET_CONVERSATIONS", new Object[]{cursor, INBOX_PAGE_SIZE}, values -> {
+            inboxLoading = false;
+            if (!"SUCCESS".equals(values.get(0))) return;
+            @SuppressWarnings("unchecked")
+            List<ConversationSummary> page = (List<ConversationSummary>) values.get(1);
+            inboxCursor = (String) values.get(2);
+            if (reset) conversations.clear();
+            for (ConversationSummary summary : page) {
+                conversations.put(summary.getConversationId(), summary);
+            }
+            renderConversations();
+        });
+    }
+
+    /**
+     * Cập nhật dòng của một hội thoại sau tin nhắn mới và đưa nó lên đầu danh sách
+     */
+    private void updateConversation(int id, int messageId, int senderId, String content, boolean read) {
+        ConversationSummary old = conversations.remove(id);
+        if (old == null && (friend == null || !Integer.valueOf(id).equals(conversationId))) {
+            // Hội thoại chưa có trong danh sách: tải lại trang đầu
+            loadConversations(true);
+            return;
+        }
+        UserSummary peer = old != null ? old.getPeer() : friend;
+        int unread = read ? 0 : (old == null ? 0 : old.getUnread()) + 1;
+        Map<Integer, ConversationSummary> reordered = new LinkedHashMap<>();
+        reordered.put(id, new ConversationSummary(id, peer, messageId, senderId, content, System.currentTimeMillis(), unread));
+        reordered.putAll(conversations);
+        conversations.clear();
+        conversations.putAll(reordered);
+        renderConversations();
+    }
+
+    private void renderConversations() {
+        List<Node> rows = new ArrayList<>(conversations.size());
+        for (ConversationSummary summary : conversations.values()) {
+            rows.add(conversationRow(summary));
+        }
+        conversationsList.getChildren().setAll(rows);
+    }
+
+    private HBox conversationRow(ConversationSummary summary) {
+        UserSummary peer = summary.getPeer();
+        HBox row = new HBox(10);
+        row.setAlignment(Pos.CENTER_LEFT);
+        row.setPadding(new Insets(8));
+        boolean active = Integer.valueOf(summary.getConversationId()).equals(conversationId);
+        row.setStyle("-fx-background-radius: 8px; -fx-background-color: " + (active ? "#eaf2fb;" : "transparent;"));
+
+        ImageView avatar = new ImageView();
+        avatar.setFitWidth(40);
+        avatar.setFitHeight(40);
+        avatar.setPreserveRatio(true);
+        setAvatar(avatar, peer == null ? null : peer.getAvatar());
+
+        VBox text = new VBox(2);
+        Label name = new Label(peer == null ? "Group" : peer.getFullName());
+        name.setStyle("-fx-font-size: 14px; -fx-font-weight: bold; -fx-text-fill: #2c3e50;");
+        Label preview = new Label(summary.getLastPreview());
+        preview.setStyle("-fx-font-size: 12px; -fx-text-fill: #7f8c8d;");
+        text.getChildren().addAll(name, preview);
+        HBox.setHgrow(text, javafx.scene.layout.Priority.ALWAYS);
+        row.getChildren().addAll(avatar, text);
+
+        if (summary.getUnread() > 0) {
+            Label badge = new Label(summary.getUnread() > 99 ? "99+" : String.valueOf(summary.getUnread()));
+            badge.setStyle("-fx-background-color: #e74c3c; -fx-text-fill: white; -fx-font-size: 11px; " +
+                    "-fx-padding: 2px 7px; -fx-background-radius: 10px;");
+            row.getChildren().add(badge);
+        }
+        if (peer != null) row.setOnMouseClicked(e -> openChat(peer));
+        return row;
+    }
+
+    /**
+     * Mở chat 1-1 với một người bạn (gọi trên FX thread)
+     */
+    public void openChat(UserSummary friend) {
+        this.friend = friend;
+        this.conversationId = null;
+        this.nextBefore = null;
+        this.prefetched = null;
+        this.loading = true;
+        this.showWhenLoaded = false;
+        int requestGeneration = ++generation;
+        chatHeaderName.setText(friend.getFullName());
+        setAvatar(chatHeaderAvatar, friend.getAvatar());
+        messagesContainer.getChildren().clear();
+
+        send(requestGeneration, "OPEN_CONVERSATION", new Object[]{friend.getId(), PAGE_SIZE}, values -> {
+            loading = false;
+            if (!"SUCCESS".equals(values.get(0))) return;
+            conversationId = (Integer) values.get(1);
+            @SuppressWarnings("unchecked")
+            List<Message> page = (List<Message>) values.get(2);
+            nextBefore = (Integer) values.get(3);
+            List<Node> nodes = new ArrayList<>(page.size());
+            for (int i = page.size() - 1; i >= 0; i--) {
+                nodes.add(bubbleFor(page.get(i)));
+            }
+            messagesContainer.getChildren().setAll(nodes);
+            scrollToBottom();
+            if (!page.isEmpty()) markRead(page.get(0).getId());
+            renderConversations();
+            prefetchOlder();
+        });
+    }
+
+    /**
+     * Đã xem tới messageId: server đưa bộ đếm unread về 0, badge trong danh sách cũng vậy
+     */
+    private void markRead(int messageId) {
+        if (conversationId == null) return;
+        int id = conversationId;
+        ConversationSummary summary = conversations.get(id);
+        if (summary != null && summary.getUnread() > 0) {
+            conversations.put(id, new ConversationSummary(id, summary.getPeer(), summary.getLastMessageId(),
+                    summary.getLastSenderId(), summary.getLastPreview(), summary.getUpdatedAt(), 0));
+            renderConversations();
+        }
+        send(ANY_GENERATION, "MARK_MESSAGES_READ", new Object[]{id, messageId}, values -> {
+            if (!"SUCCESS".equals(values.get(0))) System.err.println("Mark read failed for conversation " + id);
+        });
+    }
+
+    /**
+     * Tải sẵn trang cũ hơn ở nền, chưa thêm vào danh sách
+     */
+    private void prefetchOlder() {
+        if (conversationId == null || nextBefore == null || loading || prefetched != null) return;
+        loading = true;
+        Integer before = nextBefore;
+        send(generation, "GET_MESSAGES", new Object[]{conversationId, before, PAGE_SIZE}, values -> {
+            loading = false;
+            if (!"SUCCESS".equals(values.get(0))) return;
+            @SuppressWarnings("unchecked")
+            List<Message> page = (List<Message>) values.get(1);
+            prefetched = page;
+            prefetchedBefore = (Integer) values.get(2);
+            if (showWhenLoaded) {
+                showWhenLoaded = false;
+                showOlder();
+            }
+        });
+    }
+
+    /**
+     * Người dùng cuộn gần đỉnh: hiện trang đã tải sẵn (giữ nguyên vị trí đang đọc) rồi tải sẵn trang kế
+     */
+    private void showOlder() {
+        if (prefetched == null) {
+            // Trang chưa về kịp: hiện ngay khi có
+            showWhenLoaded = nextBefore != null;
+            prefetchOlder();
+            return;
+        }
+        List<Message> page = prefetched;
+        nextBefore = prefetchedBefore;
+        prefetched = null;
+        if (!page.isEmpty()) {
+            double viewport = messagesScrollPane.getViewportBounds().getHeight();
+            double oldHeight = messagesContainer.prefHeight(messagesContainer.getWidth());
+            double offset = messagesScrollPane.getVvalue() * Math.max(0, oldHeight - viewport);
+            List<Node> nodes = new ArrayList<>(page.size());
+            for (int i = page.size() - 1; i >= 0; i--) {
+                nodes.add(bubbleFor(page.get(i)));
+            }
+            messagesContainer.getChildren().addAll(0, nodes);
+            messagesContainer.applyCss();
+            messagesContainer.layout();
+            double newHeight = messagesContainer.prefHeight(messagesContainer.getWidth());
+            double scrollable = newHeight - viewport;
+            if (scrollable > 0) {
+                messagesScrollPane.setVvalue((offset + newHeight - oldHeight) / scrollable);
+            }
+        }
+        prefetchOlder();
+    }
+
+    @FXML
+    public void onSendMessage(ActionEvent actionEvent) {
+        String content = messageInput.getText().trim();
+        User currentUser = SessionManager.getCurrentUser();
+        if (content.isEmpty() || friend == null || currentUser == null) return;
+        messageInput.clear();
+        send(generation, "SEND_MESSAGE", new Object[]{currentUser.getId(), friend.getId(), content}, values -> {
+            if ("PENDING".equals(values.get(0))) {
+                // Server đã nhận nhưng chưa ghi xong: không trả lại nội dung để gửi lại (sẽ thành tin trùng),
+                // tin nhắn hiện ra khi EVENT_NEW_MESSAGE về
+                if (conversationId == null) conversationId = (Integer) values.get(1);
+                return;
+            }
+            if (!"SUCCESS".equals(values.get(0))) {
+                System.err.println("Send message failed: " + values.get(0));
+                messageInput.setText(content);
+                return;
+            }
+            if (conversationId == null && values.size() > 2) {
+                conversationId = (Integer) values.get(2);
+            }
+            Message message = new Message((Integer) values.get(1), conversationId == null ? 0 : conversationId,
+                    currentUser.getId(), content, System.currentTimeMillis());
+            messagesContainer.getChildren().add(bubbleFor(message));
+            scrollToBottom();
+            if (conversationId != null) {
+                updateConversation(conversationId, message.getId(), currentUser.getId(), content, true);
+            }
+        });
+    }
+
+    /**
+     * EVENT_NEW_MESSAGE: conversationId, senderId, messageId, content
+     */
+    private void onNewMessage(List<Object> fields) {
+        int eventConversation = (Integer) fields.get(0);
+        int senderId = (Integer) fields.get(1);
+        int messageId = (Integer) fields.get(2);
+        String content = (String) fields.get(3);
+        boolean current = friend != null
+                && (conversationId != null ? conversationId == eventConversation : senderId == friend.getId());
+        if (current) {
+            conversationId = eventConversation;
+            boolean atBottom = messagesScrollPane.getVvalue() > 0.95;
+            messagesContainer.getChildren().add(bubbleFor(new Message(messageId, eventConversation,
+                    senderId, content, System.currentTimeMillis())));
+            if (atBottom) scrollToBottom();
+            markRead(messageId);
+        }
+        updateConversation(eventConversation, messageId, senderId, content, current);
+    }
+
+    /**
+     * EVENT_RESYNC_REQUIRED: server đã bỏ bớt event vì client đọc chậm, tải lại danh sách và chat đang mở
+     */
+    private void onResyncRequired() {
+        loadConversations(true);
+        if (friend != null) openChat(friend);
+    }
+
+    /**
+     * Gửi request trên thread riêng (request() có thể phải kết nối lại), xử lý response trên FX thread;
+     * response của hội thoại đã đóng/đổi bị bỏ qua (trừ ANY_GENERATION)
+     */
+    private void send(int requestGeneration, String action, Object[] params, Consumer<List<Object>> onSuccess) {
+        sender.execute(() -> {
+            CompletableFuture<List<Object>> future;
+            try {
+                future = SocketManager.getInstance().request(action, params);
+            } catch (IOException e) {
+                System.err.println(action + " failed: " + e.getMessage());
+                Platform.runLater(() -> requestFailed(requestGeneration));
+                return;
+            }
+            future.whenComplete((values, error) -> Platform.runLater(() -> {
+                if (requestGeneration != ANY_GENERATION && requestGeneration != generation) return;
+                if (error != null) {
+                    System.err.println(action + " failed: " + error.getMessage());
+                    requestFailed(requestGeneration);
+                    return;
+                }
+                onSuccess.accept(values);
+            }));
+        });
+    }
+
+    private void requestFailed(int requestGeneration) {
+        if (requestGeneration == ANY_GENERATION) inboxLoading = false;
+        else if (requestGeneration == generation) loading = false;
+    }
+
+    private void scrollToBottom() {
+        messagesContainer.applyCss();
+        messagesContainer.layout();
+        messagesScrollPane.setVvalue(1.0);
+    }
+
+    private HBox bubbleFor(Message message) {
+        User currentUser = SessionManager.getCurrentUser();
+        boolean mine = currentUser != null && message.getSenderId() == currentUser.getId();
+
+        Label text = new Label(message.getContent());
+        text.setWrapText(true);
+        text.setMaxWidth(420);
+        text.setPadding(new Insets(8, 12, 8, 12));
+        text.setStyle(mine
+                ? "-fx-background-color: #3498db; -fx-text-fill: white; -fx-background-radius: 15px;"
+                : "-fx-background-color: white; -fx-text-fill: #2c3e50; -fx-background-radius: 15px;");
+
+        HBox row = new HBox(text);
+        row.setAlignment(mine ? Pos.CENTER_RIGHT : Pos.CENTER_LEFT);
+        return row;
+    }
+
+    private void setAvatar(ImageView view, String avatarUrl) {
+        if (avatarUrl == null || avatarUrl.isEmpty()) {
+            avatarUrl = "https://res.cloudinary.com/do46eak3c/image/upload/v1761648489/anhmd_fqwsrr.jpg";
+        }
+        try {
+            view.setImage(new Image(avatarUrl, true));
+            double radius = view.getFitWidth() / 2;
+            view.setClip(new Circle(radius, radius, radius));
+        } catch (Exception e) {
+            System.err.println("Failed to load avatar: " + e.getMessage());
+        }
+    }
+}
@@ -10,6 +10,7 @@ import javafx.scene.control.*;
 import javafx.scene.input.MouseEvent;
 import javafx.stage.Stage;
 import org.example.educonnect1.client.models.User;
+import org.example.educonnect1.client.models.UserProfile;
 import org.example.educonnect1.client.utils.SessionManager;
 import org.example.educonnect1.client.utils.SocketManager;
 import java.io.IOException;
@@ -43,7 +44,7 @@ public class Login implements Initializable {
                     // Đọc response
                     String response = (String) socketManager.readResponse();
                     if ("SUCCESS".equals(response)) {
-                        User user = (User) socketManager.readResponse();
+                        User user = ((UserProfile) socketManager.readResponse()).toUser();
                         return new LoginResult(true, response, user, null);
                     } else {
                         return new LoginResult(false, response, null, null);
@@ -120,6 +121,10 @@ public class Login implements Initializable {
                 showAlert(Alert.AlertType.ERROR, "Login Failed",
                         "Invalid email or password.");
                 break;
+            case "BUSY":
+                showAlert(Alert.AlertType.WARNING, "Server Busy",
+                        "The server is handling many sign-ins right now. Please try again in a moment.");
+                break;
             case "CONNECTION_ERROR":
                 showAlert(Alert.AlertType.ERROR, "Connection Error",
                         "Could not connect to server. Please check:\n" +
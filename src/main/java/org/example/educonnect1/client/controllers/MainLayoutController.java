@@ -1,5 +1,6 @@
 package org.example.educonnect1.client.controllers;
 
+import javafx.animation.PauseTransition;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 
@@ -15,13 +16,12 @@ import javafx.scene.input.MouseEvent;;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.StackPane;
 import javafx.scene.shape.Circle;
+import javafx.util.Duration;
 import org.example.educonnect1.client.models.User;
 import org.example.educonnect1.client.utils.SessionManager;
-import org.example.educonnect1.client.utils.SocketManager;
 import java.io.IOException;
 import java.net.URL;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
 
@@ -41,6 +41,12 @@ public class MainLayoutController implements Initializable {
 
     private final Map<String, Node> scenes = new HashMap<>();
 
+    // Typeahead: chỉ tìm khi ngừng gõ một lúc, view kết quả load một lần rồi dùng lại
+    private static final Duration SEARCH_DEBOUNCE = Duration.millis(250);
+    private final PauseTransition searchDebounce = new PauseTransition(SEARCH_DEBOUNCE);
+    private Parent searchView;
+    private SearchFriendController searchController;
+
     public void onHome(ActionEvent actionEvent) {
         showView("Home.fxml");
     }
@@ -71,48 +77,32 @@ public class MainLayoutController implements Initializable {
     }
 
     public void Search(ActionEvent actionEvent) {
+        searchDebounce.stop();
+        runSearch();
+    }
+
+    private void runSearch() {
         String query = searchField.getText().trim();
         if (query.isEmpty()) {
             System.out.println("Search query is empty");
             return;
         }
 
-        new Thread(() -> {
-            try {
-                SocketManager socket = SocketManager.getInstance();
-                socket.sendRequest("SEARCH_FRIEND", query);
-                Object response = socket.readResponse();
-                
-                if (response instanceof List) {
-                    @SuppressWarnings("unchecked")
-                    List<User> users = (List<User>) response;
-                    
-                    javafx.application.Platform.runLater(() -> {
-                        try {
-                            URL fxmlUrl = getClass().getResource("/org/example/educonnect1/Client/SearchFriend.fxml");
-                            FXMLLoader loader = new FXMLLoader(fxmlUrl);
-                            Parent view = loader.load();
-                            
-                            SearchFriendController controller = loader.getController();
-                            controller.displayResults(users);
-                            
-                            contentPane.getChildren().clear();
-                            contentPane.getChildren().add(view);
-                            
-                            System.out.println("✅ Search completed: " + users.size() + " results");
-                        } catch (IOException e) {
-                            System.err.println("❌ Error loading search view: " + e.getMessage());
-                            e.printStackTrace();
-                        }
-                    });
-                } else {
-                    System.err.println("Unexpected response type: " + response);
-                }
-            } catch (Exception e) {
-                System.err.println("Search failed: " + e.getMessage());
-                e.printStackTrace();
+        try {
+            if (searchView == null) {
+                URL fxmlUrl = getClass().getResource("/org/example/educonnect1/Client/SearchFriend.fxml");
+                FXMLLoader loader = new FXMLLoader(fxmlUrl);
+                searchView = loader.load();
+                searchController = loader.getController();
+            }
+            if (!contentPane.getChildren().contains(searchView)) {
+                contentPane.getChildren().setAll(searchView);
             }
-        }).start();
+            searchController.search(query);
+        } catch (IOException e) {
+            System.err.println("❌ Error loading search view: " + e.getMessage());
+            e.printStackTrace();
+        }
     }
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -137,6 +127,11 @@ public class MainLayoutController implements Initializable {
         } else {
             System.out.println("Current user is null! Session not set correctly.");
         }
+        searchDebounce.setOnFinished(e -> runSearch());
+        searchField.textProperty().addListener((obs, oldText, newText) -> {
+            if (newText.trim().equals(oldText.trim())) return;
+            searchDebounce.playFromStart();
+        });
         javafx.application.Platform.runLater(() -> showView("Home.fxml"));
 
     }
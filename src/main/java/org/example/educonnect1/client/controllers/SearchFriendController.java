@@ -5,53 +5,203 @@ import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ScrollPane;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.scene.shape.Circle;
 import org.example.educonnect1.client.models.User;
+import org.example.educonnect1.client.models.UserSummary;
+import org.example.educonnect1.client.utils.SearchCache;
 import org.example.educonnect1.client.utils.SessionManager;
 import org.example.educonnect1.client.utils.SocketManager;
 
+import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class SearchFriendController implements Initializable {
 
+    private static final int PAGE_SIZE = 20;
+    private static final int MAX_CACHED_CARDS = 200;
+
     @FXML
     private VBox resultsContainer;
+    @FXML
+    private ScrollPane scrollPane;
+
+    private List<UserSummary> searchResults = new ArrayList<>();
 
-    private List<User> searchResults;
+    // Trạng thái phân trang của lượt tìm hiện tại (chỉ đụng tới trên FX thread)
+    private String query;
+    private String nextCursor;
+    private boolean loading = false;
+    private volatile int generation = 0;
+    private volatile CompletableFuture<List<Object>> pending;
+
+    private final SearchCache cache = new SearchCache();
+    // Card của các user vừa hiển thị, dùng lại khi gõ thêm chữ thay vì dựng lại (và tải lại avatar)
+    private final Map<Integer, HBox> cards = new LinkedHashMap<Integer, HBox>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, HBox> eldest) {
+            return size() > MAX_CACHED_CARDS;
+        }
+    };
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "search-sender");
+        t.setDaemon(true);
+        return t;
+    });
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
-        // Initialize if needed
+        // Cuộn gần cuối danh sách thì tải trang tiếp theo
+        scrollPane.vvalueProperty().addListener((obs, oldValue, newValue) -> {
+            if (newValue.doubleValue() > 0.9) loadNextPage();
+        });
     }
 
-    public void displayResults(List<User> users) {
-        this.searchResults = users;
-        Platform.runLater(() -> {
-            resultsContainer.getChildren().clear();
-            
-            if (users == null || users.isEmpty()) {
-                Label noResults = new Label("No users found");
-                noResults.setStyle("-fx-font-size: 16px; -fx-text-fill: #7f8c8d;");
-                resultsContainer.getChildren().add(noResults);
+    /**
+     * Bắt đầu lượt tìm mới (gọi trên FX thread): request cũ chưa xong bị hủy,
+     * trang đầu lấy từ cache nếu có, các trang sau tải khi cuộn xuống
+     */
+    public void search(String query) {
+        this.query = query;
+        this.nextCursor = null;
+        this.loading = false;
+        this.generation++;
+        SocketManager.getInstance().cancel(pending);
+        pending = null;
+
+        SearchCache.Page cached = cache.get(query, PAGE_SIZE);
+        if (cached != null) {
+            nextCursor = cached.nextCursor;
+            displayResults(cached.users);
+            return;
+        }
+        fetchPage(null);
+    }
+
+    private void loadNextPage() {
+        if (query != null && nextCursor != null && !loading) {
+            fetchPage(nextCursor);
+        }
+    }
+
+    private void fetchPage(String cursor) {
+        loading = true;
+        int requestGeneration = generation;
+        String requestQuery = query;
+        // Gửi trên thread riêng vì request() có thể phải kết nối lại
+        sender.execute(() -> {
+            if (requestGeneration != generation) return; // bị thay thế khi còn trong hàng đợi
+            CompletableFuture<List<Object>> future;
+            try {
+                future = SocketManager.getInstance().request("SEARCH_FRIEND_PAGE", requestQuery, cursor, PAGE_SIZE);
+            } catch (IOException e) {
+                System.err.println("Search failed: " + e.getMessage());
+                Platform.runLater(() -> {
+                    if (requestGeneration == generation) loading = false;
+                });
+                return;
+            }
+            pending = future;
+            // search() có thể đã chạy giữa lần kiểm tra trên và lúc gán pending (nên đã hủy pending cũ/null):
+            // kiểm tra lại sau khi gán để request thừa vẫn được hủy cả ở server
+            if (requestGeneration != generation) {
+                SocketManager.getInstance().cancel(future);
                 return;
             }
+            future.whenComplete((values, error) -> Platform.runLater(() -> {
+                if (requestGeneration != generation) return; // đã có lượt tìm mới
+                loading = false;
+                if (pending == future) pending = null;
+                if (error != null) {
+                    if (!(error instanceof CancellationException)) {
+                        System.err.println("Search failed: " + error.getMessage());
+                    }
+                    return;
+                }
+                @SuppressWarnings("unchecked")
+                List<UserSummary> users = (List<UserSummary>) values.get(0);
+                String next = (String) values.get(1);
+                nextCursor = next;
+                if (cursor == null) {
+                    cache.put(requestQuery, users, next);
+                    displayResults(users);
+                } else {
+                    appendResults(users);
+                }
+                System.out.println("✅ Search page: " + users.size() + " results" + (next != null ? " (more)" : ""));
+            }));
+        });
+    }
+
+    /**
+     * Gọi trên FX thread: thay nội dung danh sách hiện tại bằng trang đầu của lượt tìm mới
+     */
+    public void displayResults(List<UserSummary> users) {
+        searchResults = new ArrayList<>(users);
+        if (users.isEmpty()) {
+            Label noResults = new Label("No users found");
+            noResults.setStyle("-fx-font-size: 16px; -fx-text-fill: #7f8c8d;");
+            resultsContainer.getChildren().setAll(noResults);
+            return;
+        }
+        List<Node> nodes = new ArrayList<>(users.size());
+        for (UserSummary user : users) {
+            nodes.add(cardFor(user));
+        }
+        resultsContainer.getChildren().setAll(nodes);
+        scrollPane.setVvalue(0);
+        loadMoreIfNotFilled();
+    }
 
-            for (User user : users) {
-                HBox userCard = createUserCard(user);
-                resultsContainer.getChildren().add(userCard);
+    /**
+     * Gọi trên FX thread: thêm một trang vào cuối danh sách đang hiển thị
+     */
+    private void appendResults(List<UserSummary> users) {
+        searchResults.addAll(users);
+        for (UserSummary user : users) {
+            resultsContainer.getChildren().add(cardFor(user));
+        }
+        loadMoreIfNotFilled();
+    }
+
+    /**
+     * Danh sách chưa lấp đầy khung nhìn thì không có sự kiện cuộn, tải tiếp luôn
+     */
+    private void loadMoreIfNotFilled() {
+        if (nextCursor == null) return;
+        Platform.runLater(() -> {
+            if (scrollPane.getContent().getBoundsInLocal().getHeight() <= scrollPane.getViewportBounds().getHeight()) {
+                loadNextPage();
             }
         });
     }
 
-    private HBox createUserCard(User user) {
+    private HBox cardFor(UserSummary user) {
+        HBox card = cards.get(user.getId());
+        if (card == null) {
+            card = createUserCard(user);
+            cards.put(user.getId(), card);
+        }
+        return card;
+    }
+
+    private HBox createUserCard(UserSummary user) {
         HBox card = new HBox(15);
         card.setAlignment(Pos.CENTER_LEFT);
         card.setPadding(new Insets(10));
@@ -98,7 +248,7 @@ public class SearchFriendController implements Initializable {
         return card;
     }
 
-    private void handleAddFriend(User user) {
+    private void handleAddFriend(UserSummary user) {
         new Thread(() -> {
             try {
                 User currentUser = SessionManager.getCurrentUser();
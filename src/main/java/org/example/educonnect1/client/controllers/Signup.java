@@ -134,6 +134,11 @@ public class Signup implements Initializable {
                         "Could not complete registration. Please try again.");
                 break;
 
+            case "BUSY":
+                showAlert(Alert.AlertType.WARNING, "Server Busy",
+                        "The server is handling many registrations right now. Please try again in a moment.");
+                break;
+
             case "CONNECTION_ERROR":
                 showAlert(Alert.AlertType.ERROR, "Connection Error",
                         "Could not connect to server. Please check:\n" +
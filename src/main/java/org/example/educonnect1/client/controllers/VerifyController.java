@@ -67,9 +67,10 @@ public class VerifyController {
 
             VerifyResult result = verifyTask.getValue();
 
-            if ("SUCCESS".equals(result.status)) {
-                showAlert(Alert.AlertType.INFORMATION, "Success",
-                        "Email verified successfully! You can now login.");
+            if ("SUCCESS".equals(result.status) || "ALREADY_VERIFIED".equals(result.status)) {
+                showAlert(Alert.AlertType.INFORMATION, "Success", "SUCCESS".equals(result.status)
+                        ? "Email verified successfully! You can now login."
+                        : "This email is already verified. You can login.");
 
                 // Đóng verify window và signup window
                 ((Stage) btnVerify.getScene().getWindow()).close();
@@ -87,6 +88,9 @@ public class VerifyController {
             } else if ("INVALID_CODE".equals(result.status)) {
                 showAlert(Alert.AlertType.ERROR, "Invalid Code",
                         "The verification code is incorrect.");
+            } else if ("CODE_EXPIRED".equals(result.status)) {
+                showAlert(Alert.AlertType.ERROR, "Code Expired",
+                        "The verification code has expired. Sign up again to receive a new code.");
             } else {
                 showAlert(Alert.AlertType.ERROR, "Error",
                         "Verification failed: " + result.errorMessage);
@@ -0,0 +1,99 @@
+package org.example.educonnect1.client.models;
+
+import java.io.*;
+
+/**
+ * Một dòng trong danh sách hội thoại: người kia (chat 1-1, null với nhóm), tin nhắn cuối và số tin chưa đọc
+ */
+public class ConversationSummary implements Externalizable {
+    private static final long serialVersionUID = 1L;
+    private int conversationId;
+    private UserSummary peer;
+    private int lastMessageId;
+    private int lastSenderId;
+    private String lastPreview;
+    private long updatedAt;
+    private int unread;
+
+    // Bắt buộc cho Externalizable
+    public ConversationSummary() {}
+
+    public ConversationSummary(int conversationId, UserSummary peer, int lastMessageId, int lastSenderId,
+                               String lastPreview, long updatedAt, int unread) {
+        this.conversationId = conversationId;
+        this.peer = peer;
+        this.lastMessageId = lastMessageId;
+        this.lastSenderId = lastSenderId;
+        this.lastPreview = lastPreview;
+        this.updatedAt = updatedAt;
+        this.unread = unread;
+    }
+
+    public int getConversationId() {
+        return conversationId;
+    }
+
+    public UserSummary getPeer() {
+        return peer;
+    }
+
+    public int getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public int getLastSenderId() {
+        return lastSenderId;
+    }
+
+    public String getLastPreview() {
+        return lastPreview;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public int getUnread() {
+        return unread;
+    }
+
+    /**
+     * Dùng chung cho Java serialization và BinaryCodec (ObjectOutput cũng là DataOutput)
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(conversationId);
+        out.writeBoolean(peer != null);
+        if (peer != null) peer.write(out);
+        out.writeInt(lastMessageId);
+        out.writeInt(lastSenderId);
+        out.writeUTF(lastPreview == null ? "" : lastPreview);
+        out.writeLong(updatedAt);
+        out.writeInt(unread);
+    }
+
+    public static ConversationSummary read(DataInput in) throws IOException {
+        ConversationSummary summary = new ConversationSummary();
+        summary.readFields(in);
+        return summary;
+    }
+
+    private void readFields(DataInput in) throws IOException {
+        conversationId = in.readInt();
+        peer = in.readBoolean() ? UserSummary.read(in) : null;
+        lastMessageId = in.readInt();
+        lastSenderId = in.readInt();
+        lastPreview = in.readUTF();
+        updatedAt = in.readLong();
+        unread = in.readInt();
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        write(out);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        readFields(in);
+    }
+}
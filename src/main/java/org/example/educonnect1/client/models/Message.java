@@ -0,0 +1,81 @@
+package org.example.educonnect1.client.models;
+
+import java.io.*;
+
+/**
+ * Một tin nhắn trong lịch sử hội thoại (createdAt tính bằng epoch millis)
+ */
+public class Message implements Externalizable {
+    private static final long serialVersionUID = 1L;
+    private int id;
+    private int conversationId;
+    private int senderId;
+    private String content;
+    private long createdAt;
+
+    // Bắt buộc cho Externalizable
+    public Message() {}
+
+    public Message(int id, int conversationId, int senderId, String content, long createdAt) {
+        this.id = id;
+        this.conversationId = conversationId;
+        this.senderId = senderId;
+        this.content = content;
+        this.createdAt = createdAt;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getConversationId() {
+        return conversationId;
+    }
+
+    public int getSenderId() {
+        return senderId;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Dùng chung cho Java serialization và BinaryCodec (ObjectOutput cũng là DataOutput)
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(id);
+        out.writeInt(conversationId);
+        out.writeInt(senderId);
+        out.writeUTF(content == null ? "" : content);
+        out.writeLong(createdAt);
+    }
+
+    public static Message read(DataInput in) throws IOException {
+        Message message = new Message();
+        message.readFields(in);
+        return message;
+    }
+
+    private void readFields(DataInput in) throws IOException {
+        id = in.readInt();
+        conversationId = in.readInt();
+        senderId = in.readInt();
+        content = in.readUTF();
+        createdAt = in.readLong();
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        write(out);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        readFields(in);
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.educonnect1.client.models;
+
+import java.io.*;
+
+/**
+ * Thông tin của user đang đăng nhập mà client cần sau LOGIN.
+ * Không có password hash và verification code; serialization viết tay như UserSummary.
+ */
+public class UserProfile implements Externalizable {
+    private static final long serialVersionUID = 1L;
+    private int id;
+    private String email;
+    private String fullName;
+    private String role;
+    private String avatar;
+
+    // Bắt buộc cho Externalizable
+    public UserProfile() {}
+
+    public UserProfile(int id, String email, String fullName, String role, String avatar) {
+        this.id = id;
+        this.email = email;
+        this.fullName = fullName;
+        this.role = role;
+        this.avatar = avatar;
+    }
+
+    public static UserProfile of(User user) {
+        return new UserProfile(user.getId(), user.getEmail(), user.getFullName(), user.getRole(), user.getAvatar());
+    }
+
+    /**
+     * User cho SessionManager (user đã đăng nhập nên luôn verified)
+     */
+    public User toUser() {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        user.setFullName(fullName);
+        user.setRole(role);
+        user.setAvatar(avatar);
+        user.setVerified(true);
+        return user;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getFullName() {
+        return fullName;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public String getAvatar() {
+        return avatar;
+    }
+
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(id);
+        out.writeUTF(email == null ? "" : email);
+        out.writeUTF(fullName == null ? "" : fullName);
+        out.writeUTF(role == null ? "" : role);
+        out.writeUTF(avatar == null ? "" : avatar);
+    }
+
+    public static UserProfile read(DataInput in) throws IOException {
+        UserProfile profile = new UserProfile();
+        profile.readFields(in);
+        return profile;
+    }
+
+    private void readFields(DataInput in) throws IOException {
+        id = in.readInt();
+        email = in.readUTF();
+        fullName = in.readUTF();
+        role = emptyToNull(in.readUTF());
+        avatar = emptyToNull(in.readUTF());
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        write(out);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        readFields(in);
+    }
+}
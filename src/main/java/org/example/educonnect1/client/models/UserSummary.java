@@ -0,0 +1,78 @@
+package org.example.educonnect1.client.models;
+
+import java.io.*;
+
+/**
+ * Thông tin tối thiểu để hiển thị một user trong kết quả tìm kiếm / danh sách bạn bè.
+ * Serialization viết tay (Externalizable) thay vì ghi cả class descriptor của User.
+ */
+public class UserSummary implements Externalizable {
+    private static final long serialVersionUID = 1L;
+    private int id;
+    private String fullName;
+    private String avatar;
+
+    // Bắt buộc cho Externalizable
+    public UserSummary() {}
+
+    public UserSummary(int id, String fullName, String avatar) {
+        this.id = id;
+        this.fullName = fullName;
+        this.avatar = avatar;
+    }
+
+    /**
+     * User chỉ có id, tên, avatar cho client cũ (object stream, v1) như SEARCH_FRIEND trước đây
+     */
+    public User toUser() {
+        User user = new User();
+        user.setId(id);
+        user.setFullName(fullName);
+        user.setAvatar(avatar);
+        return user;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getFullName() {
+        return fullName;
+    }
+
+    public String getAvatar() {
+        return avatar;
+    }
+
+    /**
+     * Dùng chung cho Java serialization và BinaryCodec (ObjectOutput cũng là DataOutput)
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(id);
+        out.writeUTF(fullName == null ? "" : fullName);
+        out.writeUTF(avatar == null ? "" : avatar);
+    }
+
+    public static UserSummary read(DataInput in) throws IOException {
+        UserSummary summary = new UserSummary();
+        summary.readFields(in);
+        return summary;
+    }
+
+    private void readFields(DataInput in) throws IOException {
+        id = in.readInt();
+        fullName = in.readUTF();
+        String value = in.readUTF();
+        avatar = value.isEmpty() ? null : value;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        write(out);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        readFields(in);
+    }
+}
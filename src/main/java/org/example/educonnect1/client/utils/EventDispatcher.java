@@ -0,0 +1,77 @@
+package org.example.educonnect1.client.utils;
+
+import org.example.educonnect1.logging.Log;
+import org.example.educonnect1.protocol.BinaryCodec;
+import org.example.educonnect1.protocol.Opcode;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Chuyển event server đẩy xuống tới các controller đã đăng ký.
+ * Listener chạy trên thread riêng để không chặn thread đọc response của SocketManager;
+ * controller cần cập nhật UI thì tự bọc trong Platform.runLater().
+ */
+public class EventDispatcher {
+    private static final Log LOG = Log.get("client");
+    private static final EventDispatcher instance = new EventDispatcher();
+
+    private final Map<Opcode, List<Consumer<List<Object>>>> listeners = new ConcurrentHashMap<>();
+    private final ExecutorService deliveryThread = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "event-dispatcher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private EventDispatcher() {
+    }
+
+    public static EventDispatcher getInstance() {
+        return instance;
+    }
+
+    public void on(Opcode event, Consumer<List<Object>> listener) {
+        listeners.computeIfAbsent(event, e -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    public void off(Opcode event, Consumer<List<Object>> listener) {
+        List<Consumer<List<Object>>> list = listeners.get(event);
+        if (list != null) list.remove(listener);
+    }
+
+    /**
+     * Gọi từ thread đọc socket với payload push: [int 0][short opcode][values]
+     */
+    void dispatch(byte[] payload) throws IOException {
+        ByteArrayInputStream bytes = new ByteArrayInputStream(payload);
+        DataInputStream in = new DataInputStream(bytes);
+        in.readInt();
+        Opcode event = Opcode.fromCode(in.readUnsignedShort());
+        List<Object> fields = new ArrayList<>(4);
+        while (bytes.available() > 0) {
+            fields.add(BinaryCodec.readValue(in));
+        }
+        if (event == null) return;
+
+        List<Consumer<List<Object>>> list = listeners.get(event);
+        if (list == null || list.isEmpty()) return;
+        deliveryThread.execute(() -> {
+            for (Consumer<List<Object>> listener : list) {
+                try {
+                    listener.accept(fields);
+                } catch (RuntimeException e) {
+                    LOG.warn("⚠️ Event listener failed").with("event", event).error(e).log();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.educonnect1.client.utils;
+
+import org.example.educonnect1.client.models.UserSummary;
+import org.example.educonnect1.protocol.NameMatcher;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache trang đầu của các lượt tìm gần đây (theo query đã normalize).
+ * Nếu một tiền tố của query đã có kết quả ĐẦY ĐỦ (không còn trang sau) thì
+ * query dài hơn chỉ cần lọc lại tại client, xếp hạng giống server (NameMatcher).
+ */
+public class SearchCache {
+    private static final int MAX_ENTRIES = 50;
+    private static final long TTL_MS = 30_000;
+
+    private final Map<String, Page> pages = new LinkedHashMap<String, Page>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Page> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    public static class Page {
+        public final List<UserSummary> users;
+        public final String nextCursor;
+        final long createdAt = System.currentTimeMillis();
+
+        public Page(List<UserSummary> users, String nextCursor) {
+            this.users = users;
+            this.nextCursor = nextCursor;
+        }
+    }
+
+    public synchronized void put(String query, List<UserSummary> users, String nextCursor) {
+        pages.put(NameMatcher.normalize(query), new Page(users, nextCursor));
+    }
+
+    /**
+     * Trang đầu cho query, hoặc null nếu phải hỏi server
+     */
+    public synchronized Page get(String query, int pageSize) {
+        String q = NameMatcher.normalize(query);
+        Page exact = fresh(q);
+        if (exact != null) return exact;
+
+        for (int length = q.length() - 1; length > 0; length--) {
+            Page prefix = fresh(q.substring(0, length));
+            if (prefix == null || prefix.nextCursor != null) continue;
+            Page narrowed = narrow(prefix.users, q, pageSize);
+            if (narrowed == null) return null;
+            pages.put(q, narrowed);
+            return narrowed;
+        }
+        return null;
+    }
+
+    private Page fresh(String q) {
+        Page page = pages.get(q);
+        if (page != null && System.currentTimeMillis() - page.createdAt > TTL_MS) {
+            pages.remove(q);
+            return null;
+        }
+        return page;
+    }
+
+    /**
+     * Kết quả của tiền tố đã đủ nên tập con khớp q cũng đủ, chỉ cần lọc và xếp lại.
+     * Trả về null nếu không vừa một trang: client không tự tạo được cursor cho trang sau
+     */
+    private static Page narrow(List<UserSummary> users, String q, int pageSize) {
+        List<long[]> ranked = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            UserSummary user = users.get(i);
+            long rank = NameMatcher.rank(NameMatcher.normalize(user.getFullName()), user.getId(), q);
+            if (rank >= 0) ranked.add(new long[]{rank, i});
+        }
+        if (ranked.size() > pageSize) return null;
+        ranked.sort((a, b) -> Long.compare(a[0], b[0]));
+        List<UserSummary> result = new ArrayList<>(ranked.size());
+        for (int i = 0; i < ranked.size(); i++) {
+            result.add(users.get((int) ranked.get(i)[1]));
+        }
+        return new Page(result, null);
+    }
+
+    public synchronized void clear() {
+        pages.clear();
+    }
+}
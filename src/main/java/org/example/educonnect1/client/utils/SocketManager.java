@@ -1,22 +1,44 @@
 package org.example.educonnect1.client.utils;
 
+import org.example.educonnect1.logging.Log;
+import org.example.educonnect1.protocol.Protocol;
+
 import java.io.*;
 import java.net.Socket;
-import java.net.SocketException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class SocketManager {
+    private static final Log LOG = Log.get("client");
     private static SocketManager instance;
     private Socket socket;
-    private ObjectOutputStream out;
-    private ObjectInputStream in;
-    private final ReentrantLock lock = new ReentrantLock(true); // Fair lock
+    private DataOutputStream out;
+    private DataInputStream in;
+    private int protocolVersion;
+    private final ReentrantLock lock = new ReentrantLock(true); // Fair lock, chỉ dùng cho connect/disconnect
+    private final Object writeLock = new Object();
+
+    // Request đang chờ response: theo requestId (v3) hoặc theo thứ tự gửi (v1/v2)
+    private final AtomicInteger nextRequestId = new AtomicInteger(1);
+    private final Map<Integer, CompletableFuture<List<Object>>> inFlight = new ConcurrentHashMap<>();
+    private final Queue<CompletableFuture<List<Object>>> inOrder = new ConcurrentLinkedQueue<>();
+
+    // Response của sendRequest() gắn với thread đã gửi, readResponse() chỉ đọc response của chính thread đó
+    private final ThreadLocal<Deque<Object>> threadResponses = ThreadLocal.withInitial(LinkedList::new);
+    private final ThreadLocal<Deque<CompletableFuture<List<Object>>>> threadRequests = ThreadLocal.withInitial(ArrayDeque::new);
 
     private static final String SERVER_HOST = "localhost";
     private static final int SERVER_PORT = 2005;
     private static final int MAX_RETRY = 3;
     private static final int RETRY_DELAY_MS = 2000;
+    private static final int RESPONSE_TIMEOUT_SECONDS = 30;
 
     private volatile boolean isConnected = false;
 
@@ -42,13 +64,21 @@ public class SocketManager {
 
             while (retries < MAX_RETRY) {
                 try {
-                    System.out.println("🔌 Connecting to server... Attempt " + (retries + 1));
+                    LOG.info("🔌 Connecting to server").with("attempt", retries + 1).log();
                     socket = new Socket(SERVER_HOST, SERVER_PORT);
-                    out = new ObjectOutputStream(socket.getOutputStream());
+                    socket.setTcpNoDelay(true);
+                    out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                    in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                    Protocol.writeHandshake(out, Protocol.MAX_VERSION);
                     out.flush();
-                    in = new ObjectInputStream(socket.getInputStream());
+                    protocolVersion = Protocol.readHandshake(in);
+                    if (protocolVersion < 0) {
+                        socket.close();
+                        throw new IOException("Unexpected handshake from server");
+                    }
                     isConnected = true;
-                    System.out.println("✅ Connected to server successfully!");
+                    startReader(socket, in);
+                    LOG.info("✅ Connected to server").with("version", protocolVersion).log();
                     return;
 
                 } catch (IOException e) {
@@ -56,7 +86,7 @@ public class SocketManager {
                     retries++;
 
                     if (retries < MAX_RETRY) {
-                        System.err.println("⚠️ Connection failed. Retrying in " + RETRY_DELAY_MS + "ms...");
+                        LOG.warn("⚠️ Connection failed, retrying").with("retryInMs", RETRY_DELAY_MS).error(e).log();
                         try {
                             Thread.sleep(RETRY_DELAY_MS);
                         } catch (InterruptedException ie) {
@@ -73,86 +103,173 @@ public class SocketManager {
     }
 
     /**
-     * Gửi request và đọc 2 responses (SUCCESS/FAILURE + data) trong 1 lock
-     * Đảm bảo không thread nào khác can thiệp vào giữa
+     * Gửi request và trả về future chứa tất cả giá trị của response.
+     * Nhiều request có thể cùng chờ trên một socket, không thread nào phải giữ lock trong lúc chờ.
      */
-    public Object[] sendRequestAndRead2Responses(String action, Object... params)
-            throws IOException, ClassNotFoundException {
+    public CompletableFuture<List<Object>> request(String action, Object... params) throws IOException {
         ensureConnected();
-        lock.lock();
-        try {
-            String threadName = Thread.currentThread().getName();
-            System.out.println("📤 [" + threadName + "] Sending: " + action);
+        CompletableFuture<List<Object>> future = new CompletableFuture<>();
+        int requestId = nextRequestId.getAndUpdate(id -> id == Integer.MAX_VALUE ? 1 : id + 1);
+        LOG.debug("📤 Sending").with("action", action).with("requestId", requestId).log();
+        byte[] payload = Protocol.encodeRequest(protocolVersion, requestId, action, params);
 
-            // Gửi request
-            out.writeObject(action);
-            for (Object param : params) {
-                out.writeObject(param);
+        synchronized (writeLock) {
+            if (protocolVersion >= Protocol.VERSION_MULTIPLEXED) {
+                inFlight.put(requestId, future);
+            } else {
+                inOrder.add(future);
             }
-            out.flush();
+            try {
+                Protocol.writeFrame(out, payload);
+                out.flush();
+            } catch (IOException e) {
+                inFlight.remove(requestId);
+                inOrder.remove(future);
+                connectionLost(e);
+                throw new IOException("Connection lost", e);
+            }
+        }
+        return future;
+    }
 
-            // Đọc response 1 (SUCCESS/FAILURE)
-            Object response1 = in.readObject();
+    /**
+     * Hủy request chưa có response: future bị cancel ngay, server được báo để bỏ qua
+     * request nếu chưa chạy và không gửi response (v3). Với v1/v2 response vẫn về và bị bỏ qua.
+     */
+    public void cancel(CompletableFuture<List<Object>> future) {
+        if (future == null || !future.cancel(false)) return;
+        Integer requestId = null;
+        for (Map.Entry<Integer, CompletableFuture<List<Object>>> entry : inFlight.entrySet()) {
+            if (entry.getValue() == future) {
+                requestId = entry.getKey();
+                break;
+            }
+        }
+        if (requestId == null || inFlight.remove(requestId) == null) return;
+        try {
+            byte[] payload = Protocol.encodeRequest(protocolVersion, 0, "CANCEL", requestId);
+            synchronized (writeLock) {
+                Protocol.writeFrame(out, payload);
+                out.flush();
+            }
+        } catch (IOException e) {
+            connectionLost(e);
+        }
+    }
 
-            // Đọc response 2 (data)
-            Object response2 = in.readObject();
+    /**
+     * Gửi request và đọc 2 responses (SUCCESS/FAILURE + data)
+     */
+    public Object[] sendRequestAndRead2Responses(String action, Object... params)
+            throws IOException, ClassNotFoundException {
+        List<Object> values = await(request(action, params));
+        if (values.size() < 2) {
+            throw new IOException("Expected 2 responses for " + action + ", got " + values.size());
+        }
+        Object response1 = values.get(0);
+        Object response2 = values.get(1);
 
+        if (LOG.isEnabled(Log.Level.DEBUG)) {
             String response2Info;
             if (response2 instanceof List) {
                 response2Info = "List[" + ((List<?>) response2).size() + " items]";
             } else {
-                response2Info = response2.getClass().getSimpleName();
+                response2Info = response2 == null ? "null" : response2.getClass().getSimpleName();
             }
-
-            System.out.println("📥 [" + threadName + "] Received: " + response1 + " + " + response2Info);
-
-            return new Object[]{response1, response2};
-
-        } catch (SocketException e) {
-            isConnected = false;
-            System.err.println("⚠️ Connection lost during request: " + action);
-            throw new IOException("Connection lost", e);
-        } finally {
-            lock.unlock();
+            LOG.debug("📥 Received").with("action", action).with("status", response1).with("data", response2Info).log();
         }
+
+        return new Object[]{response1, response2};
     }
 
     /**
-     * Gửi request đơn giản (không cần đọc response ngay)
-     * CHỈ DÙNG CHO CÁC REQUEST ĐƠN GIẢN như SEND_MESSAGE, MARK_AS_READ
+     * Gửi request, response được đọc sau bằng readResponse() trên CÙNG thread
      */
     public void sendRequest(String action, Object... params) throws IOException {
-        ensureConnected();
-        lock.lock();
-        try {
-            System.out.println("📤 [" + Thread.currentThread().getName() + "] Sending: " + action);
-            out.writeObject(action);
-            for (Object param : params) {
-                out.writeObject(param);
-            }
-            out.flush();
-        } finally {
-            lock.unlock();
-        }
+        threadRequests.get().add(request(action, params));
     }
 
     /**
-     * Đọc 1 response
-     * CHỈ DÙNG SAU KHI sendRequest()
+     * Đọc response tiếp theo của request mà thread hiện tại đã gửi bằng sendRequest()
      */
     public Object readResponse() throws IOException, ClassNotFoundException {
-        ensureConnected();
-        lock.lock();
+        Deque<Object> values = threadResponses.get();
+        if (values.isEmpty()) {
+            CompletableFuture<List<Object>> future = threadRequests.get().poll();
+            if (future == null) {
+                throw new IllegalStateException("readResponse() without a pending sendRequest() on this thread");
+            }
+            values.addAll(await(future));
+        }
+        Object response = values.poll();
+        LOG.debug("📥 Received").with("value", response instanceof String || response == null
+                ? response : response.getClass().getSimpleName()).log();
+        return response;
+    }
+
+    private List<Object> await(CompletableFuture<List<Object>> future) throws IOException {
         try {
-            Object response = in.readObject();
-            System.out.println("📥 [" + Thread.currentThread().getName() + "] Received: " +
-                    (response instanceof String ? response : response.getClass().getSimpleName()));
-            return response;
-        } finally {
-            lock.unlock();
+            return future.get(RESPONSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for response", e);
+        } catch (TimeoutException e) {
+            // Bỏ khỏi inFlight và báo server bỏ qua request (v3), không chỉ cancel future
+            cancel(future);
+            throw new IOException("No response from server after " + RESPONSE_TIMEOUT_SECONDS + "s", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
         }
     }
 
+    /**
+     * Thread duy nhất đọc socket: ghép mỗi response frame với future của request tương ứng,
+     * frame push (requestId = 0) được chuyển cho EventDispatcher
+     */
+    private void startReader(Socket readerSocket, DataInputStream input) {
+        int version = protocolVersion;
+        Thread reader = new Thread(() -> {
+            try {
+                while (!readerSocket.isClosed()) {
+                    byte[] payload = Protocol.readFrame(input);
+                    if (version >= Protocol.VERSION_MULTIPLEXED && Protocol.responseId(payload) == Protocol.PUSH_REQUEST_ID) {
+                        EventDispatcher.getInstance().dispatch(payload);
+                        continue;
+                    }
+                    List<Object> values = Protocol.decodeResponse(version, payload);
+                    CompletableFuture<List<Object>> future = version >= Protocol.VERSION_MULTIPLEXED
+                            ? inFlight.remove(Protocol.responseId(payload))
+                            : inOrder.poll();
+                    if (future != null) {
+                        future.complete(values);
+                    }
+                }
+            } catch (IOException | ClassNotFoundException e) {
+                if (readerSocket == socket) {
+                    connectionLost(e);
+                }
+            }
+        }, "socket-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void connectionLost(Exception cause) {
+        if (isConnected) {
+            LOG.warn("⚠️ Connection lost").error(cause).log();
+        }
+        isConnected = false;
+        IOException failure = new IOException("Connection lost", cause);
+        inFlight.values().forEach(f -> f.completeExceptionally(failure));
+        inFlight.clear();
+        CompletableFuture<List<Object>> future;
+        while ((future = inOrder.poll()) != null) {
+            future.completeExceptionally(failure);
+        }
+        closeQuietly(socket);
+    }
+
     private void ensureConnected() throws IOException {
         if (!isConnected || socket == null || socket.isClosed()) {
             connect();
@@ -164,16 +281,18 @@ public class SocketManager {
         try {
             if (socket != null && !socket.isClosed()) {
                 try {
-                    out.writeObject("DISCONNECT");
-                    out.flush();
+                    synchronized (writeLock) {
+                        Protocol.writeFrame(out, Protocol.encodeRequest(protocolVersion, 0, "DISCONNECT"));
+                        out.flush();
+                    }
                 } catch (IOException e) {
                     // Ignore
                 }
+                isConnected = false;
                 closeQuietly(out);
                 closeQuietly(in);
                 closeQuietly(socket);
-                isConnected = false;
-                System.out.println("👋 Disconnected from server");
+                LOG.info("👋 Disconnected from server").log();
             }
         } finally {
             lock.unlock();
@@ -200,4 +319,4 @@ public class SocketManager {
     public boolean isConnected() {
         return isConnected && socket != null && !socket.isClosed();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,270 @@
+package org.example.educonnect1.logging;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ring buffer nhiều producer / một consumer cho Log.
+ * - Producer giành một slot bằng CAS trên head, chép field vào Record cấp sẵn rồi publish bằng ghi volatile sequence
+ * - Ring đầy thì bỏ event (đếm dropped) chứ không bao giờ chặn thread xử lý request
+ * - Thread "log-writer" format cả lô rồi ghi một lần ra System.out (WARN/ERROR ra System.err);
+ *   hết việc thì ngủ dần từ 1ms tới 50ms, producer không phải đánh thức nó
+ */
+final class AsyncLogWriter implements Runnable {
+    private static final int CAPACITY = Integer.highestOneBit(
+            Math.max(1024, Integer.getInteger("educonnect.log.bufferSize", 16 * 1024)));
+    private static final boolean JSON = "json".equalsIgnoreCase(System.getProperty("educonnect.log.format", "text"));
+    private static final long MIN_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final int MAX_BATCH = 512;
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static volatile AsyncLogWriter instance;
+
+    private final Record[] ring = new Record[CAPACITY];
+    private final int mask = CAPACITY - 1;
+    private final AtomicLong head = new AtomicLong(); // sequence tiếp theo producer sẽ giành
+    private volatile long tail;                        // sequence tiếp theo consumer sẽ đọc, chỉ consumer ghi
+    private final LongAdder dropped = new LongAdder();
+    private final Thread thread;
+    private volatile boolean stopping = false;
+    private volatile long written; // chỉ consumer ghi
+
+    private final StringBuilder out = new StringBuilder(16 * 1024);
+    private final StringBuilder err = new StringBuilder(1024);
+
+    private static final class Record {
+        volatile long sequence = -1;
+        long timestamp;
+        Log.Level level;
+        String logger;
+        String thread;
+        String message;
+        Throwable error;
+        int count;
+        final String[] keys = new String[Log.Event.MAX_FIELDS];
+        final Object[] values = new Object[Log.Event.MAX_FIELDS];
+        final long[] numbers = new long[Log.Event.MAX_FIELDS];
+    }
+
+    private AsyncLogWriter() {
+        for (int i = 0; i < CAPACITY; i++) {
+            ring[i] = new Record();
+        }
+        thread = new Thread(this, "log-writer");
+        thread.setDaemon(true);
+    }
+
+    static AsyncLogWriter instance() {
+        AsyncLogWriter writer = instance;
+        if (writer == null) {
+            synchronized (AsyncLogWriter.class) {
+                writer = instance;
+                if (writer == null) {
+                    writer = new AsyncLogWriter();
+                    writer.thread.start();
+                    // Ghi nốt các event còn trong ring khi JVM thoát
+                    Runtime.getRuntime().addShutdownHook(new Thread(writer::stop, "log-writer-shutdown"));
+                    instance = writer;
+                }
+            }
+        }
+        return writer;
+    }
+
+    void publish(Log.Event event) {
+        long seq;
+        do {
+            seq = head.get();
+            if (seq - tail >= CAPACITY) {
+                dropped.increment();
+                return;
+            }
+        } while (!head.compareAndSet(seq, seq + 1));
+
+        Record record = ring[(int) seq & mask];
+        record.timestamp = System.currentTimeMillis();
+        record.level = event.level;
+        record.logger = event.logger.name();
+        record.thread = Thread.currentThread().getName();
+        record.message = event.message;
+        record.error = event.error;
+        record.count = event.count;
+        System.arraycopy(event.keys, 0, record.keys, 0, event.count);
+        System.arraycopy(event.values, 0, record.values, 0, event.count);
+        System.arraycopy(event.numbers, 0, record.numbers, 0, event.count);
+        record.sequence = seq; // publish
+    }
+
+    @Override
+    public void run() {
+        long park = MIN_PARK_NANOS;
+        while (true) {
+            int drained = drain();
+            if (drained > 0) {
+                park = MIN_PARK_NANOS;
+                continue;
+            }
+            if (stopping && tail == head.get()) return;
+            LockSupport.parkNanos(park);
+            park = Math.min(MAX_PARK_NANOS, park * 2);
+        }
+    }
+
+    /**
+     * Format tối đa MAX_BATCH record đã publish liên tiếp rồi ghi ra một lần
+     */
+    private int drain() {
+        int n = 0;
+        long seq = tail;
+        while (n < MAX_BATCH) {
+            Record record = ring[(int) seq & mask];
+            if (record.sequence != seq) break;
+            if (record.level.ordinal() >= Log.Level.WARN.ordinal()) {
+                format(record, err);
+            } else {
+                format(record, out);
+            }
+            record.message = null;
+            record.error = null;
+            Arrays.fill(record.values, 0, record.count, null);
+            seq++;
+            n++;
+            tail = seq; // slot được trả cho producer
+        }
+        if (n > 0) {
+            written += n;
+            if (out.length() > 0) {
+                System.out.print(out);
+                out.setLength(0);
+            }
+            if (err.length() > 0) {
+                System.err.print(err);
+                err.setLength(0);
+            }
+        }
+        return n;
+    }
+
+    private void format(Record r, StringBuilder sb) {
+        if (JSON) {
+            sb.append("{\"ts\":\"").append(Instant.ofEpochMilli(r.timestamp)).append("\",\"level\":\"").append(r.level)
+                    .append("\",\"logger\":\"").append(r.logger).append("\",\"thread\":");
+            json(sb, r.thread);
+            sb.append(",\"msg\":");
+            json(sb, r.message);
+            for (int i = 0; i < r.count; i++) {
+                sb.append(',');
+                json(sb, r.keys[i]);
+                sb.append(':');
+                if (r.values[i] == Log.Event.NUMBER) {
+                    sb.append(r.numbers[i]);
+                } else if (r.values[i] instanceof Boolean) {
+                    sb.append(r.values[i]);
+                } else {
+                    json(sb, r.values[i] == null ? null : String.valueOf(r.values[i]));
+                }
+            }
+            if (r.error != null) {
+                sb.append(",\"error\":");
+                json(sb, r.error.toString());
+                if (r.level == Log.Level.ERROR) {
+                    sb.append(",\"stack\":");
+                    json(sb, stackTrace(r.error));
+                }
+            }
+            sb.append("}\n");
+            return;
+        }
+
+        TIME_FORMAT.formatTo(Instant.ofEpochMilli(r.timestamp), sb);
+        sb.append(' ').append(r.level);
+        for (int pad = r.level.name().length(); pad < 5; pad++) sb.append(' ');
+        sb.append(' ').append(r.logger).append(" [").append(r.thread).append("] ").append(r.message);
+        for (int i = 0; i < r.count; i++) {
+            sb.append(' ').append(r.keys[i]).append('=');
+            if (r.values[i] == Log.Event.NUMBER) {
+                sb.append(r.numbers[i]);
+            } else {
+                String value = String.valueOf(r.values[i]);
+                if (value.isEmpty() || value.indexOf(' ') >= 0) {
+                    sb.append('"').append(value).append('"');
+                } else {
+                    sb.append(value);
+                }
+            }
+        }
+        if (r.error != null) {
+            sb.append(" error=\"").append(r.error).append('"');
+        }
+        sb.append('\n');
+        if (r.error != null && r.level == Log.Level.ERROR) {
+            sb.append(stackTrace(r.error));
+        }
+    }
+
+    private static void json(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    private static String stackTrace(Throwable error) {
+        StringWriter trace = new StringWriter();
+        error.printStackTrace(new PrintWriter(trace));
+        return trace.toString();
+    }
+
+    void flush(long timeoutMs) {
+        long target = head.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        LockSupport.unpark(thread);
+        while (tail < target && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(MIN_PARK_NANOS);
+        }
+    }
+
+    private void stop() {
+        stopping = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    String stats() {
+        long pending = head.get() - tail;
+        return "written=" + written + " dropped=" + dropped.sum() + " pending=" + pending + "/" + CAPACITY
+                + " format=" + (JSON ? "json" : "text");
+    }
+}
@@ -0,0 +1,200 @@
+package org.example.educonnect1.logging;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Logger có cấu trúc, ghi bất đồng bộ: thread gọi chỉ chép message + field vào ring buffer của AsyncLogWriter
+ * (không khóa stdout, không nối chuỗi), thread nền format rồi ghi ra stdout/stderr.
+ * - Level thấp hơn ngưỡng trả về Event rỗng dùng chung: các with() không làm gì, không cấp phát
+ * - Field là cặp key/value (client, user, action, us, ...); with(key, long) không boxing
+ * - Event dày đặc như PING đi qua Sampler, chỉ ghi 1/N
+ * Cấu hình: -Deduconnect.log.level (mặc định INFO), -Deduconnect.log.level.&lt;logger&gt;,
+ * -Deduconnect.log.format=text|json, -Deduconnect.log.bufferSize, -Deduconnect.log.sample.&lt;tên&gt;
+ *
+ *   LOG.info("← Client disconnected").with("client", clientId).with("total", count).log();
+ */
+public final class Log {
+    public enum Level {TRACE, DEBUG, INFO, WARN, ERROR, OFF}
+
+    private static final Level DEFAULT_LEVEL = parseLevel(System.getProperty("educonnect.log.level"), Level.INFO);
+    private static final Map<String, Log> LOGGERS = new ConcurrentHashMap<>();
+    // Event đang dựng của mỗi thread, dùng lại giữa các lần log
+    private static final ThreadLocal<Event> SCRATCH = ThreadLocal.withInitial(Event::new);
+
+    private final String name;
+    private final Level level;
+
+    private Log(String name) {
+        this.name = name;
+        this.level = parseLevel(System.getProperty("educonnect.log.level." + name), DEFAULT_LEVEL);
+    }
+
+    public static Log get(String name) {
+        return LOGGERS.computeIfAbsent(name, Log::new);
+    }
+
+    private static Level parseLevel(String value, Level fallback) {
+        if (value == null || value.isBlank()) return fallback;
+        try {
+            return Level.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown log level: " + value + ", using " + fallback);
+            return fallback;
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public boolean isEnabled(Level level) {
+        return level != Level.OFF && level.ordinal() >= this.level.ordinal();
+    }
+
+    public Event at(Level level, String message) {
+        if (!isEnabled(level)) return Event.NOOP;
+        return SCRATCH.get().start(this, level, message);
+    }
+
+    public Event trace(String message) {
+        return at(Level.TRACE, message);
+    }
+
+    public Event debug(String message) {
+        return at(Level.DEBUG, message);
+    }
+
+    public Event info(String message) {
+        return at(Level.INFO, message);
+    }
+
+    public Event warn(String message) {
+        return at(Level.WARN, message);
+    }
+
+    public Event error(String message) {
+        return at(Level.ERROR, message);
+    }
+
+    /**
+     * Chờ các event đã log được ghi ra (tối đa timeoutMs), vd. trước khi in dòng cuối lúc shutdown
+     */
+    public static void flush(long timeoutMs) {
+        AsyncLogWriter.instance().flush(timeoutMs);
+    }
+
+    /**
+     * Metrics của writer (event đã ghi, bị bỏ vì ring đầy, đang chờ)
+     */
+    public static String stats() {
+        return "level=" + DEFAULT_LEVEL + " " + AsyncLogWriter.instance().stats();
+    }
+
+    /**
+     * Chỉ ghi 1/every event (chọn ngẫu nhiên theo thread, không có counter dùng chung).
+     * -Deduconnect.log.sample.&lt;name&gt;=N, 1 = ghi tất cả
+     */
+    public static Sampler sampler(String name, int defaultEvery) {
+        return new Sampler(Math.max(1, Integer.getInteger("educonnect.log.sample." + name, defaultEvery)));
+    }
+
+    public static final class Sampler {
+        private final int every;
+
+        private Sampler(int every) {
+            this.every = every;
+        }
+
+        public boolean sample() {
+            return every == 1 || ThreadLocalRandom.current().nextInt(every) == 0;
+        }
+
+        public int every() {
+            return every;
+        }
+    }
+
+    /**
+     * Một dòng log đang dựng; phải kết thúc bằng log(). Không giữ lại Event sau log() (được dùng lại).
+     */
+    public static final class Event {
+        static final int MAX_FIELDS = 8;
+        // Đánh dấu field kiểu long (giá trị nằm trong numbers[])
+        static final Object NUMBER = new Object();
+        private static final Event NOOP = new Event();
+
+        Log logger;
+        Level level;
+        String message;
+        Throwable error;
+        final String[] keys = new String[MAX_FIELDS];
+        final Object[] values = new Object[MAX_FIELDS];
+        final long[] numbers = new long[MAX_FIELDS];
+        int count;
+        private boolean active;
+
+        private Event() {
+        }
+
+        private Event start(Log logger, Level level, String message) {
+            this.logger = logger;
+            this.level = level;
+            this.message = message;
+            this.error = null;
+            this.count = 0;
+            this.active = true;
+            return this;
+        }
+
+        public Event with(String key, Object value) {
+            if (active && count < MAX_FIELDS) {
+                keys[count] = key;
+                values[count++] = value;
+            }
+            return this;
+        }
+
+        public Event with(String key, long value) {
+            if (active && count < MAX_FIELDS) {
+                keys[count] = key;
+                values[count] = NUMBER;
+                numbers[count++] = value;
+            }
+            return this;
+        }
+
+        public Event with(String key, boolean value) {
+            return with(key, value ? Boolean.TRUE : Boolean.FALSE);
+        }
+
+        public Event error(Throwable error) {
+            if (active) this.error = error;
+            return this;
+        }
+
+        /**
+         * Bỏ event nếu sampler không chọn; được chọn thì thêm field sample=N để đọc lại đúng tỉ lệ
+         */
+        public Event sampled(Sampler sampler) {
+            if (!active) return this;
+            if (!sampler.sample()) {
+                active = false;
+                return NOOP;
+            }
+            return sampler.every == 1 ? this : with("sample", sampler.every);
+        }
+
+        public void log() {
+            if (!active) return;
+            active = false;
+            AsyncLogWriter.instance().publish(this);
+            Arrays.fill(values, 0, count, null);
+            message = null;
+            error = null;
+        }
+    }
+}
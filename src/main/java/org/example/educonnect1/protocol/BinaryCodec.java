@@ -0,0 +1,147 @@
+package org.example.educonnect1.protocol;
+
+import org.example.educonnect1.client.models.ConversationSummary;
+import org.example.educonnect1.client.models.Message;
+import org.example.educonnect1.client.models.User;
+import org.example.educonnect1.client.models.UserProfile;
+import org.example.educonnect1.client.models.UserSummary;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mã hóa giá trị trong frame binary: 1 byte tag + các field ghi tường minh.
+ * User chỉ gửi các field client cần, không gửi password hash và verification code;
+ * Các model còn lại (UserProfile, UserSummary, Message, ...) dùng encoding viết tay của chính class đó.
+ */
+public final class BinaryCodec {
+    private static final int TAG_NULL = 0;
+    private static final int TAG_STRING = 1;
+    private static final int TAG_INT = 2;
+    private static final int TAG_LONG = 3;
+    private static final int TAG_TRUE = 4;
+    private static final int TAG_FALSE = 5;
+    private static final int TAG_USER = 6;
+    private static final int TAG_LIST = 7;
+    private static final int TAG_USER_PROFILE = 8;
+    private static final int TAG_USER_SUMMARY = 9;
+    private static final int TAG_MESSAGE = 10;
+    private static final int TAG_CONVERSATION_SUMMARY = 11;
+
+    private BinaryCodec() {
+    }
+
+    public static void writeValue(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TAG_STRING);
+            out.writeUTF((String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TAG_INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof User) {
+            out.writeByte(TAG_USER);
+            writeUser(out, (User) value);
+        } else if (value instanceof UserSummary) {
+            out.writeByte(TAG_USER_SUMMARY);
+            ((UserSummary) value).write(out);
+        } else if (value instanceof UserProfile) {
+            out.writeByte(TAG_USER_PROFILE);
+            ((UserProfile) value).write(out);
+        } else if (value instanceof Message) {
+            out.writeByte(TAG_MESSAGE);
+            ((Message) value).write(out);
+        } else if (value instanceof ConversationSummary) {
+            out.writeByte(TAG_CONVERSATION_SUMMARY);
+            ((ConversationSummary) value).write(out);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.writeByte(TAG_LIST);
+            out.writeInt(list.size());
+            for (Object item : list) {
+                writeValue(out, item);
+            }
+        } else {
+            throw new IOException("Unsupported value type: " + value.getClass().getName());
+        }
+    }
+
+    public static Object readValue(DataInput in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return in.readUTF();
+            case TAG_INT:
+                return in.readInt();
+            case TAG_LONG:
+                return in.readLong();
+            case TAG_TRUE:
+                return Boolean.TRUE;
+            case TAG_FALSE:
+                return Boolean.FALSE;
+            case TAG_USER:
+                return readUser(in);
+            case TAG_USER_SUMMARY:
+                return UserSummary.read(in);
+            case TAG_USER_PROFILE:
+                return UserProfile.read(in);
+            case TAG_MESSAGE:
+                return Message.read(in);
+            case TAG_CONVERSATION_SUMMARY:
+                return ConversationSummary.read(in);
+            case TAG_LIST:
+                int size = in.readInt();
+                if (size < 0 || size > Protocol.MAX_FRAME_SIZE) {
+                    throw new StreamCorruptedException("Invalid list size: " + size);
+                }
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            default:
+                throw new StreamCorruptedException("Unknown value tag: " + tag);
+        }
+    }
+
+    private static void writeUser(DataOutput out, User user) throws IOException {
+        out.writeInt(user.getId());
+        writeNullableString(out, user.getEmail());
+        writeNullableString(out, user.getFullName());
+        writeNullableString(out, user.getRole());
+        writeNullableString(out, user.getAvatar());
+        out.writeBoolean(user.isVerified());
+    }
+
+    private static User readUser(DataInput in) throws IOException {
+        User user = new User();
+        user.setId(in.readInt());
+        user.setEmail(readNullableString(in));
+        user.setFullName(readNullableString(in));
+        user.setRole(readNullableString(in));
+        user.setAvatar(readNullableString(in));
+        user.setVerified(in.readBoolean());
+        return user;
+    }
+
+    private static void writeNullableString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readNullableString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.educonnect1.protocol;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Quy tắc so khớp và xếp hạng tên, dùng chung giữa NameIndex (server) và SearchCache (client)
+ * để kết quả lọc tại client giống hệt kết quả server trả về.
+ */
+public final class NameMatcher {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private NameMatcher() {
+    }
+
+    /**
+     * Bỏ dấu tiếng Việt (kể cả đ/Đ), lowercase, gộp khoảng trắng
+     */
+    public static String normalize(String text) {
+        if (text == null) return "";
+        String s = Normalizer.normalize(text, Normalizer.Form.NFD);
+        s = MARKS.matcher(s).replaceAll("").replace('đ', 'd').replace('Đ', 'D');
+        return SPACES.matcher(s.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * 0 = trùng hẳn, 1 = đầu tên, 2 = đầu một từ, 3 = nằm giữa, -1 = không khớp
+     */
+    public static int score(String name, String q) {
+        int at = name.indexOf(q);
+        if (at < 0) return -1;
+        if (at == 0) return name.length() == q.length() ? 0 : 1;
+        do {
+            if (name.charAt(at - 1) == ' ') return 2;
+            at = name.indexOf(q, at + 1);
+        } while (at > 0);
+        return 3;
+    }
+
+    /**
+     * Thứ hạng dạng long [score | độ dài tên | id], số nhỏ hơn = liên quan hơn, -1 = không khớp.
+     * name và q đều đã normalize.
+     */
+    public static long rank(String name, int id, String q) {
+        int score = score(name, q);
+        if (score < 0) return -1;
+        return ((long) score << 56) | ((long) Math.min(name.length(), 0xFFFFFF) << 32) | id;
+    }
+}
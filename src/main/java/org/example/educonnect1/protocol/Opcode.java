@@ -0,0 +1,59 @@
+package org.example.educonnect1.protocol;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mã số của các action trong giao thức binary (2 byte đầu mỗi request frame)
+ */
+public enum Opcode {
+    PING(1),
+    DISCONNECT(2),
+    CANCEL(3),         // requestId của request cần hủy (v3)
+    LOGIN(10),
+    SIGNUP(11),
+    VERIFY(12),
+    SEARCH_FRIEND(20),
+    ADD_FRIEND(21),
+    SEARCH_FRIEND_PAGE(22),
+    GET_ONLINE_FRIENDS(23),
+    SEND_MESSAGE(30),
+    GET_MESSAGES(31),
+    OPEN_CONVERSATION(32),
+    MARK_MESSAGES_READ(33),
+    GET_UNREAD_COUNTS(34),
+    GET_CONVERSATIONS(35),
+    SEND_GROUP_MESSAGE(36), // conversationId, content
+    STATS(90),         // (admin) báo cáo metrics của server
+
+    // Event server đẩy xuống (v3, requestId = 0)
+    EVENT_NEW_MESSAGE(100),      // conversationId, senderId, messageId, content
+    EVENT_FRIEND_REQUEST(101),   // requestId, senderId, senderName
+    EVENT_FRIEND_ACCEPTED(102),  // userId, fullName
+    EVENT_PRESENCE(103),         // userId, online, lastSeen
+    EVENT_RESYNC_REQUIRED(104);  // (không có field) event đã bị bỏ vì client đọc chậm, cần tải lại state
+
+    private static final Map<Integer, Opcode> BY_CODE = new HashMap<>();
+    private static final Map<String, Opcode> BY_ACTION = new HashMap<>();
+
+    static {
+        for (Opcode op : values()) {
+            BY_CODE.put(op.code, op);
+            BY_ACTION.put(op.name(), op);
+        }
+    }
+
+    public final int code;
+
+    Opcode(int code) {
+        this.code = code;
+    }
+
+    public static Opcode fromCode(int code) {
+        return BY_CODE.get(code);
+    }
+
+    public static Opcode fromAction(String action) {
+        return BY_ACTION.get(action);
+    }
+}
@@ -0,0 +1,192 @@
+package org.example.educonnect1.protocol;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Định dạng frame dùng chung giữa client và server.
+ * Sau handshake, mỗi request/response là một frame: [int length][payload].
+ */
+public final class Protocol {
+    public static final int MAGIC = 0x45445543; // "EDUC"
+    public static final int VERSION_SERIALIZED = 1; // payload = Java serialization
+    public static final int VERSION_BINARY = 2;     // payload = [short opcode][BinaryCodec values]
+    public static final int VERSION_MULTIPLEXED = 3; // v2 + [int requestId] đầu payload, response có thể về lệch thứ tự
+    public static final int MAX_VERSION = VERSION_MULTIPLEXED;
+
+    // v3: frame server tự gửi (không phải response) mang requestId = 0
+    public static final int PUSH_REQUEST_ID = 0;
+
+    public static final int HANDSHAKE_SIZE = 5; // magic + version
+    public static final int MAX_FRAME_SIZE = 1 << 20; // 1 MB
+
+    private Protocol() {
+    }
+
+    /**
+     * Client cũ mở thẳng ObjectOutputStream nên 2 byte đầu là STREAM_MAGIC (0xACED)
+     */
+    public static boolean isObjectStreamHeader(int b0, int b1) {
+        return b0 == 0xAC && b1 == 0xED;
+    }
+
+    public static void writeHandshake(DataOutputStream out, int version) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(version);
+    }
+
+    /**
+     * Server chọn version cao nhất mà cả hai bên cùng hỗ trợ
+     */
+    public static int negotiate(int clientVersion) {
+        return Math.max(VERSION_SERIALIZED, Math.min(clientVersion, MAX_VERSION));
+    }
+
+    /**
+     * Đọc handshake và trả về version, hoặc -1 nếu magic không hợp lệ
+     */
+    public static int readHandshake(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            return -1;
+        }
+        return in.readUnsignedByte();
+    }
+
+    public static void writeFrame(DataOutputStream out, byte[] payload) throws IOException {
+        out.writeInt(payload.length);
+        out.write(payload);
+    }
+
+    public static byte[] readFrame(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        checkFrameLength(length);
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return payload;
+    }
+
+    public static void checkFrameLength(int length) throws IOException {
+        if (length < 0 || length > MAX_FRAME_SIZE) {
+            throw new StreamCorruptedException("Invalid frame length: " + length);
+        }
+    }
+
+    /**
+     * Mỗi frame có ObjectOutputStream riêng nên handle table không giữ object qua các request
+     */
+    public static byte[] serialize(Object... values) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+            for (Object value : values) {
+                out.writeObject(value);
+            }
+        }
+        return buffer.toByteArray();
+    }
+
+    public static ObjectInputStream openSerialized(byte[] payload) throws IOException {
+        return new ObjectInputStream(new ByteArrayInputStream(payload));
+    }
+
+    /**
+     * Tạo payload request theo version đã thỏa thuận (requestId bị bỏ qua nếu version < 3)
+     */
+    public static byte[] encodeRequest(int version, int requestId, String action, Object... params) throws IOException {
+        if (version < VERSION_BINARY) {
+            Object[] values = new Object[params.length + 1];
+            values[0] = action;
+            System.arraycopy(params, 0, values, 1, params.length);
+            return serialize(values);
+        }
+        Opcode op = Opcode.fromAction(action);
+        if (op == null) {
+            throw new IOException("Unsupported action: " + action);
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(buffer);
+        if (version >= VERSION_MULTIPLEXED) {
+            out.writeInt(requestId);
+        }
+        out.writeShort(op.code);
+        for (Object param : params) {
+            BinaryCodec.writeValue(out, param);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Payload event server đẩy xuống: [int 0][short event opcode][values]
+     */
+    public static byte[] encodePush(Opcode event, Object... fields) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(PUSH_REQUEST_ID);
+        out.writeShort(event.code);
+        for (Object field : fields) {
+            BinaryCodec.writeValue(out, field);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Như encodePush nhưng trả về cả frame ([int len][payload]) để ghi thẳng ra socket
+     */
+    public static byte[] encodePushFrame(Opcode event, Object... fields) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(0); // length, điền sau
+        out.writeInt(PUSH_REQUEST_ID);
+        out.writeShort(event.code);
+        for (Object field : fields) {
+            BinaryCodec.writeValue(out, field);
+        }
+        byte[] frame = buffer.toByteArray();
+        int length = frame.length - 4;
+        frame[0] = (byte) (length >>> 24);
+        frame[1] = (byte) (length >>> 16);
+        frame[2] = (byte) (length >>> 8);
+        frame[3] = (byte) length;
+        return frame;
+    }
+
+    /**
+     * requestId của một response v3 (4 byte đầu payload)
+     */
+    public static int responseId(byte[] payload) {
+        return ((payload[0] & 0xFF) << 24) | ((payload[1] & 0xFF) << 16) | ((payload[2] & 0xFF) << 8) | (payload[3] & 0xFF);
+    }
+
+    /**
+     * Opcode của một request v3 (2 byte sau requestId)
+     */
+    public static int requestOpcode(byte[] payload) throws IOException {
+        if (payload.length < 6) {
+            throw new StreamCorruptedException("Request frame too short: " + payload.length);
+        }
+        return ((payload[4] & 0xFF) << 8) | (payload[5] & 0xFF);
+    }
+
+    /**
+     * Đọc tất cả giá trị trong một response frame
+     */
+    public static List<Object> decodeResponse(int version, byte[] payload) throws IOException, ClassNotFoundException {
+        List<Object> values = new ArrayList<>(2);
+        ByteArrayInputStream bytes = new ByteArrayInputStream(payload);
+        if (version < VERSION_BINARY) {
+            ObjectInputStream in = new ObjectInputStream(bytes);
+            while (bytes.available() > 0) {
+                values.add(in.readObject());
+            }
+            return values;
+        }
+        DataInputStream in = new DataInputStream(bytes);
+        if (version >= VERSION_MULTIPLEXED) {
+            in.readInt();
+        }
+        while (bytes.available() > 0) {
+            values.add(BinaryCodec.readValue(in));
+        }
+        return values;
+    }
+}
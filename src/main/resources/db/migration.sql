@@ -34,10 +34,13 @@ CREATE TABLE IF NOT EXISTS friend_requests (
 
 -- Table: conversations
 -- Stores conversation metadata
+-- direct_key: (user nhỏ << 32) | user lớn cho chat 1-1, NULL cho nhóm (nhóm chỉ còn hai người vẫn là nhóm)
 CREATE TABLE IF NOT EXISTS conversations (
     id INT AUTO_INCREMENT PRIMARY KEY,
+    direct_key BIGINT NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY unique_direct_key (direct_key),
     INDEX idx_updated_at (updated_at)
 );
 
@@ -66,8 +69,74 @@ CREATE TABLE IF NOT EXISTS messages (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (conversation_id) REFERENCES conversations(id) ON DELETE CASCADE,
     FOREIGN KEY (sender_id) REFERENCES users(id) ON DELETE CASCADE,
-    INDEX idx_conversation_id (conversation_id),
+    -- Lịch sử đọc theo (conversation_id, id) giảm dần, cursor "before" = id
+    INDEX idx_conversation_id_id (conversation_id, id),
     INDEX idx_sender_id (sender_id),
-    INDEX idx_created_at (created_at),
-    INDEX idx_is_read (is_read)
+    INDEX idx_created_at (created_at)
+);
+
+-- Table: unread_counters
+-- Số tin chưa đọc theo (user, conversation), cộng khi ghi tin nhắn, về 0 khi MARK_MESSAGES_READ.
+-- last_read_id dùng để đếm lại từ messages (UnreadCounters.checkAll)
+CREATE TABLE IF NOT EXISTS unread_counters (
+    user_id INT NOT NULL,
+    conversation_id INT NOT NULL,
+    unread INT NOT NULL DEFAULT 0,
+    last_read_id INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, conversation_id)
+);
+
+-- Table: conversation_summaries
+-- Inbox: mỗi participant một dòng với snapshot tin nhắn cuối, cập nhật khi ghi tin nhắn.
+-- Danh sách hội thoại của một user là một lần đọc range trên idx_user_updated
+CREATE TABLE IF NOT EXISTS conversation_summaries (
+    user_id INT NOT NULL,
+    conversation_id INT NOT NULL,
+    peer_id INT NULL,
+    last_message_id INT NOT NULL,
+    last_sender_id INT NOT NULL,
+    last_preview VARCHAR(100) NOT NULL,
+    updated_at TIMESTAMP(3) NOT NULL,
+    PRIMARY KEY (user_id, conversation_id),
+    INDEX idx_user_updated (user_id, updated_at, conversation_id)
+);
+
+-- Table: email_outbox
+-- Email chờ gửi; SignupCommand chỉ ghi vào đây, EmailOutbox gửi nền và retry
+CREATE TABLE IF NOT EXISTS email_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    body TEXT NOT NULL,
+    status ENUM('pending', 'sent', 'failed') DEFAULT 'pending',
+    attempts INT NOT NULL DEFAULT 0,
+    last_error VARCHAR(500),
+    next_attempt_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_status_next_attempt (status, next_attempt_at)
 );
+
+-- DB tạo trước khi có phân trang lịch sử chat:
+-- ALTER TABLE messages ADD INDEX idx_conversation_id_id (conversation_id, id), DROP INDEX idx_conversation_id;
+
+-- DB tạo trước khi có unread_counters (sau khi tạo bảng, chạy server với -Deduconnect.unread.checkOnStart=true một lần):
+-- ALTER TABLE messages DROP INDEX idx_is_read;
+
+-- DB tạo trước khi có direct_key: mọi conversation đúng hai participant được coi là chat 1-1
+-- (nhóm nào chỉ còn hai người thì đặt lại direct_key = NULL bằng tay sau đó):
+-- ALTER TABLE conversations ADD COLUMN direct_key BIGINT NULL AFTER id, ADD UNIQUE KEY unique_direct_key (direct_key);
+-- UPDATE conversations c
+-- JOIN (SELECT conversation_id, MIN(user_id) AS a, MAX(user_id) AS b FROM conversation_participants
+--       GROUP BY conversation_id HAVING COUNT(*) = 2) p ON p.conversation_id = c.id
+-- SET c.direct_key = (p.a << 32) | p.b;
+
+-- Điền conversation_summaries cho DB đã có tin nhắn:
+-- INSERT INTO conversation_summaries (user_id, conversation_id, peer_id, last_message_id, last_sender_id, last_preview, updated_at)
+-- SELECT cp.user_id, m.conversation_id,
+--        (SELECT o.user_id FROM conversation_participants o WHERE o.conversation_id = m.conversation_id
+--         AND o.user_id <> cp.user_id AND (SELECT COUNT(*) FROM conversation_participants c WHERE c.conversation_id = m.conversation_id) = 2 LIMIT 1),
+--        m.id, m.sender_id, LEFT(m.content, 100), m.created_at
+-- FROM messages m
+-- JOIN (SELECT conversation_id, MAX(id) AS id FROM messages GROUP BY conversation_id) last ON last.id = m.id
+-- JOIN conversation_participants cp ON cp.conversation_id = m.conversation_id
+-- ON DUPLICATE KEY UPDATE last_message_id = last_message_id;
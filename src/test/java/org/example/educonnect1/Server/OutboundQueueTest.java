@@ -0,0 +1,162 @@
+package org.example.educonnect1.Server;
+
+import org.example.educonnect1.protocol.Opcode;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundQueueTest {
+    private final AtomicInteger wakes = new AtomicInteger();
+    private final AtomicInteger disconnects = new AtomicInteger();
+    private final AtomicInteger resumes = new AtomicInteger();
+
+    private OutboundQueue queue(boolean disconnectSlow) {
+        return new OutboundQueue("test", wakes::incrementAndGet, disconnects::incrementAndGet,
+                resumes::incrementAndGet, disconnectSlow);
+    }
+
+    private static PushFrame push() throws Exception {
+        return PushFrame.encode(Opcode.EVENT_PRESENCE, 1, true, 0L);
+    }
+
+    private static void fill(OutboundQueue queue, PushFrame push) {
+        for (int i = 0; i < OutboundQueue.MAX_QUEUED; i++) {
+            assertTrue(queue.offerPush(push));
+        }
+    }
+
+    /**
+     * Writer lấy ra count frame
+     */
+    private static void write(OutboundQueue queue, int count) {
+        for (int i = 0; i < count; i++) {
+            OutboundQueue.Frame frame = queue.poll();
+            assertNotNull(frame);
+            queue.written(frame);
+        }
+    }
+
+    @Test
+    void wakesTheWriterOnceUntilItDrains() throws Exception {
+        OutboundQueue queue = queue(false);
+        PushFrame push = push();
+
+        queue.offerPush(push);
+        queue.offerPush(push);
+        assertEquals(1, wakes.get());
+
+        write(queue, 2);
+        assertFalse(queue.drained());
+        queue.offerPush(push);
+        assertEquals(2, wakes.get());
+    }
+
+    @Test
+    void drainedAsksForAnotherRoundWhenFramesArrivedMeanwhile() throws Exception {
+        OutboundQueue queue = queue(false);
+        queue.offerPush(push());
+        write(queue, 1);
+        queue.offerResponse(new byte[]{1}); // tới trong lúc writer đang ghi, không đánh thức lại
+
+        assertTrue(queue.drained());
+        assertEquals(1, wakes.get());
+    }
+
+    @Test
+    void sharesOnePushFrameAcrossQueues() throws Exception {
+        PushFrame push = push();
+        OutboundQueue first = queue(false);
+        OutboundQueue second = queue(false);
+        first.offerPush(push);
+        second.offerPush(push);
+
+        assertSame(first.poll().push, second.poll().push);
+    }
+
+    @Test
+    void overflowDropsPushesAndSendsOneResyncOnceDrained() throws Exception {
+        OutboundQueue queue = queue(false);
+        PushFrame push = push();
+        fill(queue, push);
+
+        assertFalse(queue.offerPush(push));
+        assertFalse(queue.offerPush(push));
+        assertEquals(0, disconnects.get());
+
+        // Chưa vơi xuống một nửa: chưa gửi resync
+        write(queue, OutboundQueue.MAX_QUEUED / 2 - 1);
+        queue.drained();
+        write(queue, 1);
+        assertTrue(queue.drained(), "resync frame is queued once half the pushes are written");
+
+        write(queue, OutboundQueue.MAX_QUEUED / 2);
+        OutboundQueue.Frame resync = queue.poll();
+        assertNotNull(resync);
+        assertFalse(resync.limited, "the resync frame does not count against the push limit");
+        assertNotSame(push, resync.push);
+        assertNull(queue.poll());
+        assertFalse(queue.drained(), "only one resync per overflow");
+    }
+
+    @Test
+    void disconnectPolicyClosesASlowConsumer() throws Exception {
+        OutboundQueue queue = queue(true);
+        PushFrame push = push();
+        fill(queue, push);
+
+        assertFalse(queue.offerPush(push));
+        assertFalse(queue.offerPush(push));
+
+        assertEquals(1, disconnects.get());
+        assertNull(queue.poll(), "pending frames are dropped on close");
+        assertFalse(queue.offerPush(push));
+    }
+
+    @Test
+    void responsesAreNeverDropped() throws Exception {
+        OutboundQueue queue = queue(true);
+        fill(queue, push());
+        for (int i = 0; i < 10; i++) {
+            queue.requestAccepted();
+            queue.offerResponse(new byte[]{(byte) i});
+        }
+
+        write(queue, OutboundQueue.MAX_QUEUED);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, queue.poll().payload[0]);
+        }
+        assertEquals(0, disconnects.get());
+    }
+
+    @Test
+    void pausesReadingAtMaxPendingResponsesAndResumesAtHalf() {
+        OutboundQueue queue = queue(false);
+        int max = OutboundQueue.MAX_PENDING_RESPONSES;
+        for (int i = 1; i < max; i++) {
+            assertTrue(queue.requestAccepted());
+            queue.offerResponse(new byte[]{0});
+        }
+        assertFalse(queue.requestAccepted(), "reader stops at the limit");
+        queue.offerResponse(new byte[]{0});
+
+        write(queue, max - max / 2 - 1);
+        assertEquals(0, resumes.get());
+        write(queue, 1);
+        assertEquals(1, resumes.get(), "reader resumes once half the responses are taken");
+        assertTrue(queue.requestAccepted());
+    }
+
+    @Test
+    void requestWithoutResponseReleasesItsSlot() {
+        OutboundQueue queue = queue(false);
+        int max = OutboundQueue.MAX_PENDING_RESPONSES;
+        for (int i = 1; i < max; i++) queue.requestAccepted();
+        assertFalse(queue.requestAccepted());
+
+        for (int i = 0; i < max - max / 2; i++) queue.noResponse();
+
+        assertEquals(1, resumes.get());
+    }
+}
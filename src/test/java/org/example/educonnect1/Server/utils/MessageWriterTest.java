@@ -0,0 +1,299 @@
+package org.example.educonnect1.Server.utils;
+
+import org.example.educonnect1.Server.dao.ConversationDAO;
+import org.example.educonnect1.Server.dao.MessageDAO;
+import org.example.educonnect1.Server.dao.MessageDAO.NewMessage;
+import org.example.educonnect1.Server.dao.UnreadDAO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageWriterTest {
+    private static final Path JOURNAL;
+
+    static {
+        // MessageWriter đọc cấu hình một lần khi nạp class
+        try {
+            JOURNAL = Files.createTempDirectory("message-writer-test").resolve("journal.log");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        System.setProperty("educonnect.messages.journal", JOURNAL.toString());
+        System.setProperty("educonnect.messages.flushIntervalMs", "1");
+        System.setProperty("educonnect.messages.compactBytes", "1");
+    }
+
+    /**
+     * MessageDAO không có DB: ghi nhận các lô, mỗi lần insertBatch chạy hành động kế tiếp trong inserts
+     */
+    private static class FakeMessageDAO extends MessageDAO {
+        final List<NewMessage> stored = new CopyOnWriteArrayList<>();
+        final List<Runnable> inserts = new CopyOnWriteArrayList<>();
+        volatile int insertCalls;
+        final int maxId;
+
+        FakeMessageDAO(int maxId) {
+            this.maxId = maxId;
+        }
+
+        @Override
+        public int maxMessageId() {
+            return maxId;
+        }
+
+        @Override
+        public void insertBatch(List<NewMessage> batch, Map<Long, UnreadDAO.Delta> unreadDeltas) {
+            int call = insertCalls++;
+            if (call < inserts.size()) inserts.get(call).run();
+            stored.addAll(batch);
+        }
+
+        @Override
+        public int[] getParticipants(int conversationId) {
+            return new int[]{1, 2};
+        }
+    }
+
+    private static class FakeUnreadDAO extends UnreadDAO {
+        final List<Integer> rebuilt = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Map<Integer, Integer> load(int userId) {
+            return new HashMap<>();
+        }
+
+        @Override
+        public Map<Integer, Integer> rebuild(int conversationId) {
+            rebuilt.add(conversationId);
+            return Collections.emptyMap();
+        }
+    }
+
+    private final List<MessageWriter> started = new ArrayList<>();
+    private FakeUnreadDAO unreadDAO;
+
+    @BeforeEach
+    void deleteJournal() throws IOException {
+        Files.deleteIfExists(JOURNAL);
+        unreadDAO = new FakeUnreadDAO();
+    }
+
+    @AfterEach
+    void stopWriters() {
+        for (MessageWriter writer : started) writer.stop();
+    }
+
+    private MessageWriter start(FakeMessageDAO dao) throws IOException {
+        MessageWriter writer = new MessageWriter(dao, new UnreadCounters(unreadDAO, dao),
+                new InboxCache(new ConversationDAO(), dao));
+        writer.start();
+        started.add(writer);
+        return writer;
+    }
+
+    private static NewMessage send(MessageWriter writer, int conversationId, String content) throws Exception {
+        return writer.submit(conversationId, 1, content).get(5, TimeUnit.SECONDS);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met within 5s");
+            Thread.sleep(5);
+        }
+    }
+
+    private static List<Integer> ids(Collection<NewMessage> messages) {
+        List<Integer> ids = new ArrayList<>();
+        for (NewMessage m : messages) ids.add(m.id);
+        return ids;
+    }
+
+    private static Runnable blockUntil(CountDownLatch entered, CountDownLatch release) {
+        return () -> {
+            entered.countDown();
+            try {
+                assertTrue(release.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    private static Runnable failing() {
+        return () -> {
+            throw new RuntimeException("DB down");
+        };
+    }
+
+    @Test
+    void assignsIdsAfterTheStoredMaximumAndFlushesThem() throws Exception {
+        FakeMessageDAO dao = new FakeMessageDAO(41);
+        MessageWriter writer = start(dao);
+
+        NewMessage first = send(writer, 7, "hello");
+        NewMessage second = send(writer, 7, "again");
+
+        assertEquals(42, first.id);
+        assertEquals(43, second.id);
+        await(() -> dao.stored.size() == 2);
+        assertEquals(List.of(42, 43), ids(dao.stored));
+        assertEquals("again", dao.stored.get(1).content);
+    }
+
+    @Test
+    void truncatesTheJournalOnceEverythingIsFlushed() throws Exception {
+        FakeMessageDAO dao = new FakeMessageDAO(0);
+        MessageWriter writer = start(dao);
+
+        send(writer, 7, "hello");
+        assertTrue(Files.size(JOURNAL) > 0);
+
+        await(() -> dao.stored.size() == 1);
+        await(() -> {
+            try {
+                return Files.size(JOURNAL) == 0;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        assertEquals(0, writer.pending());
+    }
+
+    @Test
+    void replaysUnflushedMessagesOnStart() throws Exception {
+        FakeMessageDAO down = new FakeMessageDAO(10);
+        down.inserts.add(failing());
+        down.inserts.add(failing());
+        down.inserts.add(failing());
+        MessageWriter crashed = start(down);
+        send(crashed, 7, "one");
+        send(crashed, 8, "two");
+        crashed.stop();
+        assertTrue(down.stored.isEmpty());
+
+        FakeMessageDAO up = new FakeMessageDAO(10);
+        MessageWriter restarted = start(up);
+
+        assertEquals(List.of(11, 12), ids(up.stored));
+        assertEquals("two", up.stored.get(1).content);
+        assertTrue(unreadDAO.rebuilt.containsAll(List.of(7, 8)), "unread counters of replayed conversations are recounted");
+        assertEquals(0, Files.size(JOURNAL));
+        assertEquals(13, send(restarted, 7, "three").id, "ids continue after the replayed messages");
+    }
+
+    @Test
+    void ignoresATornRecordAtTheEndOfTheJournal() throws Exception {
+        FakeMessageDAO down = new FakeMessageDAO(0);
+        for (int i = 0; i < 3; i++) down.inserts.add(failing());
+        MessageWriter crashed = start(down);
+        send(crashed, 7, "kept");
+        crashed.stop();
+        // Crash giữa lúc ghi bản ghi kế tiếp: có length nhưng thiếu payload
+        Files.write(JOURNAL, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        FakeMessageDAO up = new FakeMessageDAO(0);
+        start(up);
+
+        assertEquals(List.of(1), ids(up.stored));
+        assertEquals("kept", up.stored.get(0).content);
+    }
+
+    @Test
+    void compactsTheJournalToTheUnflushedTail() throws Exception {
+        CountDownLatch firstInsert = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        FakeMessageDAO dao = new FakeMessageDAO(0);
+        dao.inserts.add(blockUntil(firstInsert, releaseFirst));
+        for (int i = 0; i < 5; i++) dao.inserts.add(failing());
+        MessageWriter writer = start(dao);
+
+        send(writer, 7, "one");
+        assertTrue(firstInsert.await(5, TimeUnit.SECONDS)); // lô [1] đang ghi vào DB
+        send(writer, 7, "two");
+        send(writer, 8, "three");
+        releaseFirst.countDown();
+        // Lô [1] commit rồi compact (journal > 1 byte, còn tin chưa flush); lô [2, 3] ghi lỗi và chờ retry
+        await(() -> dao.insertCalls >= 2);
+
+        // Journal mới vẫn nhận được tin nhắn sau khi compact
+        assertEquals(4, send(writer, 8, "four").id);
+        writer.stop();
+        assertEquals(List.of(1), ids(dao.stored));
+
+        FakeMessageDAO recovered = new FakeMessageDAO(1);
+        start(recovered);
+
+        assertEquals(List.of(2, 3, 4), ids(recovered.stored), "only the unflushed tail is left in the journal");
+    }
+
+    @Test
+    void canStartAgainAfterRecoveryFails() throws Exception {
+        FakeMessageDAO down = new FakeMessageDAO(0);
+        for (int i = 0; i < 3; i++) down.inserts.add(failing());
+        MessageWriter crashed = start(down);
+        send(crashed, 7, "one");
+        crashed.stop();
+
+        FakeMessageDAO stillDown = new FakeMessageDAO(0);
+        stillDown.inserts.add(failing());
+        MessageWriter writer = new MessageWriter(stillDown, new UnreadCounters(unreadDAO, stillDown),
+                new InboxCache(new ConversationDAO(), stillDown));
+        assertThrows(RuntimeException.class, writer::start);
+        assertThrows(MessageWriter.BusyException.class, () -> writer.submit(7, 1, "rejected"));
+
+        // DB lên lại: lần start sau replay được journal còn nguyên
+        writer.start();
+        started.add(writer);
+        assertEquals(List.of(1), ids(stillDown.stored));
+        assertEquals(2, send(writer, 7, "two").id);
+    }
+
+    @Test
+    void historyIncludesMessagesStillInTheJournal() throws Exception {
+        CountDownLatch firstInsert = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FakeMessageDAO dao = new FakeMessageDAO(0) {
+            @Override
+            public List<org.example.educonnect1.client.models.Message> getMessages(int conversationId, Integer beforeId, int limit) {
+                return new ArrayList<>();
+            }
+        };
+        dao.inserts.add(blockUntil(firstInsert, release));
+        MessageWriter writer = start(dao);
+        try {
+            send(writer, 7, "one");
+            send(writer, 8, "other conversation");
+            send(writer, 7, "two");
+            assertTrue(firstInsert.await(5, TimeUnit.SECONDS));
+
+            MessageDAO.HistoryPage page = writer.history(7, null, 10);
+
+            assertEquals(2, page.messages.size());
+            assertEquals("two", page.messages.get(0).getContent());
+            assertEquals("one", page.messages.get(1).getContent());
+            assertNull(page.nextBefore);
+            assertEquals(3, writer.latestMessageId(7));
+        } finally {
+            release.countDown();
+        }
+    }
+}
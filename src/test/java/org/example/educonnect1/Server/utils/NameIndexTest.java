@@ -0,0 +1,172 @@
+package org.example.educonnect1.Server.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NameIndexTest {
+
+    private static List<Integer> ids(List<NameIndex.Match> matches) {
+        List<Integer> ids = new ArrayList<>();
+        for (NameIndex.Match match : matches) ids.add(match.user.getId());
+        return ids;
+    }
+
+    @Test
+    void ranksExactThenNameStartThenWordStartThenMiddle() {
+        NameIndex index = new NameIndex();
+        index.put(1, "Anh Tuan", null);     // đầu một từ, không phải đầu tên
+        index.put(2, "Tuan", null);         // trùng hẳn
+        index.put(3, "Nguyen Atuan", null); // nằm giữa một từ
+        index.put(4, "Tuan Anh", null);     // đầu tên
+
+        assertEquals(List.of(2, 4, 1, 3), ids(index.search("tuan", 10)));
+    }
+
+    @Test
+    void shorterNamesThenLowerIdsBreakTies() {
+        NameIndex index = new NameIndex();
+        index.put(5, "Minh Long", null);
+        index.put(3, "Minh Hoang Long", null);
+        index.put(4, "Minh Kha", null);
+
+        assertEquals(List.of(4, 5, 3), ids(index.search("minh", 10)));
+    }
+
+    @Test
+    void matchesWithoutVietnameseDiacriticsOrCase() {
+        NameIndex index = new NameIndex();
+        index.put(1, "Nguyễn Văn Đức", "a.png");
+
+        List<NameIndex.Match> matches = index.search("NGUYEN van duc", 10);
+
+        assertEquals(List.of(1), ids(matches));
+        assertEquals("Nguyễn Văn Đức", matches.get(0).user.getFullName());
+        assertEquals("a.png", matches.get(0).user.getAvatar());
+        assertEquals(List.of(1), ids(index.search("đức", 10)));
+    }
+
+    @Test
+    void singleCharacterQueriesScanEveryName() {
+        NameIndex index = new NameIndex();
+        index.put(1, "Lan", null);
+        index.put(2, "Binh", null);
+        index.put(3, "An", null);
+
+        assertEquals(List.of(3, 1), ids(index.search("a", 10)));
+    }
+
+    @Test
+    void keepsOnlyTheBestLimitResults() {
+        NameIndex index = new NameIndex();
+        for (int id = 1; id <= 100; id++) {
+            index.put(id, "Hoa " + id, null);
+        }
+        index.put(200, "Hoa", null);
+
+        List<NameIndex.Match> matches = index.search("hoa", 3);
+
+        assertEquals(List.of(200, 1, 2), ids(matches));
+    }
+
+    @Test
+    void renameMovesTheNameToItsNewGrams() {
+        NameIndex index = new NameIndex();
+        index.put(1, "Old Name", null);
+        index.put(1, "Fresh Name", "b.png");
+
+        assertTrue(index.search("old", 10).isEmpty());
+        assertEquals(List.of(1), ids(index.search("fresh", 10)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void putIfAbsentDoesNotOverwriteANewerPut() {
+        NameIndex index = new NameIndex();
+        index.put(1, "Signed Up", null);
+        index.putIfAbsent(1, "Loaded From DB", null);
+
+        assertEquals("Signed Up", index.get(1).getFullName());
+        assertTrue(index.search("loaded", 10).isEmpty());
+    }
+
+    @Test
+    void unknownGramsAndEmptyQueriesReturnNothing() {
+        NameIndex index = new NameIndex();
+        index.put(1, "Mai", null);
+
+        assertTrue(index.search("xyz", 10).isEmpty());
+        assertTrue(index.search("   ", 10).isEmpty());
+        assertTrue(index.search("mai", 0).isEmpty());
+    }
+
+    @Test
+    void growsPastTheInitialIdRange() {
+        NameIndex index = new NameIndex();
+        index.put(5_000, "Far Away", null);
+
+        assertEquals(List.of(5_000), ids(index.search("far", 10)));
+        assertNull(index.get(4_999));
+    }
+
+    @Test
+    void keysetPagesCoverEveryMatchOnceInRankOrder() {
+        NameIndex index = new NameIndex();
+        for (int id = 1; id <= 25; id++) {
+            index.put(id, (id % 3 == 0 ? "Lan " : "Ngoc Lan ") + id, null);
+        }
+        index.put(99, "Khac", null);
+        List<Integer> all = ids(index.search("lan", 100));
+
+        List<Integer> paged = new ArrayList<>();
+        long after = -1;
+        while (true) {
+            List<NameIndex.Match> page = index.search("lan", after, 4);
+            if (page.isEmpty()) break;
+            paged.addAll(ids(page));
+            after = page.get(page.size() - 1).rank;
+        }
+
+        assertEquals(25, all.size());
+        assertEquals(all, paged);
+    }
+
+    @Test
+    void cursorSurvivesInsertsBeforeIt() {
+        NameIndex index = new NameIndex();
+        index.put(1, "Lan", null);
+        index.put(2, "Lan Anh", null);
+        index.put(3, "Ngoc Lan", null);
+        List<NameIndex.Match> first = index.search("lan", -1, 2);
+        assertEquals(List.of(1, 2), ids(first));
+
+        // tên mới xếp trước cursor không làm lặp hay mất phần tử của trang sau
+        index.put(4, "Lan", null);
+
+        assertEquals(List.of(3), ids(index.search("lan", first.get(1).rank, 2)));
+    }
+
+    @Test
+    void commonPrefixKeepsRankOrderAcrossLoadAndLaterPuts() {
+        NameIndex index = new NameIndex();
+        for (int id = 1; id <= 200; id++) {
+            index.putIfAbsent(id, (id % 2 == 0 ? "Nguyễn Văn " : "Nguyễn ") + id, null);
+        }
+        index.markReady();
+        // sau khi sẵn sàng, tên mới và tên đổi phải chen đúng chỗ trong danh sách đã sắp
+        index.put(500, "Nguyễn", null);
+        index.put(3, "Trần Nguyễn", null);
+        index.put(7, "Nguyen", null);
+
+        List<Integer> top = ids(index.search("nguyen", 4));
+        assertEquals(List.of(7, 500, 1, 5), top);
+        assertEquals(List.of(3), ids(index.search("tran nguyen", 10)));
+        // "nguyen" ở đầu từ thứ hai xếp sau mọi tên bắt đầu bằng "nguyen"
+        List<Integer> all = ids(index.search("nguyen", 1000));
+        assertEquals(201, all.size());
+        assertEquals(3, all.get(all.size() - 1).intValue());
+    }
+}
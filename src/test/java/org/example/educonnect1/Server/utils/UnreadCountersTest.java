@@ -0,0 +1,195 @@
+package org.example.educonnect1.Server.utils;
+
+import org.example.educonnect1.Server.dao.MessageDAO;
+import org.example.educonnect1.Server.dao.MessageDAO.NewMessage;
+import org.example.educonnect1.Server.dao.UnreadDAO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnreadCountersTest {
+    private static final int CONVERSATION = 7;
+    private static final int SENDER = 1;
+    private static final int READER = 2;
+    private static final int OTHER = 3;
+
+    private static class FakeMessageDAO extends MessageDAO {
+        @Override
+        public int[] getParticipants(int conversationId) {
+            return new int[]{SENDER, READER, OTHER};
+        }
+    }
+
+    /**
+     * unread_counters trong RAM: chỉ ghi lại markRead và trả về dữ liệu định sẵn
+     */
+    private static class FakeUnreadDAO extends UnreadDAO {
+        final Map<Integer, Map<Integer, Integer>> stored = new HashMap<>();
+        final Map<Integer, Integer> rebuilt = new HashMap<>();
+        final List<int[]> marks = new ArrayList<>();
+
+        @Override
+        public Map<Integer, Integer> load(int userId) {
+            return new HashMap<>(stored.getOrDefault(userId, new HashMap<>()));
+        }
+
+        @Override
+        public void markRead(int userId, int conversationId, int lastReadId) {
+            marks.add(new int[]{userId, conversationId, lastReadId});
+        }
+
+        @Override
+        public Map<Integer, Integer> rebuild(int conversationId) {
+            return rebuilt;
+        }
+    }
+
+    private FakeUnreadDAO dao;
+    private UnreadCounters counters;
+
+    @BeforeEach
+    void setUp() {
+        dao = new FakeUnreadDAO();
+        counters = new UnreadCounters(dao, new FakeMessageDAO());
+    }
+
+    /**
+     * Tin nhắn id from..to của SENDER trong CONVERSATION
+     */
+    private static List<NewMessage> batch(int from, int to) {
+        List<NewMessage> batch = new ArrayList<>();
+        for (int id = from; id <= to; id++) {
+            batch.add(new NewMessage(id, CONVERSATION, SENDER, "m" + id, 0));
+        }
+        return batch;
+    }
+
+    private void flush(List<NewMessage> batch) {
+        Map<Long, UnreadDAO.Delta> deltas = counters.deltas(batch);
+        counters.commit(() -> { }, deltas, batch.get(batch.size() - 1).id);
+    }
+
+    private int unread(int userId) {
+        return counters.forUser(userId).getOrDefault(CONVERSATION, 0);
+    }
+
+    @Test
+    void countsEveryRecipientButTheSender() {
+        Map<Long, UnreadDAO.Delta> deltas = counters.deltas(batch(5, 7));
+
+        assertNull(deltas.get(UnreadDAO.key(SENDER, CONVERSATION)));
+        assertEquals(3, deltas.get(UnreadDAO.key(READER, CONVERSATION)).count());
+        assertEquals(3, deltas.get(UnreadDAO.key(OTHER, CONVERSATION)).count());
+    }
+
+    @Test
+    void commitAddsToLoadedCounters() {
+        dao.stored.put(READER, new HashMap<>(Map.of(CONVERSATION, 4)));
+        assertEquals(4, unread(READER));
+
+        flush(batch(5, 7));
+
+        assertEquals(7, unread(READER));
+    }
+
+    @Test
+    void countersOfUsersNotInMemoryAreLeftToTheTable() {
+        flush(batch(5, 7));
+        dao.stored.put(READER, new HashMap<>(Map.of(CONVERSATION, 3)));
+
+        assertEquals(3, unread(READER), "loaded from the table, not double counted");
+    }
+
+    @Test
+    void skipsMessagesAtOrBelowTheReadMark() {
+        counters.forUser(READER);
+        counters.forUser(OTHER);
+        counters.markRead(READER, CONVERSATION, 7);
+
+        Map<Long, UnreadDAO.Delta> deltas = counters.deltas(batch(5, 10));
+        counters.commit(() -> { }, deltas, 10);
+
+        UnreadDAO.Delta reader = deltas.get(UnreadDAO.key(READER, CONVERSATION));
+        assertEquals(3, reader.count());
+        assertEquals(8, reader.id(0));
+        assertEquals(3, unread(READER));
+        assertEquals(6, unread(OTHER));
+    }
+
+    @Test
+    void markReadBetweenDeltasAndCommitOnlyCountsMessagesAfterTheMark() {
+        counters.forUser(READER);
+        Map<Long, UnreadDAO.Delta> deltas = counters.deltas(batch(5, 10));
+
+        // Batch vắt qua mốc đã đọc: 5..7 đã đọc, 8..10 chưa
+        counters.markRead(READER, CONVERSATION, 7);
+        counters.commit(() -> { }, deltas, 10);
+
+        assertEquals(3, unread(READER));
+    }
+
+    @Test
+    void markReadResetsTheCounterAndStoresTheMark() {
+        dao.stored.put(READER, new HashMap<>(Map.of(CONVERSATION, 4)));
+        assertEquals(4, unread(READER));
+
+        counters.markRead(READER, CONVERSATION, 9);
+
+        assertEquals(0, unread(READER));
+        assertEquals(1, dao.marks.size());
+        assertArrayEquals(new int[]{READER, CONVERSATION, 9}, dao.marks.get(0));
+    }
+
+    @Test
+    void readMarkIsDroppedOnceItsMessagesAreFlushed() {
+        counters.markRead(READER, CONVERSATION, 7);
+        assertTrue(counters.stats().contains("readMarks=1"));
+
+        flush(batch(5, 7));
+
+        assertTrue(counters.stats().contains("readMarks=0"));
+    }
+
+    @Test
+    void failedWriteLeavesCountersUnchanged() {
+        counters.forUser(READER);
+        Map<Long, UnreadDAO.Delta> deltas = counters.deltas(batch(5, 7));
+
+        assertThrows(RuntimeException.class, () -> counters.commit(() -> {
+            throw new RuntimeException("DB down");
+        }, deltas, 7));
+
+        assertEquals(0, unread(READER));
+    }
+
+    @Test
+    void rebuildReplacesCountersInMemory() {
+        counters.forUser(READER);
+        counters.forUser(OTHER);
+        flush(batch(5, 7));
+        dao.rebuilt.put(READER, 1);
+        dao.rebuilt.put(OTHER, 0);
+
+        assertEquals(2, counters.rebuild(List.of(CONVERSATION)));
+
+        assertEquals(1, unread(READER));
+        assertFalse(counters.forUser(OTHER).containsKey(CONVERSATION));
+    }
+
+    @Test
+    void deltaCountsIdsAfterAMark() {
+        UnreadDAO.Delta delta = new UnreadDAO.Delta();
+        for (int id = 5; id <= 10; id++) delta.add(id);
+
+        assertEquals(6, delta.count());
+        assertEquals(6, delta.countAfter(0));
+        assertEquals(3, delta.countAfter(7));
+        assertEquals(0, delta.countAfter(10));
+    }
+}
@@ -0,0 +1,181 @@
+package org.example.educonnect1.Server.utils;
+
+import org.example.educonnect1.client.models.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserCacheTest {
+
+    private static User user(int id, String email, String fullName) {
+        User u = new User();
+        u.setId(id);
+        u.setEmail(email);
+        u.setFullName(fullName);
+        return u;
+    }
+
+    /**
+     * Loader đếm số lần được gọi (mỗi lần = một lần đọc DB)
+     */
+    private static Supplier<User> counting(AtomicInteger calls, User result) {
+        return () -> {
+            calls.incrementAndGet();
+            return result;
+        };
+    }
+
+    @Test
+    void secondLookupIsServedFromCache() {
+        UserCache cache = new UserCache(10, 60_000);
+        AtomicInteger calls = new AtomicInteger();
+        User alice = user(1, "alice@example.com", "Alice");
+
+        cache.getByEmail("alice@example.com", counting(calls, alice));
+        User byEmail = cache.getByEmail("ALICE@example.com", counting(calls, alice));
+        User byId = cache.getById(1, counting(calls, alice));
+
+        assertEquals(1, calls.get());
+        assertEquals("Alice", byEmail.getFullName());
+        assertEquals("Alice", byId.getFullName());
+    }
+
+    @Test
+    void returnsCopiesSoCallersCannotDirtyTheCache() {
+        UserCache cache = new UserCache(10, 60_000);
+        cache.getById(1, () -> user(1, "alice@example.com", "Alice")).setFullName("Changed");
+
+        User cached = cache.getById(1, () -> fail("should be cached"));
+
+        assertEquals("Alice", cached.getFullName());
+    }
+
+    @Test
+    void invalidateDropsTheEntry() {
+        UserCache cache = new UserCache(10, 60_000);
+        AtomicInteger calls = new AtomicInteger();
+        cache.getByEmail("alice@example.com", counting(calls, user(1, "alice@example.com", "Alice")));
+
+        cache.invalidate("alice@example.com");
+        User reloaded = cache.getById(1, counting(calls, user(1, "alice@example.com", "Alice 2")));
+
+        assertEquals(2, calls.get());
+        assertEquals("Alice 2", reloaded.getFullName());
+    }
+
+    @Test
+    void loadOverlappingAnInvalidateOfTheSameUserIsNotCached() {
+        UserCache cache = new UserCache(10, 60_000);
+        // Load đọc bản cũ, UPDATE + invalidate xảy ra trước khi load kịp đưa vào cache
+        User stale = cache.getByEmail("alice@example.com", () -> {
+            cache.invalidate("alice@example.com");
+            return user(1, "alice@example.com", "Old name");
+        });
+        assertEquals("Old name", stale.getFullName());
+
+        AtomicInteger calls = new AtomicInteger();
+        User fresh = cache.getByEmail("alice@example.com", counting(calls, user(1, "alice@example.com", "New name")));
+
+        assertEquals(1, calls.get(), "stale load must not be cached");
+        assertEquals("New name", fresh.getFullName());
+    }
+
+    @Test
+    void invalidateByIdAlsoBlocksALoadByEmail() {
+        UserCache cache = new UserCache(10, 60_000);
+        cache.getByEmail("alice@example.com", () -> {
+            cache.invalidate(1);
+            return user(1, "alice@example.com", "Old name");
+        });
+
+        AtomicInteger calls = new AtomicInteger();
+        cache.getById(1, counting(calls, user(1, "alice@example.com", "New name")));
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void invalidateOfAnotherUserDoesNotBlockCaching() {
+        UserCache cache = new UserCache(10, 60_000);
+        cache.getByEmail("alice@example.com", () -> {
+            cache.invalidate("bob@example.com");
+            cache.invalidate(2);
+            return user(1, "alice@example.com", "Alice");
+        });
+
+        AtomicInteger calls = new AtomicInteger();
+        cache.getByEmail("alice@example.com", counting(calls, user(1, "alice@example.com", "Alice")));
+
+        assertEquals(0, calls.get(), "unrelated invalidations must not make the load stale");
+    }
+
+    @Test
+    void loadStartedAfterTheInvalidateIsCached() {
+        UserCache cache = new UserCache(10, 60_000);
+        // Một load dài đang chạy giữ dấu invalidate lại
+        cache.getByEmail("bob@example.com", () -> {
+            cache.invalidate("alice@example.com");
+            cache.getByEmail("alice@example.com", () -> user(1, "alice@example.com", "Alice"));
+            return user(2, "bob@example.com", "Bob");
+        });
+
+        AtomicInteger calls = new AtomicInteger();
+        cache.getByEmail("alice@example.com", counting(calls, user(1, "alice@example.com", "Alice")));
+
+        assertEquals(0, calls.get(), "a load that started after the invalidate is fresh");
+    }
+
+    @Test
+    void clearDuringLoadDiscardsTheResult() {
+        UserCache cache = new UserCache(10, 60_000);
+        cache.getById(1, () -> {
+            cache.clear();
+            return user(1, "alice@example.com", "Alice");
+        });
+
+        AtomicInteger calls = new AtomicInteger();
+        cache.getById(1, counting(calls, user(1, "alice@example.com", "Alice")));
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBeyondMaxSize() {
+        UserCache cache = new UserCache(2, 60_000);
+        cache.getById(1, () -> user(1, "a@example.com", "A"));
+        cache.getById(2, () -> user(2, "b@example.com", "B"));
+        cache.getById(1, () -> fail("should be cached")); // 1 mới được dùng, 2 là cũ nhất
+        cache.getById(3, () -> user(3, "c@example.com", "C"));
+
+        AtomicInteger calls = new AtomicInteger();
+        cache.getById(1, counting(calls, user(1, "a@example.com", "A")));
+        cache.getByEmail("b@example.com", counting(calls, user(2, "b@example.com", "B")));
+
+        assertEquals(1, calls.get(), "only the least recently used entry is evicted");
+    }
+
+    @Test
+    void expiredEntriesAreReloaded() throws InterruptedException {
+        UserCache cache = new UserCache(10, 1);
+        cache.getById(1, () -> user(1, "a@example.com", "A"));
+        Thread.sleep(5);
+
+        AtomicInteger calls = new AtomicInteger();
+        cache.getById(1, counting(calls, user(1, "a@example.com", "A")));
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void missingUsersAreNotCached() {
+        UserCache cache = new UserCache(10, 60_000);
+        AtomicInteger calls = new AtomicInteger();
+        assertNull(cache.getByEmail("nobody@example.com", counting(calls, null)));
+        assertNull(cache.getByEmail("nobody@example.com", counting(calls, null)));
+
+        assertEquals(2, calls.get());
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.educonnect1.client.utils;
+
+import org.example.educonnect1.client.models.UserSummary;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchCacheTest {
+    private static final int PAGE_SIZE = 20;
+
+    private static List<UserSummary> users(String... names) {
+        List<UserSummary> users = new ArrayList<>();
+        for (int i = 0; i < names.length; i++) {
+            users.add(new UserSummary(i + 1, names[i], null));
+        }
+        return users;
+    }
+
+    private static List<Integer> ids(SearchCache.Page page) {
+        List<Integer> ids = new ArrayList<>();
+        for (UserSummary user : page.users) ids.add(user.getId());
+        return ids;
+    }
+
+    @Test
+    void returnsTheCachedPageForTheSameNormalizedQuery() {
+        SearchCache cache = new SearchCache();
+        List<UserSummary> found = users("Trần Hòa");
+        cache.put("Hòa", found, "i1");
+
+        SearchCache.Page page = cache.get("  HOA ", PAGE_SIZE);
+
+        assertNotNull(page);
+        assertSame(found, page.users);
+        assertEquals("i1", page.nextCursor);
+    }
+
+    @Test
+    void narrowsACompletePrefixPageWithServerRanking() {
+        SearchCache cache = new SearchCache();
+        // 1: giữa từ, 2: không khớp "lan", 3: đầu một từ, 4: trùng hẳn, 5: đầu tên
+        cache.put("la", users("Xlan", "Lam", "Ngoc Lan", "Lan", "Lan Anh"), null);
+
+        SearchCache.Page page = cache.get("lan", PAGE_SIZE);
+
+        assertNotNull(page);
+        assertEquals(List.of(4, 5, 3, 1), ids(page));
+        assertNull(page.nextCursor);
+        // kết quả lọc được lưu lại cho lần sau
+        assertSame(page, cache.get("lan", PAGE_SIZE));
+    }
+
+    @Test
+    void narrowingIgnoresDiacriticsAndCase() {
+        SearchCache cache = new SearchCache();
+        cache.put("ng", users("Nguyễn Đức", "Ngô Minh"), null);
+
+        SearchCache.Page page = cache.get("NGUYEN d", PAGE_SIZE);
+
+        assertNotNull(page);
+        assertEquals(List.of(1), ids(page));
+    }
+
+    @Test
+    void doesNotNarrowAnIncompletePrefixPage() {
+        SearchCache cache = new SearchCache();
+        cache.put("la", users("Lan"), "i42");
+
+        assertNull(cache.get("lan", PAGE_SIZE));
+    }
+
+    @Test
+    void asksTheServerWhenNarrowedResultsExceedOnePage() {
+        SearchCache cache = new SearchCache();
+        cache.put("la", users("Lan", "Lan Anh", "Ngoc Lan"), null);
+
+        assertNull(cache.get("lan", 2));
+        assertNull(cache.get("lan", 2));
+    }
+
+    @Test
+    void prefersTheLongestCachedPrefix() {
+        SearchCache cache = new SearchCache();
+        cache.put("l", users("Lan", "Long"), null);
+        cache.put("lo", users("Long Vu"), null);
+
+        SearchCache.Page page = cache.get("lon", PAGE_SIZE);
+
+        assertNotNull(page);
+        assertEquals(1, page.users.size());
+        assertEquals("Long Vu", page.users.get(0).getFullName());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedQueries() {
+        SearchCache cache = new SearchCache();
+        cache.put("q0", users("A"), "x");
+        for (int i = 1; i <= 50; i++) {
+            cache.get("q0", PAGE_SIZE); // q0 luôn là query mới dùng nhất
+            cache.put("q" + i, users("A"), "x");
+        }
+
+        assertNotNull(cache.get("q0", PAGE_SIZE));
+        assertNull(cache.get("q1", PAGE_SIZE));
+        assertNotNull(cache.get("q2", PAGE_SIZE));
+    }
+
+    @Test
+    void clearDropsEveryPage() {
+        SearchCache cache = new SearchCache();
+        cache.put("lan", users("Lan"), null);
+        cache.clear();
+
+        assertNull(cache.get("lan", PAGE_SIZE));
+        assertNull(cache.get("lanh", PAGE_SIZE));
+    }
+}